@@ -0,0 +1,22 @@
+package com.anon.anonrpc.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记结果可以缓存的方法
+ * 结果只取决于参数、短时间内允许返回旧值的查询方法才应标注
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cacheable {
+
+    /**
+     * 缓存结果的有效时间（毫秒）
+     */
+    long ttlMs();
+}
@@ -0,0 +1,23 @@
+package com.anon.anonrpc.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 对冲请求开关
+ * 只对 @Idempotent 方法生效：标注 @Hedge(false) 的幂等方法不发送对冲请求，
+ * 标注 @Hedge 的幂等方法即使全局关闭了对冲也会发送；没有标注时按 RpcConfig 的全局开关
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Hedge {
+
+    /**
+     * 是否发送对冲请求
+     */
+    boolean value() default true;
+}
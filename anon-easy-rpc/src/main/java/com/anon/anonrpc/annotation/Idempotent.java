@@ -0,0 +1,18 @@
+package com.anon.anonrpc.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记幂等方法（通常是只读查询）
+ * 重复执行不会产生副作用，异步代理可以对这类方法发送对冲请求：
+ * 第一个请求迟迟没有响应时，向另一个实例再发一次，取先返回的结果
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Idempotent {
+}
@@ -0,0 +1,20 @@
+package com.anon.anonrpc.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 单向调用（发出即返回）
+ * 适用于埋点、审计日志等不关心结果的 void 方法：调用方写出请求后立即返回，不等待服务端执行，
+ * 服务端收下请求后只回一个 202 确认，不序列化和写回结果。服务方法抛出的异常调用方看不到，请求也不重试。
+ * 标在服务接口上时对该接口所有 void 方法生效；有返回值的方法忽略本注解。
+ * 也可以用 RpcContext.runOneWay 让单次调用以单向方式发送
+ */
+@Documented
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface OneWay {
+}
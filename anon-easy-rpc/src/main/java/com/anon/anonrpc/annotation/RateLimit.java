@@ -0,0 +1,29 @@
+package com.anon.anonrpc.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 限流配置
+ * 标在服务接口或实现类上限制整个服务，标在方法上限制单个方法（同名重载方法共用一个限制）。
+ * 服务端按 LocalRegistry 注册的实现类（及其接口）读取，客户端按代理的服务接口读取，
+ * 通过 RateLimiter 显式设置的限制优先
+ */
+@Documented
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimit {
+
+    /**
+     * 每秒允许的请求数
+     */
+    double permitsPerSecond();
+
+    /**
+     * 突发容量，默认与每秒请求数相同（至少为1）
+     */
+    int burst() default 0;
+}
@@ -0,0 +1,23 @@
+package com.anon.anonrpc.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 失败重试次数
+ * 标在服务接口上作为该服务所有方法的默认值，标在方法上覆盖接口上的设置；
+ * 没有标注时使用 RpcConfig 的全局重试次数。有副作用的写操作可以设为0，避免重复执行
+ */
+@Documented
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Retry {
+
+    /**
+     * 最大重试次数（不含第一次调用）
+     */
+    int value();
+}
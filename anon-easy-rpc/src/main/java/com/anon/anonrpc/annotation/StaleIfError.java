@@ -0,0 +1,24 @@
+package com.anon.anonrpc.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 调用失败时返回最近一次成功的结果
+ * 代理记录该方法每组参数最近一次成功的返回值，熔断、重试耗尽或被限流时，
+ * 如果同样参数的结果还没有超过 maxStaleMs，返回这个旧结果而不是降级函数或默认值。
+ * 适合允许短时间返回旧数据的查询方法，参数需要正确实现 equals 和 hashCode
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StaleIfError {
+
+    /**
+     * 旧结果最多可以使用多久（毫秒）
+     */
+    long maxStaleMs() default 300000;
+}
@@ -0,0 +1,23 @@
+package com.anon.anonrpc.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 调用超时时间
+ * 标在服务接口上作为该服务所有方法的默认值，标在方法上覆盖接口上的设置；
+ * 没有标注时使用 RpcConfig 的全局超时时间
+ */
+@Documented
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Timeout {
+
+    /**
+     * 超时时间（毫秒），包括所有重试在内的总时间
+     */
+    long value();
+}
@@ -0,0 +1,356 @@
+package com.anon.anonrpc.cache;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 调用结果缓存 - 容量和存活时间双重限制，按 W-TinyLFU 淘汰
+ * 新条目先进入占容量1%的窗口区（LRU），被挤出窗口后进入主区的试用段，与试用段最久未访问的条目按访问频率比较，
+ * 频率更高的留下；试用段中再次被访问的条目升入保护段（占主区80%）。这样一次性的扫描访问不会冲掉热点，
+ * 突发的新热点又能先在窗口区停留。访问频率由 FrequencySketch 估计。
+ * 读取只查 ConcurrentHashMap，访问顺序和频率的更新在拿不到锁时直接跳过，高并发读取时不会排队；
+ * 热点条目在存活时间用掉一定比例后被读取时，在后台提前刷新，读取方继续拿到当前结果
+ * @param <K> 键
+ * @param <V> 缓存的结果，可以为null
+ */
+public class ResponseCache<K, V> {
+
+    /**
+     * get 没有命中时的返回值
+     */
+    public static final Object MISS = new Object();
+
+    // 提前刷新要求的最低访问频率估计
+    private static final int HOT_FREQUENCY = 3;
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+    private static final int REMOVED = 3;
+
+    private final int maxSize;
+    private final int windowMax;
+    private final int protectedMax;
+    private final int refreshAheadPercent;
+
+    private final Map<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    // 以下字段只在持有 lock 时访问
+    private final FrequencySketch sketch;
+    private final Queue<K, V> window = new Queue<>();
+    private final Queue<K, V> probation = new Queue<>();
+    private final Queue<K, V> protectedQueue = new Queue<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    /**
+     * @param maxSize 最大条目数
+     * @param refreshAheadPercent 热点条目存活时间用掉多少百分比后提前刷新，0表示不提前刷新
+     */
+    public ResponseCache(int maxSize, int refreshAheadPercent) {
+        this.maxSize = Math.max(1, maxSize);
+        this.windowMax = Math.max(1, this.maxSize / 100);
+        this.protectedMax = (this.maxSize - windowMax) * 80 / 100;
+        this.refreshAheadPercent = refreshAheadPercent;
+        this.sketch = new FrequencySketch(this.maxSize);
+    }
+
+    /**
+     * 读取缓存的结果
+     * @param refresher 提前刷新时发起调用，为null时不刷新；调用成功后结果写回缓存
+     * @return 缓存的结果，没有或已过期时返回 MISS
+     */
+    public Object get(K key, Supplier<CompletableFuture<V>> refresher) {
+        Node<K, V> node = data.get(key);
+        long now = System.currentTimeMillis();
+        if (node == null || now - node.expiresAt >= 0) {
+            misses.increment();
+            if (node != null) {
+                remove(node, true);
+            }
+            return MISS;
+        }
+        hits.increment();
+        V value = node.value;
+        int frequency = -1;
+        if (lock.tryLock()) {
+            try {
+                onAccess(node);
+                frequency = sketch.frequency(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (refresher != null && refreshAheadPercent > 0 && frequency >= HOT_FREQUENCY
+                && (now - node.storedAt) * 100 >= node.ttlMs * refreshAheadPercent && node.compareAndSet(false, true)) {
+            refresh(key, node, refresher);
+        }
+        return value;
+    }
+
+    /**
+     * 写入结果
+     * @param ttlMs 存活时间
+     */
+    public void put(K key, V value, long ttlMs) {
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            Node<K, V> node = data.get(key);
+            if (node != null) {
+                node.update(value, now, ttlMs);
+                onAccess(node);
+                return;
+            }
+            node = new Node<>(key);
+            node.update(value, now, ttlMs);
+            data.put(key, node);
+            sketch.increment(key);
+            node.queue = WINDOW;
+            window.addLast(node);
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 移除键
+     */
+    public void invalidate(K key) {
+        Node<K, V> node = data.get(key);
+        if (node != null) {
+            remove(node, false);
+        }
+    }
+
+    private void refresh(K key, Node<K, V> node, Supplier<CompletableFuture<V>> refresher) {
+        refreshes.increment();
+        CompletableFuture<V> future;
+        try {
+            future = refresher.get();
+        } catch (RuntimeException e) {
+            node.set(false);
+            return;
+        }
+        future.whenComplete((value, error) -> {
+            if (error == null) {
+                put(key, value, node.ttlMs);
+            } else {
+                node.set(false); // 刷新失败，下一次读取再试
+            }
+        });
+    }
+
+    /**
+     * @param onlyIfExpired 只移除已过期的条目（期间可能已被刷新）
+     */
+    private void remove(Node<K, V> node, boolean onlyIfExpired) {
+        lock.lock();
+        try {
+            if (onlyIfExpired && System.currentTimeMillis() - node.expiresAt < 0) {
+                return;
+            }
+            if (data.remove(node.key, node)) {
+                unlink(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 记录一次访问：窗口区和保护段内移到队尾，试用段的条目升入保护段，保护段超出容量时最久未访问的降回试用段
+     */
+    private void onAccess(Node<K, V> node) {
+        sketch.increment(node.key);
+        switch (node.queue) {
+            case WINDOW:
+                window.moveToLast(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedQueue.addLast(node);
+                if (protectedQueue.size > protectedMax) {
+                    Node<K, V> demoted = protectedQueue.pollFirst();
+                    demoted.queue = PROBATION;
+                    probation.addLast(demoted);
+                }
+                break;
+            case PROTECTED:
+                protectedQueue.moveToLast(node);
+                break;
+            default:
+                break; // 已被移除
+        }
+    }
+
+    /**
+     * 窗口区超出容量的条目进入试用段；总数超出容量时，在试用段最新进入的候选和最久未访问的条目中淘汰频率低的一个
+     */
+    private void evict() {
+        while (window.size > windowMax) {
+            Node<K, V> node = window.pollFirst();
+            node.queue = PROBATION;
+            probation.addLast(node);
+        }
+        while (data.size() > maxSize) {
+            Node<K, V> victim = probation.head;
+            Node<K, V> candidate = probation.tail;
+            Node<K, V> evicted;
+            if (victim == null) {
+                evicted = protectedQueue.head != null ? protectedQueue.head : window.head;
+            } else if (victim == candidate) {
+                evicted = victim;
+            } else {
+                evicted = sketch.frequency(candidate.key) > sketch.frequency(victim.key) ? victim : candidate;
+            }
+            if (evicted == null) {
+                return;
+            }
+            data.remove(evicted.key, evicted);
+            unlink(evicted);
+            evictions.increment();
+        }
+    }
+
+    private void unlink(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW:
+                window.remove(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            case PROTECTED:
+                protectedQueue.remove(node);
+                break;
+            default:
+                break;
+        }
+        node.queue = REMOVED;
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * 命中率，没有读取过时为0
+     */
+    public double getHitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    /**
+     * 因容量不足淘汰的条目数
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * 发起的提前刷新次数
+     */
+    public long getRefreshes() {
+        return refreshes.sum();
+    }
+
+    /**
+     * 缓存条目，自身的布尔值表示是否正在刷新
+     */
+    private static final class Node<K, V> extends AtomicBoolean {
+        final K key;
+        volatile V value;
+        volatile long storedAt;
+        volatile long expiresAt;
+        volatile long ttlMs;
+        // 以下字段只在持有 lock 时访问
+        int queue;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key) {
+            this.key = key;
+        }
+
+        void update(V value, long now, long ttlMs) {
+            this.value = value;
+            this.storedAt = now;
+            this.ttlMs = ttlMs;
+            this.expiresAt = now + ttlMs;
+            set(false);
+        }
+    }
+
+    /**
+     * 双向链表，头部是最久未访问的条目
+     */
+    private static final class Queue<K, V> {
+        Node<K, V> head;
+        Node<K, V> tail;
+        int size;
+
+        void addLast(Node<K, V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            size++;
+        }
+
+        Node<K, V> pollFirst() {
+            Node<K, V> node = head;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+
+        void moveToLast(Node<K, V> node) {
+            if (tail != node) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+}
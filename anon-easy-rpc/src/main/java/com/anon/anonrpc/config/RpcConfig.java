@@ -8,12 +8,140 @@ public class RpcConfig {
     private static int timeoutMs = 3000;
     // 默认最大重试次数
     private static int maxRetries = 3;
-    // 默认重试间隔（毫秒）
-    private static int retryIntervalMs = 1000;
-    // 默认熔断阈值（连续失败次数）
+    // 重试基础退避时间（毫秒），第 n 次重试退避 retryIntervalMs * 2^(n-1) 并加随机抖动
+    private static int retryIntervalMs = 100;
+    // 默认熔断阈值（连续失败次数，与失败率判断任一满足即熔断）
     private static int circuitBreakerThreshold = 5;
     // 默认熔断恢复时间（毫秒）
     private static long circuitBreakerRecoveryMs = 5000;
+    // 注册中心快照间隔（毫秒）
+    private static long registrySnapshotIntervalMs = 60000;
+    // 注册中心日志每次组提交后是否fsync
+    private static boolean registryLogSyncEnabled = true;
+    // 注册中心集群反熵同步间隔（毫秒）
+    private static long registryGossipIntervalMs = 100;
+    // 注册中心集群单次同步最多携带的条目数
+    private static int registryGossipBatchSize = 20000;
+    // 注册中心集群中所有对端都已确认的注销条目（墓碑）至少保留多久才回收（毫秒）
+    private static long registryTombstoneGraceMs = 60000;
+    // 注册表分片数，0表示按CPU核数自动计算（向上取整为2的幂），需在首次使用注册中心前设置
+    private static int registryShardCount = 0;
+    // 是否逐条打印注册/注销日志
+    private static boolean registryVerboseLog = false;
+    // 本地可用区，路由时优先选择同可用区实例
+    private static String localZone = System.getProperty("rpc.zone", "");
+    // 同可用区实例数少于该值时溢出到全部可用区
+    private static int zoneMinInstances = 1;
+    // 健康检查：基础探测间隔、抖动状态下的最小间隔、稳定状态下的最大间隔
+    private static long healthCheckIntervalMs = 5000;
+    private static long healthCheckMinIntervalMs = 500;
+    private static long healthCheckMaxIntervalMs = 30000;
+    // 健康检查探测超时
+    private static long healthCheckTimeoutMs = 1000;
+    // 连续失败多少次判定为不健康
+    private static int healthCheckFailureThreshold = 2;
+    // 熔断器滑动窗口大小（最近多少次调用）
+    private static int circuitBreakerWindowSize = 20;
+    // 窗口内至少多少次调用后才按比例判断
+    private static int circuitBreakerMinCalls = 10;
+    // 失败率阈值（百分比）
+    private static int circuitBreakerFailureRateThreshold = 50;
+    // 慢调用判定耗时（毫秒）及慢调用率阈值（百分比）
+    private static long circuitBreakerSlowCallMs = 2000;
+    private static int circuitBreakerSlowCallRateThreshold = 100;
+    // 半开状态允许的探测调用数
+    private static int circuitBreakerHalfOpenPermits = 3;
+    // 重试退避上限（毫秒）
+    private static long retryMaxBackoffMs = 2000;
+    // 重试预算：每次请求存入的令牌（占请求数的百分比）及令牌桶容量
+    private static int retryBudgetPercent = 10;
+    private static int retryBudgetMaxTokens = 10;
+    // 是否对标注 @Idempotent 的方法发送对冲请求
+    private static boolean hedgeEnabled = true;
+    // 对冲触发延迟取该方法调用耗时的百分位（例如 95 表示 p95）
+    private static int hedgePercentile = 95;
+    // 对冲延迟下限（毫秒），以及统计样本不足时使用的默认延迟
+    private static long hedgeMinDelayMs = 5;
+    private static long hedgeDefaultDelayMs = 50;
+    // 对冲预算：每次请求存入的令牌（占请求数的百分比）及令牌桶容量
+    private static int hedgeBudgetPercent = 5;
+    private static int hedgeBudgetMaxTokens = 10;
+    // 是否启用客户端自适应并发限制（按服务URL）
+    private static boolean concurrencyLimitEnabled = true;
+    // 并发限制的初始值、下限和上限
+    private static int concurrencyLimitInitial = 20;
+    private static int concurrencyLimitMin = 2;
+    private static int concurrencyLimitMax = 1000;
+    // 超过并发限制时的排队长度（0表示直接失败）及最长排队时间（毫秒）
+    private static int concurrencyLimitQueueSize = 100;
+    private static long concurrencyLimitMaxWaitMs = 1000;
+    // 服务端是否按 RateLimiter.PROVIDER 的配置限流
+    private static boolean rateLimitEnabled = true;
+    // 客户端代理是否按 RateLimiter.CONSUMER 的配置限流
+    private static boolean clientRateLimitEnabled = false;
+    // 离群检测：统计周期，以及参与比较所需的每实例最少请求数和最少实例数
+    private static long outlierIntervalMs = 10000;
+    private static int outlierMinRequests = 20;
+    private static int outlierMinHosts = 3;
+    // 成功率低于同组平均值减去该倍数标准差时剔除
+    private static double outlierSuccessRateStdevFactor = 1.9;
+    // 平均耗时超过同组中位数的该倍数、且至少高出 outlierLatencyMinMs 毫秒时剔除
+    private static double outlierLatencyFactor = 3.0;
+    private static long outlierLatencyMinMs = 20;
+    // 同一服务类型最多剔除的实例比例（百分比，至少允许剔除1个）
+    private static int outlierMaxEjectionPercent = 30;
+    // 剔除时长：基础时长按连续被剔除次数指数增长，不超过上限
+    private static long outlierBaseEjectionMs = 30000;
+    private static long outlierMaxEjectionMs = 300000;
+    // 降级时返回最近一次成功结果（@StaleIfError）的缓存条数上限
+    private static int staleCacheMaxSize = 10000;
+    // 客户端结果缓存（@Cacheable）的最大条目数
+    private static int clientCacheMaxSize = 10000;
+    // 热点缓存条目存活时间用掉多少百分比后提前刷新（0表示不提前刷新）
+    private static int clientCacheRefreshAheadPercent = 80;
+    // 服务端是否合并相同参数的并发幂等调用（@Idempotent / @Cacheable）
+    private static boolean providerCoalescingEnabled = true;
+    // 服务端响应字节缓存（@Cacheable）的最大条目数
+    private static int providerCacheMaxSize = 10000;
+    // 服务实现已注册到本JVM的 LocalRegistry 时，代理是否直接调用而不经过网络
+    private static boolean localShortCircuitEnabled = true;
+    // 本JVM内直接调用时是否复制参数和返回值（防止调用双方共享可变对象）
+    private static boolean localDefensiveCopy = false;
+    // 客户端是否使用 HTTP/2（http:// 为明文 h2c，https:// 为 TLS + ALPN），多个并发调用复用一个连接；服务端始终同时接受 HTTP/1.1 和 HTTP/2
+    private static boolean http2Enabled = false;
+    // HTTP/2 单个连接上的最大并发流数（服务端通告给对端，客户端以此作为单连接复用上限）
+    private static int http2MaxConcurrentStreams = 256;
+    // HTTP/2 每个流的初始流控窗口（字节）
+    private static int http2InitialWindowSize = 1024 * 1024;
+    // HTTP/2 整个连接的流控窗口（字节）
+    private static int http2ConnectionWindowSize = 4 * 1024 * 1024;
+    // 服务端 TLS 证书和私钥（PEM），两者都配置时服务端启用 TLS 并通过 ALPN 协商 HTTP/2
+    private static String tlsCertPath = null;
+    private static String tlsKeyPath = null;
+    // 客户端额外信任的证书（PEM），为空时使用 JVM 默认信任库
+    private static String tlsTrustCertPath = null;
+    // 异步服务器部署的服务器 Verticle 数，共用监听端口，0 表示每个事件循环一个
+    private static int serverInstances = 0;
+    // 服务器监听队列长度（已完成握手、等待 accept 的连接数上限）
+    private static int serverAcceptBacklog = 1024;
+    // 启用原生传输（epoll）时服务器实例是否以 SO_REUSEPORT 各自监听同一端口，由内核分发连接；NIO 下不生效
+    private static boolean serverReusePort = true;
+    // 服务端是否合并同一连接上相近时间完成的响应写出，减少 flush 系统调用
+    private static boolean serverFlushCoalescingEnabled = true;
+    // 合并写出时最多累积多少次 flush 后立即写出，其余在事件循环空闲时一并写出
+    private static int serverMaxPendingFlushes = 64;
+    // 序列化请求和响应时是否使用池化的直接内存缓冲区（按大小分级，带线程本地缓存），写出完成后归还
+    private static boolean pooledBuffersEnabled = true;
+    // 服务方法抛出异常时，响应中附带截断堆栈的比例（百分比，0表示从不附带）；不记录堆栈的异常（如 StacklessException）不附带
+    private static int errorStackSamplePercent = 1;
+    // 附带的堆栈最多保留的帧数
+    private static int errorStackMaxFrames = 10;
+    // 调用方未确认的单向请求上限，超过后新的单向调用等待本次确认再返回（背压）
+    private static int clientOneWayMaxPending = 1000;
+    // 服务端已确认、尚未执行完的单向请求上限，超过后以 503 拒绝
+    private static int providerOneWayMaxPending = 10000;
+    // 半开状态的最长持续时间（毫秒），探测名额用完后超过该时间仍没有结论则重新熔断
+    private static long circuitBreakerHalfOpenTimeoutMs = 5000;
     
     // Getter和Setter方法
     public static int getTimeoutMs() {
@@ -55,4 +183,572 @@ public class RpcConfig {
     public static void setCircuitBreakerRecoveryMs(long circuitBreakerRecoveryMs) {
         RpcConfig.circuitBreakerRecoveryMs = circuitBreakerRecoveryMs;
     }
+    
+    public static long getRegistrySnapshotIntervalMs() {
+        return registrySnapshotIntervalMs;
+    }
+    
+    public static void setRegistrySnapshotIntervalMs(long registrySnapshotIntervalMs) {
+        RpcConfig.registrySnapshotIntervalMs = registrySnapshotIntervalMs;
+    }
+    
+    public static boolean isRegistryLogSyncEnabled() {
+        return registryLogSyncEnabled;
+    }
+    
+    public static void setRegistryLogSyncEnabled(boolean registryLogSyncEnabled) {
+        RpcConfig.registryLogSyncEnabled = registryLogSyncEnabled;
+    }
+    
+    public static long getRegistryGossipIntervalMs() {
+        return registryGossipIntervalMs;
+    }
+    
+    public static void setRegistryGossipIntervalMs(long registryGossipIntervalMs) {
+        RpcConfig.registryGossipIntervalMs = registryGossipIntervalMs;
+    }
+    
+    public static int getRegistryGossipBatchSize() {
+        return registryGossipBatchSize;
+    }
+    
+    public static void setRegistryGossipBatchSize(int registryGossipBatchSize) {
+        RpcConfig.registryGossipBatchSize = registryGossipBatchSize;
+    }
+    
+    public static long getRegistryTombstoneGraceMs() {
+        return registryTombstoneGraceMs;
+    }
+    
+    public static void setRegistryTombstoneGraceMs(long registryTombstoneGraceMs) {
+        RpcConfig.registryTombstoneGraceMs = registryTombstoneGraceMs;
+    }
+    
+    public static int getRegistryShardCount() {
+        return registryShardCount;
+    }
+    
+    public static void setRegistryShardCount(int registryShardCount) {
+        RpcConfig.registryShardCount = registryShardCount;
+    }
+    
+    public static boolean isRegistryVerboseLog() {
+        return registryVerboseLog;
+    }
+    
+    public static void setRegistryVerboseLog(boolean registryVerboseLog) {
+        RpcConfig.registryVerboseLog = registryVerboseLog;
+    }
+    
+    public static String getLocalZone() {
+        return localZone;
+    }
+    
+    public static void setLocalZone(String localZone) {
+        RpcConfig.localZone = localZone == null ? "" : localZone;
+    }
+    
+    public static int getZoneMinInstances() {
+        return zoneMinInstances;
+    }
+    
+    public static void setZoneMinInstances(int zoneMinInstances) {
+        RpcConfig.zoneMinInstances = zoneMinInstances;
+    }
+    
+    public static long getHealthCheckIntervalMs() {
+        return healthCheckIntervalMs;
+    }
+    
+    public static void setHealthCheckIntervalMs(long healthCheckIntervalMs) {
+        RpcConfig.healthCheckIntervalMs = healthCheckIntervalMs;
+    }
+    
+    public static long getHealthCheckMinIntervalMs() {
+        return healthCheckMinIntervalMs;
+    }
+    
+    public static void setHealthCheckMinIntervalMs(long healthCheckMinIntervalMs) {
+        RpcConfig.healthCheckMinIntervalMs = healthCheckMinIntervalMs;
+    }
+    
+    public static long getHealthCheckMaxIntervalMs() {
+        return healthCheckMaxIntervalMs;
+    }
+    
+    public static void setHealthCheckMaxIntervalMs(long healthCheckMaxIntervalMs) {
+        RpcConfig.healthCheckMaxIntervalMs = healthCheckMaxIntervalMs;
+    }
+    
+    public static long getHealthCheckTimeoutMs() {
+        return healthCheckTimeoutMs;
+    }
+    
+    public static void setHealthCheckTimeoutMs(long healthCheckTimeoutMs) {
+        RpcConfig.healthCheckTimeoutMs = healthCheckTimeoutMs;
+    }
+    
+    public static int getHealthCheckFailureThreshold() {
+        return healthCheckFailureThreshold;
+    }
+    
+    public static void setHealthCheckFailureThreshold(int healthCheckFailureThreshold) {
+        RpcConfig.healthCheckFailureThreshold = healthCheckFailureThreshold;
+    }
+    
+    public static int getCircuitBreakerWindowSize() {
+        return circuitBreakerWindowSize;
+    }
+    
+    public static void setCircuitBreakerWindowSize(int circuitBreakerWindowSize) {
+        RpcConfig.circuitBreakerWindowSize = circuitBreakerWindowSize;
+    }
+    
+    public static int getCircuitBreakerMinCalls() {
+        return circuitBreakerMinCalls;
+    }
+    
+    public static void setCircuitBreakerMinCalls(int circuitBreakerMinCalls) {
+        RpcConfig.circuitBreakerMinCalls = circuitBreakerMinCalls;
+    }
+    
+    public static int getCircuitBreakerFailureRateThreshold() {
+        return circuitBreakerFailureRateThreshold;
+    }
+    
+    public static void setCircuitBreakerFailureRateThreshold(int circuitBreakerFailureRateThreshold) {
+        RpcConfig.circuitBreakerFailureRateThreshold = circuitBreakerFailureRateThreshold;
+    }
+    
+    public static long getCircuitBreakerSlowCallMs() {
+        return circuitBreakerSlowCallMs;
+    }
+    
+    public static void setCircuitBreakerSlowCallMs(long circuitBreakerSlowCallMs) {
+        RpcConfig.circuitBreakerSlowCallMs = circuitBreakerSlowCallMs;
+    }
+    
+    public static int getCircuitBreakerSlowCallRateThreshold() {
+        return circuitBreakerSlowCallRateThreshold;
+    }
+    
+    public static void setCircuitBreakerSlowCallRateThreshold(int circuitBreakerSlowCallRateThreshold) {
+        RpcConfig.circuitBreakerSlowCallRateThreshold = circuitBreakerSlowCallRateThreshold;
+    }
+    
+    public static int getCircuitBreakerHalfOpenPermits() {
+        return circuitBreakerHalfOpenPermits;
+    }
+    
+    public static void setCircuitBreakerHalfOpenPermits(int circuitBreakerHalfOpenPermits) {
+        RpcConfig.circuitBreakerHalfOpenPermits = circuitBreakerHalfOpenPermits;
+    }
+    
+    public static long getRetryMaxBackoffMs() {
+        return retryMaxBackoffMs;
+    }
+    
+    public static void setRetryMaxBackoffMs(long retryMaxBackoffMs) {
+        RpcConfig.retryMaxBackoffMs = retryMaxBackoffMs;
+    }
+    
+    public static int getRetryBudgetPercent() {
+        return retryBudgetPercent;
+    }
+    
+    public static void setRetryBudgetPercent(int retryBudgetPercent) {
+        RpcConfig.retryBudgetPercent = retryBudgetPercent;
+    }
+    
+    public static int getRetryBudgetMaxTokens() {
+        return retryBudgetMaxTokens;
+    }
+    
+    public static void setRetryBudgetMaxTokens(int retryBudgetMaxTokens) {
+        RpcConfig.retryBudgetMaxTokens = retryBudgetMaxTokens;
+    }
+    
+    public static boolean isHedgeEnabled() {
+        return hedgeEnabled;
+    }
+    
+    public static void setHedgeEnabled(boolean hedgeEnabled) {
+        RpcConfig.hedgeEnabled = hedgeEnabled;
+    }
+    
+    public static int getHedgePercentile() {
+        return hedgePercentile;
+    }
+    
+    public static void setHedgePercentile(int hedgePercentile) {
+        RpcConfig.hedgePercentile = hedgePercentile;
+    }
+    
+    public static long getHedgeMinDelayMs() {
+        return hedgeMinDelayMs;
+    }
+    
+    public static void setHedgeMinDelayMs(long hedgeMinDelayMs) {
+        RpcConfig.hedgeMinDelayMs = hedgeMinDelayMs;
+    }
+    
+    public static long getHedgeDefaultDelayMs() {
+        return hedgeDefaultDelayMs;
+    }
+    
+    public static void setHedgeDefaultDelayMs(long hedgeDefaultDelayMs) {
+        RpcConfig.hedgeDefaultDelayMs = hedgeDefaultDelayMs;
+    }
+    
+    public static int getHedgeBudgetPercent() {
+        return hedgeBudgetPercent;
+    }
+    
+    public static void setHedgeBudgetPercent(int hedgeBudgetPercent) {
+        RpcConfig.hedgeBudgetPercent = hedgeBudgetPercent;
+    }
+    
+    public static int getHedgeBudgetMaxTokens() {
+        return hedgeBudgetMaxTokens;
+    }
+    
+    public static void setHedgeBudgetMaxTokens(int hedgeBudgetMaxTokens) {
+        RpcConfig.hedgeBudgetMaxTokens = hedgeBudgetMaxTokens;
+    }
+    
+    public static boolean isConcurrencyLimitEnabled() {
+        return concurrencyLimitEnabled;
+    }
+    
+    public static void setConcurrencyLimitEnabled(boolean concurrencyLimitEnabled) {
+        RpcConfig.concurrencyLimitEnabled = concurrencyLimitEnabled;
+    }
+    
+    public static int getConcurrencyLimitInitial() {
+        return concurrencyLimitInitial;
+    }
+    
+    public static void setConcurrencyLimitInitial(int concurrencyLimitInitial) {
+        RpcConfig.concurrencyLimitInitial = concurrencyLimitInitial;
+    }
+    
+    public static int getConcurrencyLimitMin() {
+        return concurrencyLimitMin;
+    }
+    
+    public static void setConcurrencyLimitMin(int concurrencyLimitMin) {
+        RpcConfig.concurrencyLimitMin = concurrencyLimitMin;
+    }
+    
+    public static int getConcurrencyLimitMax() {
+        return concurrencyLimitMax;
+    }
+    
+    public static void setConcurrencyLimitMax(int concurrencyLimitMax) {
+        RpcConfig.concurrencyLimitMax = concurrencyLimitMax;
+    }
+    
+    public static int getConcurrencyLimitQueueSize() {
+        return concurrencyLimitQueueSize;
+    }
+    
+    public static void setConcurrencyLimitQueueSize(int concurrencyLimitQueueSize) {
+        RpcConfig.concurrencyLimitQueueSize = concurrencyLimitQueueSize;
+    }
+    
+    public static long getConcurrencyLimitMaxWaitMs() {
+        return concurrencyLimitMaxWaitMs;
+    }
+    
+    public static void setConcurrencyLimitMaxWaitMs(long concurrencyLimitMaxWaitMs) {
+        RpcConfig.concurrencyLimitMaxWaitMs = concurrencyLimitMaxWaitMs;
+    }
+    
+    public static boolean isRateLimitEnabled() {
+        return rateLimitEnabled;
+    }
+    
+    public static void setRateLimitEnabled(boolean rateLimitEnabled) {
+        RpcConfig.rateLimitEnabled = rateLimitEnabled;
+    }
+    
+    public static boolean isClientRateLimitEnabled() {
+        return clientRateLimitEnabled;
+    }
+    
+    public static void setClientRateLimitEnabled(boolean clientRateLimitEnabled) {
+        RpcConfig.clientRateLimitEnabled = clientRateLimitEnabled;
+    }
+    
+    public static long getOutlierIntervalMs() {
+        return outlierIntervalMs;
+    }
+    
+    public static void setOutlierIntervalMs(long outlierIntervalMs) {
+        RpcConfig.outlierIntervalMs = outlierIntervalMs;
+    }
+    
+    public static int getOutlierMinRequests() {
+        return outlierMinRequests;
+    }
+    
+    public static void setOutlierMinRequests(int outlierMinRequests) {
+        RpcConfig.outlierMinRequests = outlierMinRequests;
+    }
+    
+    public static int getOutlierMinHosts() {
+        return outlierMinHosts;
+    }
+    
+    public static void setOutlierMinHosts(int outlierMinHosts) {
+        RpcConfig.outlierMinHosts = outlierMinHosts;
+    }
+    
+    public static double getOutlierSuccessRateStdevFactor() {
+        return outlierSuccessRateStdevFactor;
+    }
+    
+    public static void setOutlierSuccessRateStdevFactor(double outlierSuccessRateStdevFactor) {
+        RpcConfig.outlierSuccessRateStdevFactor = outlierSuccessRateStdevFactor;
+    }
+    
+    public static double getOutlierLatencyFactor() {
+        return outlierLatencyFactor;
+    }
+    
+    public static void setOutlierLatencyFactor(double outlierLatencyFactor) {
+        RpcConfig.outlierLatencyFactor = outlierLatencyFactor;
+    }
+    
+    public static long getOutlierLatencyMinMs() {
+        return outlierLatencyMinMs;
+    }
+    
+    public static void setOutlierLatencyMinMs(long outlierLatencyMinMs) {
+        RpcConfig.outlierLatencyMinMs = outlierLatencyMinMs;
+    }
+    
+    public static int getOutlierMaxEjectionPercent() {
+        return outlierMaxEjectionPercent;
+    }
+    
+    public static void setOutlierMaxEjectionPercent(int outlierMaxEjectionPercent) {
+        RpcConfig.outlierMaxEjectionPercent = outlierMaxEjectionPercent;
+    }
+    
+    public static long getOutlierBaseEjectionMs() {
+        return outlierBaseEjectionMs;
+    }
+    
+    public static void setOutlierBaseEjectionMs(long outlierBaseEjectionMs) {
+        RpcConfig.outlierBaseEjectionMs = outlierBaseEjectionMs;
+    }
+    
+    public static long getOutlierMaxEjectionMs() {
+        return outlierMaxEjectionMs;
+    }
+    
+    public static void setOutlierMaxEjectionMs(long outlierMaxEjectionMs) {
+        RpcConfig.outlierMaxEjectionMs = outlierMaxEjectionMs;
+    }
+    
+    public static int getStaleCacheMaxSize() {
+        return staleCacheMaxSize;
+    }
+    
+    public static void setStaleCacheMaxSize(int staleCacheMaxSize) {
+        RpcConfig.staleCacheMaxSize = staleCacheMaxSize;
+    }
+    
+    public static int getClientCacheMaxSize() {
+        return clientCacheMaxSize;
+    }
+    
+    public static void setClientCacheMaxSize(int clientCacheMaxSize) {
+        RpcConfig.clientCacheMaxSize = clientCacheMaxSize;
+    }
+    
+    public static int getClientCacheRefreshAheadPercent() {
+        return clientCacheRefreshAheadPercent;
+    }
+    
+    public static void setClientCacheRefreshAheadPercent(int clientCacheRefreshAheadPercent) {
+        RpcConfig.clientCacheRefreshAheadPercent = clientCacheRefreshAheadPercent;
+    }
+    
+    public static boolean isProviderCoalescingEnabled() {
+        return providerCoalescingEnabled;
+    }
+    
+    public static void setProviderCoalescingEnabled(boolean providerCoalescingEnabled) {
+        RpcConfig.providerCoalescingEnabled = providerCoalescingEnabled;
+    }
+    
+    public static int getProviderCacheMaxSize() {
+        return providerCacheMaxSize;
+    }
+    
+    public static void setProviderCacheMaxSize(int providerCacheMaxSize) {
+        RpcConfig.providerCacheMaxSize = providerCacheMaxSize;
+    }
+    
+    public static boolean isLocalShortCircuitEnabled() {
+        return localShortCircuitEnabled;
+    }
+    
+    public static void setLocalShortCircuitEnabled(boolean localShortCircuitEnabled) {
+        RpcConfig.localShortCircuitEnabled = localShortCircuitEnabled;
+    }
+    
+    public static boolean isLocalDefensiveCopy() {
+        return localDefensiveCopy;
+    }
+    
+    public static void setLocalDefensiveCopy(boolean localDefensiveCopy) {
+        RpcConfig.localDefensiveCopy = localDefensiveCopy;
+    }
+    
+    public static boolean isHttp2Enabled() {
+        return http2Enabled;
+    }
+    
+    public static void setHttp2Enabled(boolean http2Enabled) {
+        RpcConfig.http2Enabled = http2Enabled;
+    }
+    
+    public static int getHttp2MaxConcurrentStreams() {
+        return http2MaxConcurrentStreams;
+    }
+    
+    public static void setHttp2MaxConcurrentStreams(int http2MaxConcurrentStreams) {
+        RpcConfig.http2MaxConcurrentStreams = http2MaxConcurrentStreams;
+    }
+    
+    public static int getHttp2InitialWindowSize() {
+        return http2InitialWindowSize;
+    }
+    
+    public static void setHttp2InitialWindowSize(int http2InitialWindowSize) {
+        RpcConfig.http2InitialWindowSize = http2InitialWindowSize;
+    }
+    
+    public static int getHttp2ConnectionWindowSize() {
+        return http2ConnectionWindowSize;
+    }
+    
+    public static void setHttp2ConnectionWindowSize(int http2ConnectionWindowSize) {
+        RpcConfig.http2ConnectionWindowSize = http2ConnectionWindowSize;
+    }
+    
+    public static String getTlsCertPath() {
+        return tlsCertPath;
+    }
+    
+    public static void setTlsCertPath(String tlsCertPath) {
+        RpcConfig.tlsCertPath = tlsCertPath;
+    }
+    
+    public static String getTlsKeyPath() {
+        return tlsKeyPath;
+    }
+    
+    public static void setTlsKeyPath(String tlsKeyPath) {
+        RpcConfig.tlsKeyPath = tlsKeyPath;
+    }
+    
+    public static String getTlsTrustCertPath() {
+        return tlsTrustCertPath;
+    }
+    
+    public static void setTlsTrustCertPath(String tlsTrustCertPath) {
+        RpcConfig.tlsTrustCertPath = tlsTrustCertPath;
+    }
+    
+    public static int getServerInstances() {
+        return serverInstances;
+    }
+    
+    public static void setServerInstances(int serverInstances) {
+        RpcConfig.serverInstances = serverInstances;
+    }
+    
+    public static int getServerAcceptBacklog() {
+        return serverAcceptBacklog;
+    }
+    
+    public static void setServerAcceptBacklog(int serverAcceptBacklog) {
+        RpcConfig.serverAcceptBacklog = serverAcceptBacklog;
+    }
+    
+    public static boolean isServerReusePort() {
+        return serverReusePort;
+    }
+    
+    public static void setServerReusePort(boolean serverReusePort) {
+        RpcConfig.serverReusePort = serverReusePort;
+    }
+    
+    public static boolean isServerFlushCoalescingEnabled() {
+        return serverFlushCoalescingEnabled;
+    }
+    
+    public static void setServerFlushCoalescingEnabled(boolean serverFlushCoalescingEnabled) {
+        RpcConfig.serverFlushCoalescingEnabled = serverFlushCoalescingEnabled;
+    }
+    
+    public static int getServerMaxPendingFlushes() {
+        return serverMaxPendingFlushes;
+    }
+    
+    public static void setServerMaxPendingFlushes(int serverMaxPendingFlushes) {
+        RpcConfig.serverMaxPendingFlushes = serverMaxPendingFlushes;
+    }
+    
+    public static boolean isPooledBuffersEnabled() {
+        return pooledBuffersEnabled;
+    }
+    
+    public static void setPooledBuffersEnabled(boolean pooledBuffersEnabled) {
+        RpcConfig.pooledBuffersEnabled = pooledBuffersEnabled;
+    }
+    
+    public static int getErrorStackSamplePercent() {
+        return errorStackSamplePercent;
+    }
+    
+    public static void setErrorStackSamplePercent(int errorStackSamplePercent) {
+        RpcConfig.errorStackSamplePercent = errorStackSamplePercent;
+    }
+    
+    public static int getErrorStackMaxFrames() {
+        return errorStackMaxFrames;
+    }
+    
+    public static void setErrorStackMaxFrames(int errorStackMaxFrames) {
+        RpcConfig.errorStackMaxFrames = errorStackMaxFrames;
+    }
+    
+    public static int getClientOneWayMaxPending() {
+        return clientOneWayMaxPending;
+    }
+    
+    public static void setClientOneWayMaxPending(int clientOneWayMaxPending) {
+        RpcConfig.clientOneWayMaxPending = clientOneWayMaxPending;
+    }
+    
+    public static int getProviderOneWayMaxPending() {
+        return providerOneWayMaxPending;
+    }
+    
+    public static void setProviderOneWayMaxPending(int providerOneWayMaxPending) {
+        RpcConfig.providerOneWayMaxPending = providerOneWayMaxPending;
+    }
+    
+    public static long getCircuitBreakerHalfOpenTimeoutMs() {
+        return circuitBreakerHalfOpenTimeoutMs;
+    }
+    
+    public static void setCircuitBreakerHalfOpenTimeoutMs(long circuitBreakerHalfOpenTimeoutMs) {
+        RpcConfig.circuitBreakerHalfOpenTimeoutMs = circuitBreakerHalfOpenTimeoutMs;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.anon.anonrpc.context;
+
+/**
+ * 调用已超过截止时间，请求没有发出
+ * 不记录堆栈：截止时间耗尽通常发生在过载时，此时不应再为异常付出额外开销
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String message) {
+        super(message, null, false, false);
+    }
+}
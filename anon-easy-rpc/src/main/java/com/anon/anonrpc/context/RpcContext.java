@@ -0,0 +1,118 @@
+package com.anon.anonrpc.context;
+
+/**
+ * RPC 调用上下文 - 目前保存本次调用的截止时间
+ * 服务端在执行服务方法期间把请求携带的截止时间放在当前线程上，服务方法可以查询剩余时间；
+ * 在服务方法中再发起的RPC调用会自动把超时时间收紧到剩余时间，并继续向下游传递。
+ * 上下文只绑定在执行服务方法的线程上，服务方法自行切换线程时需要手动 attach。
+ * 调用方还可以用 runOneWay 让其中发起的 void 方法调用以单向方式发送
+ */
+public final class RpcContext {
+
+    private static final ThreadLocal<RpcContext> CURRENT = new ThreadLocal<>();
+
+    // 当前线程上发起的调用是否以单向方式发送
+    private static final ThreadLocal<Boolean> ONE_WAY = new ThreadLocal<>();
+
+    // 截止时间（System.nanoTime 时间基准）
+    private final long deadlineNanos;
+
+    private RpcContext(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * 以截止时间创建上下文
+     * @param deadlineNanos System.nanoTime 时间基准的截止时间
+     */
+    public static RpcContext withDeadline(long deadlineNanos) {
+        return new RpcContext(deadlineNanos);
+    }
+
+    /**
+     * 获取当前线程的上下文，不在RPC调用中时返回null
+     */
+    public static RpcContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 把上下文绑定到当前线程
+     * @return 之前绑定的上下文，结束时传给 detach 恢复
+     */
+    public static RpcContext attach(RpcContext context) {
+        RpcContext previous = CURRENT.get();
+        CURRENT.set(context);
+        return previous;
+    }
+
+    /**
+     * 恢复之前的上下文
+     */
+    public static void detach(RpcContext previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * 当前调用的剩余时间（毫秒），不在RPC调用中时返回 Long.MAX_VALUE
+     */
+    public static long remainingMillis() {
+        RpcContext context = CURRENT.get();
+        return context == null ? Long.MAX_VALUE : context.getRemainingMillis();
+    }
+
+    /**
+     * 计算发起一次新调用的截止时间：本地超时与当前上下文剩余时间中较早的一个
+     * @param timeoutMs 本地超时时间
+     * @return System.nanoTime 时间基准的截止时间
+     */
+    public static long deadlineNanos(long timeoutMs) {
+        long deadline = System.nanoTime() + timeoutMs * 1_000_000L;
+        RpcContext context = CURRENT.get();
+        return context != null && context.deadlineNanos - deadline < 0 ? context.deadlineNanos : deadline;
+    }
+
+    /**
+     * 执行 call，其中在当前线程上发起的 void 方法调用以单向方式发送（与标注 @OneWay 相同），
+     * 有返回值的方法不受影响
+     */
+    public static void runOneWay(Runnable call) {
+        Boolean previous = ONE_WAY.get();
+        ONE_WAY.set(Boolean.TRUE);
+        try {
+            call.run();
+        } finally {
+            if (previous == null) {
+                ONE_WAY.remove();
+            } else {
+                ONE_WAY.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 当前线程是否在 runOneWay 中
+     */
+    public static boolean isOneWayRequested() {
+        return ONE_WAY.get() != null;
+    }
+
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /**
+     * 剩余时间（毫秒），已过期时为0或负数
+     */
+    public long getRemainingMillis() {
+        return (deadlineNanos - System.nanoTime()) / 1_000_000L;
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+}
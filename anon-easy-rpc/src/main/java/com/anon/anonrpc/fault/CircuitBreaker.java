@@ -1,12 +1,20 @@
 package com.anon.anonrpc.fault;
 
+import com.anon.anonrpc.config.RpcConfig;
+
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 熔断器 - 用于防止对故障服务持续发起请求
+ * 每个服务URL一个熔断器，状态保存在一个不可变的状态对象中，通过CAS整体替换；
+ * CLOSED 状态下用环形缓冲区记录最近 N 次调用结果，按失败率和慢调用率（以及连续失败次数）判断是否熔断，
+ * HALF_OPEN 状态只放行有限次数的探测调用，拿到名额但没有发出的调用通过 releasePermit 归还名额；
+ * 名额用完后超过 circuitBreakerHalfOpenTimeoutMs 仍没有结论时重新熔断，半开状态不会因丢失的结果一直拒绝调用。
+ * 记录调用结果的路径不分配对象
  */
 public class CircuitBreaker {
     // 熔断器状态
@@ -15,87 +23,253 @@ public class CircuitBreaker {
         OPEN,        // 打开状态 - 服务被熔断
         HALF_OPEN    // 半开状态 - 尝试恢复服务
     }
-    
-    // 每个服务URL的熔断器状态
-    private static final Map<String, State> stateMap = new ConcurrentHashMap<>();
-    // 失败计数器
-    private static final Map<String, AtomicInteger> failureCountMap = new ConcurrentHashMap<>();
-    // 上次熔断时间
-    private static final Map<String, AtomicLong> lastBreakTimeMap = new ConcurrentHashMap<>();
-    
-    // 熔断阈值 - 连续失败次数
-    private static final int FAILURE_THRESHOLD = 5;
-    // 恢复时间 - 熔断后多久尝试恢复，单位毫秒
-    private static final long RECOVERY_TIMEOUT_MS = 5000;
-    
+
+    // 每个服务URL的熔断器
+    private static final Map<String, Breaker> BREAKERS = new ConcurrentHashMap<>();
+
     /**
      * 判断服务是否可用（未熔断）
+     * 半开状态下只有拿到探测名额的调用返回true
      * @param serviceUrl 服务URL
      * @return 是否可用
      */
     public static boolean isAvailable(String serviceUrl) {
-        State state = stateMap.getOrDefault(serviceUrl, State.CLOSED);
-        
-        if (state == State.CLOSED) {
-            return true; // 正常状态，可以访问
-        } else if (state == State.OPEN) {
-            // 熔断状态，检查是否可以尝试恢复
-            long lastBreakTime = lastBreakTimeMap.getOrDefault(serviceUrl, new AtomicLong(0)).get();
-            long now = System.currentTimeMillis();
-            
-            if (now - lastBreakTime > RECOVERY_TIMEOUT_MS) {
-                // 进入半开状态
-                stateMap.put(serviceUrl, State.HALF_OPEN);
-                System.out.println("服务 " + serviceUrl + " 进入半开状态，尝试恢复");
-                return true; // 允许一次尝试
+        Breaker breaker = breaker(serviceUrl);
+        for (;;) {
+            Status status = breaker.status.get();
+            switch (status.state) {
+                case CLOSED:
+                    return true; // 正常状态，可以访问
+                case OPEN:
+                    // 熔断状态，检查是否可以尝试恢复
+                    if (System.currentTimeMillis() - status.openedAt < RpcConfig.getCircuitBreakerRecoveryMs()) {
+                        return false; // 仍在熔断期间
+                    }
+                    // 只有一个线程能完成切换，其他线程重新读取状态后竞争探测名额
+                    if (breaker.status.compareAndSet(status, Status.halfOpen())) {
+                        System.out.println("服务 " + serviceUrl + " 进入半开状态，尝试恢复");
+                    }
+                    continue;
+                default: // HALF_OPEN
+                    if (status.tryAcquirePermit()) {
+                        return true;
+                    }
+                    // 名额已用完但迟迟没有结论（例如拿到名额的调用没有记录结果），重新熔断，恢复时间后再次探测
+                    if (System.currentTimeMillis() - status.openedAt >= RpcConfig.getCircuitBreakerHalfOpenTimeoutMs()
+                            && breaker.status.compareAndSet(status, Status.open())) {
+                        System.out.println("服务 " + serviceUrl + " 半开探测超时，重新熔断");
+                    }
+                    return false;
             }
-            return false; // 仍在熔断期间
-        } else { // HALF_OPEN
-            return true; // 半开状态允许尝试
         }
     }
-    
+
+    /**
+     * 归还 isAvailable 给出的半开探测名额，用于拿到名额后没有发出请求、也不记录结果的调用
+     * （被本地并发限制拒绝、截止时间已过、对冲落败被取消）；其他状态下什么也不做
+     * @param serviceUrl 服务URL
+     */
+    public static void releasePermit(String serviceUrl) {
+        Breaker breaker = BREAKERS.get(serviceUrl);
+        if (breaker == null) {
+            return;
+        }
+        Status status = breaker.status.get();
+        if (status.state == State.HALF_OPEN) {
+            status.releasePermit();
+        }
+    }
+
     /**
      * 记录访问成功
      * @param serviceUrl 服务URL
      */
     public static void recordSuccess(String serviceUrl) {
-        State currentState = stateMap.getOrDefault(serviceUrl, State.CLOSED);
-        
-        if (currentState == State.HALF_OPEN) {
-            // 恢复服务
-            stateMap.put(serviceUrl, State.CLOSED);
-            failureCountMap.put(serviceUrl, new AtomicInteger(0));
-            System.out.println("服务 " + serviceUrl + " 已恢复正常");
-        } else if (currentState == State.CLOSED) {
-            // 重置失败计数
-            failureCountMap.put(serviceUrl, new AtomicInteger(0));
-        }
+        recordSuccess(serviceUrl, 0);
+    }
+
+    /**
+     * 记录访问成功
+     * @param serviceUrl 服务URL
+     * @param durationMs 调用耗时，超过 circuitBreakerSlowCallMs 计为慢调用
+     */
+    public static void recordSuccess(String serviceUrl, long durationMs) {
+        boolean slow = durationMs >= RpcConfig.getCircuitBreakerSlowCallMs();
+        record(serviceUrl, slow ? Window.SLOW : Window.SUCCESS);
     }
-    
+
     /**
      * 记录访问失败
      * @param serviceUrl 服务URL
      */
     public static void recordFailure(String serviceUrl) {
-        State currentState = stateMap.getOrDefault(serviceUrl, State.CLOSED);
-        
-        if (currentState == State.HALF_OPEN) {
-            // 半开状态下失败，重新熔断
-            stateMap.put(serviceUrl, State.OPEN);
-            lastBreakTimeMap.put(serviceUrl, new AtomicLong(System.currentTimeMillis()));
-            System.out.println("服务 " + serviceUrl + " 恢复失败，重新熔断");
-        } else if (currentState == State.CLOSED) {
-            // 增加失败计数
-            AtomicInteger count = failureCountMap.computeIfAbsent(serviceUrl, k -> new AtomicInteger(0));
-            int failureCount = count.incrementAndGet();
-            
-            // 判断是否需要熔断
-            if (failureCount >= FAILURE_THRESHOLD) {
-                stateMap.put(serviceUrl, State.OPEN);
-                lastBreakTimeMap.put(serviceUrl, new AtomicLong(System.currentTimeMillis()));
-                System.out.println("服务 " + serviceUrl + " 已熔断，连续失败次数: " + failureCount);
+        record(serviceUrl, Window.FAILURE);
+    }
+
+    /**
+     * 获取当前状态
+     */
+    public static State getState(String serviceUrl) {
+        Breaker breaker = BREAKERS.get(serviceUrl);
+        return breaker == null ? State.CLOSED : breaker.status.get().state;
+    }
+
+    private static Breaker breaker(String serviceUrl) {
+        Breaker breaker = BREAKERS.get(serviceUrl);
+        return breaker != null ? breaker : BREAKERS.computeIfAbsent(serviceUrl, k -> new Breaker());
+    }
+
+    private static void record(String serviceUrl, int outcome) {
+        Breaker breaker = breaker(serviceUrl);
+        Status status = breaker.status.get();
+        if (status.state == State.OPEN) {
+            return; // 熔断期间的迟到结果不计入
+        }
+        Window window = status.window;
+        window.record(outcome);
+
+        if (status.state == State.CLOSED) {
+            // 成功路径上只有在失败率可能超标时才做判断
+            if (outcome == Window.SUCCESS && window.failures.get() == 0 && window.slowCalls.get() == 0) {
+                return;
+            }
+            int calls = window.calls();
+            boolean consecutive = window.consecutiveFailures.get() >= RpcConfig.getCircuitBreakerThreshold();
+            if ((consecutive || (calls >= RpcConfig.getCircuitBreakerMinCalls() && window.exceeded(calls)))
+                    && breaker.status.compareAndSet(status, Status.open())) {
+                System.out.println("服务 " + serviceUrl + " 已熔断，最近 " + calls + " 次调用中失败 "
+                        + window.failures.get() + " 次、慢调用 " + window.slowCalls.get() + " 次");
+            }
+        } else {
+            // 半开：所有探测调用都有结果后再判断
+            int calls = window.calls();
+            if (calls < RpcConfig.getCircuitBreakerHalfOpenPermits()) {
+                return;
+            }
+            if (window.exceeded(calls)) {
+                if (breaker.status.compareAndSet(status, Status.open())) {
+                    System.out.println("服务 " + serviceUrl + " 恢复失败，重新熔断");
+                }
+            } else if (breaker.status.compareAndSet(status, Status.closed())) {
+                System.out.println("服务 " + serviceUrl + " 已恢复正常");
+            }
+        }
+    }
+
+    /**
+     * 单个服务URL的熔断器，状态对象只在状态切换时整体替换
+     */
+    private static final class Breaker {
+        final AtomicReference<Status> status = new AtomicReference<>(Status.closed());
+    }
+
+    /**
+     * 不可变的状态对象：状态、熔断（或进入半开）的时间、本状态下的统计窗口及半开探测名额
+     */
+    private static final class Status {
+        final State state;
+        final long openedAt;
+        final Window window;
+        final AtomicInteger permits;
+
+        private Status(State state, long openedAt, Window window, AtomicInteger permits) {
+            this.state = state;
+            this.openedAt = openedAt;
+            this.window = window;
+            this.permits = permits;
+        }
+
+        static Status closed() {
+            return new Status(State.CLOSED, 0, new Window(RpcConfig.getCircuitBreakerWindowSize()), null);
+        }
+
+        static Status open() {
+            return new Status(State.OPEN, System.currentTimeMillis(), null, null);
+        }
+
+        static Status halfOpen() {
+            int permits = RpcConfig.getCircuitBreakerHalfOpenPermits();
+            return new Status(State.HALF_OPEN, System.currentTimeMillis(), new Window(permits), new AtomicInteger(permits));
+        }
+
+        boolean tryAcquirePermit() {
+            for (;;) {
+                int current = permits.get();
+                if (current <= 0) {
+                    return false;
+                }
+                if (permits.compareAndSet(current, current - 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void releasePermit() {
+            // 名额总数不超过窗口中还没有结果的槽位数
+            int max = window.slots.length() - window.calls();
+            for (;;) {
+                int current = permits.get();
+                if (current >= max) {
+                    return;
+                }
+                if (permits.compareAndSet(current, current + 1)) {
+                    return;
+                }
             }
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 基于调用次数的滑动窗口：环形缓冲区保存最近 size 次调用的结果，
+     * 新结果覆盖最旧的槽位，并根据被覆盖的旧值增量维护失败数和慢调用数
+     */
+    private static final class Window {
+        static final int EMPTY = 0;
+        static final int SUCCESS = 1;
+        static final int FAILURE = 2;
+        static final int SLOW = 3;
+
+        final AtomicIntegerArray slots;
+        final AtomicInteger cursor = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicInteger slowCalls = new AtomicInteger();
+        final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+        Window(int size) {
+            slots = new AtomicIntegerArray(Math.max(1, size));
+        }
+
+        void record(int outcome) {
+            int index = Math.floorMod(cursor.getAndIncrement(), slots.length());
+            int previous = slots.getAndSet(index, outcome);
+            if (previous != outcome) {
+                adjust(previous, -1);
+                adjust(outcome, 1);
+            }
+            if (outcome == FAILURE) {
+                consecutiveFailures.incrementAndGet();
+            } else if (consecutiveFailures.get() != 0) {
+                consecutiveFailures.set(0);
+            }
+        }
+
+        private void adjust(int outcome, int delta) {
+            if (outcome == FAILURE) {
+                failures.addAndGet(delta);
+            } else if (outcome == SLOW) {
+                slowCalls.addAndGet(delta);
+            }
+        }
+
+        int calls() {
+            int recorded = cursor.get();
+            // 计数器溢出后视为窗口已满
+            return recorded < 0 || recorded > slots.length() ? slots.length() : recorded;
+        }
+
+        boolean exceeded(int calls) {
+            return failures.get() * 100L >= (long) RpcConfig.getCircuitBreakerFailureRateThreshold() * calls
+                    || slowCalls.get() * 100L >= (long) RpcConfig.getCircuitBreakerSlowCallRateThreshold() * calls;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.anon.anonrpc.fault;
+
+/**
+ * 超过客户端并发限制（排队已满或排队超时）时抛出
+ * 请求没有发出，不计入熔断统计
+ */
+public class ConcurrencyLimitExceededException extends RuntimeException {
+
+    public ConcurrencyLimitExceededException(String message) {
+        super(message);
+    }
+}
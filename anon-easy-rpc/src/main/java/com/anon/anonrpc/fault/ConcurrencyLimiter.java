@@ -0,0 +1,227 @@
+package com.anon.anonrpc.fault;
+
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.utils.SharedVertx;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 客户端自适应并发限制 - 每个服务URL同时在途的请求数不超过一个动态限制
+ * 限制值按梯度算法根据实测RTT调整：RTT接近无负载RTT（近期最小RTT）时逐步放大，RTT明显变长（服务端开始排队）时按比例收缩，
+ * 请求失败时乘性减小。超过限制的请求进入有界队列等待，队列已满或等待超时则快速失败，
+ * 这样不需要手工调整连接池和超时，也能在服务端过载之前减少压力
+ */
+public class ConcurrencyLimiter {
+    // 最小RTT每个样本放大的比例，约600个样本后遗忘到原来的e倍，使基线能跟上服务端的变化
+    private static final double MIN_RTT_DECAY = 1.0 + 1.0 / 600;
+    // RTT 超过无负载RTT的多少倍才开始收缩
+    private static final double RTT_TOLERANCE = 1.5;
+    // 新限制值的平滑系数
+    private static final double SMOOTHING = 0.2;
+    // 请求失败时的收缩比例
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private static final Map<String, Limiter> LIMITERS = new ConcurrentHashMap<>();
+
+    /**
+     * 在并发限制内执行一次调用
+     * @param serviceUrl 服务URL
+     * @param attempt 发起调用，拿到名额后才执行
+     * @return 调用结果；排队已满或等待超时以 ConcurrencyLimitExceededException 结束
+     */
+    public static <T> CompletableFuture<T> execute(String serviceUrl, Function<String, CompletableFuture<T>> attempt) {
+        if (!RpcConfig.isConcurrencyLimitEnabled()) {
+            return attempt.apply(serviceUrl);
+        }
+        Limiter limiter = LIMITERS.get(serviceUrl);
+        if (limiter == null) {
+            limiter = LIMITERS.computeIfAbsent(serviceUrl, k -> new Limiter());
+        }
+        if (limiter.tryAcquire()) {
+            return limiter.run(serviceUrl, attempt);
+        }
+        return limiter.enqueue(serviceUrl, attempt);
+    }
+
+    /**
+     * 获取当前并发限制，未发起过调用时返回初始值
+     */
+    public static int getLimit(String serviceUrl) {
+        Limiter limiter = LIMITERS.get(serviceUrl);
+        return limiter == null ? RpcConfig.getConcurrencyLimitInitial() : limiter.limit;
+    }
+
+    /**
+     * 获取当前在途请求数
+     */
+    public static int getInFlight(String serviceUrl) {
+        Limiter limiter = LIMITERS.get(serviceUrl);
+        return limiter == null ? 0 : limiter.inFlight.get();
+    }
+
+    /**
+     * 单个服务URL的限制器
+     */
+    private static final class Limiter {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+        final AtomicInteger queued = new AtomicInteger();
+        // 限制值的整数部分，获取名额时只读这个字段
+        volatile int limit = RpcConfig.getConcurrencyLimitInitial();
+        // 以下字段只在 synchronized 中访问
+        double estimatedLimit = limit;
+        double minRttNanos;
+
+        boolean tryAcquire() {
+            for (;;) {
+                int current = inFlight.get();
+                if (current >= limit) {
+                    return false;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * 已拿到名额，发起调用并在结束时归还
+         */
+        <T> CompletableFuture<T> run(String serviceUrl, Function<String, CompletableFuture<T>> attempt) {
+            long start = System.nanoTime();
+            int inFlightAtStart = inFlight.get();
+            CompletableFuture<T> future;
+            try {
+                future = attempt.apply(serviceUrl);
+            } catch (Throwable e) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+            }
+            future.whenComplete((value, error) -> release(start, inFlightAtStart, error));
+            return future;
+        }
+
+        <T> CompletableFuture<T> enqueue(String serviceUrl, Function<String, CompletableFuture<T>> attempt) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            int queueSize = RpcConfig.getConcurrencyLimitQueueSize();
+            if (queued.incrementAndGet() > queueSize) {
+                queued.decrementAndGet();
+                result.completeExceptionally(new ConcurrencyLimitExceededException(
+                        "服务 " + serviceUrl + " 超过并发限制 " + limit + "，排队已满"));
+                return result;
+            }
+            Waiter waiter = new Waiter(() -> {
+                CompletableFuture<T> future = run(serviceUrl, attempt);
+                future.whenComplete((value, error) -> {
+                    if (error == null) {
+                        result.complete(value);
+                    } else {
+                        result.completeExceptionally(error);
+                    }
+                });
+                // 调用方取消时中断已发出的请求
+                result.whenComplete((value, error) -> {
+                    if (result.isCancelled()) {
+                        future.cancel(true);
+                    }
+                });
+            });
+            waiter.timerId = SharedVertx.get().setTimer(Math.max(1, RpcConfig.getConcurrencyLimitMaxWaitMs()), id -> {
+                if (waiter.claim()) {
+                    if (waiters.remove(waiter)) {
+                        queued.decrementAndGet();
+                    }
+                    result.completeExceptionally(new ConcurrencyLimitExceededException(
+                            "服务 " + serviceUrl + " 超过并发限制 " + limit + "，排队超时"));
+                }
+            });
+            waiters.add(waiter);
+            // 排队还没开始执行前被调用方取消，让出队列位置
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled() && waiter.claim()) {
+                    if (waiters.remove(waiter)) {
+                        queued.decrementAndGet();
+                    }
+                    SharedVertx.get().cancelTimer(waiter.timerId);
+                }
+            });
+            // 入队前可能已有名额被归还
+            drain();
+            return result;
+        }
+
+        void release(long start, int inFlightAtStart, Throwable error) {
+            inFlight.decrementAndGet();
+            if (!(error instanceof CancellationException)) {
+                update(System.nanoTime() - start, inFlightAtStart, error != null);
+            }
+            drain();
+        }
+
+        /**
+         * 有空闲名额时唤醒排队的请求，在事件循环上发起调用，不占用归还名额的线程
+         */
+        void drain() {
+            while (!waiters.isEmpty() && tryAcquire()) {
+                Waiter waiter = waiters.poll();
+                if (waiter == null) {
+                    inFlight.decrementAndGet();
+                    continue;
+                }
+                queued.decrementAndGet();
+                if (!waiter.claim()) {
+                    inFlight.decrementAndGet(); // 已超时或被取消
+                    continue;
+                }
+                SharedVertx.get().cancelTimer(waiter.timerId);
+                SharedVertx.get().runOnContext(v -> waiter.start.run());
+            }
+        }
+
+        /**
+         * 梯度算法：gradient = clamp(容忍倍数 * 无负载RTT / 本次RTT, 0.5, 1)，
+         * 新限制 = 限制 * gradient + sqrt(限制)，其中 sqrt(限制) 是允许的排队余量，再做平滑。
+         * 无负载RTT取缓慢遗忘的最小RTT，不用长期平均，否则一开始就过载时平均值本身已包含排队时间
+         */
+        synchronized void update(long rttNanos, int inFlightAtStart, boolean dropped) {
+            double newLimit;
+            if (dropped) {
+                newLimit = estimatedLimit * BACKOFF_RATIO;
+            } else {
+                minRttNanos = minRttNanos == 0 ? rttNanos : Math.min(rttNanos, minRttNanos * MIN_RTT_DECAY);
+                if (inFlightAtStart * 2 < estimatedLimit) {
+                    return; // 远未用满限制，RTT 不能说明限制是否合适
+                }
+                double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * minRttNanos / Math.max(1, rttNanos)));
+                newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+                newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+            }
+            estimatedLimit = Math.max(RpcConfig.getConcurrencyLimitMin(), Math.min(RpcConfig.getConcurrencyLimitMax(), newLimit));
+            limit = (int) estimatedLimit;
+        }
+    }
+
+    /**
+     * 排队中的请求，超时、取消和被唤醒三者只有一个能 claim 成功
+     */
+    private static final class Waiter extends AtomicBoolean {
+        final Runnable start;
+        volatile long timerId;
+
+        Waiter(Runnable start) {
+            this.start = start;
+        }
+
+        boolean claim() {
+            return compareAndSet(false, true);
+        }
+    }
+}
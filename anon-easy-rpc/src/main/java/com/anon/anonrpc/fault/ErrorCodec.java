@@ -0,0 +1,140 @@
+package com.anon.anonrpc.fault;
+
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.model.RpcError;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 异常与 RpcError 之间的转换
+ * 服务端只取异常的类名和消息，按 errorStackSamplePercent 采样附带截断的堆栈；
+ * 调用方只按类名还原可信的异常类型（需要有 String 参数的公共构造器）：方法声明的异常、StacklessException 的子类
+ * 和常见的 JDK 非受检异常。Error（服务端的 OutOfMemoryError 等）和其他类型用 RemoteServiceException 代替，
+ * 类名来自服务端，不可信的类不会被实例化，也就不会执行它的静态初始化
+ */
+public final class ErrorCodec {
+
+    // 异常类名 -> String 参数的构造器，类不存在或没有该构造器时为空
+    private static final Map<String, Optional<Constructor<? extends Throwable>>> CONSTRUCTORS = new ConcurrentHashMap<>();
+
+    // 方法没有声明时也还原的 JDK 非受检异常
+    private static final Set<String> JDK_EXCEPTIONS = new HashSet<>(Arrays.asList(
+            IllegalArgumentException.class.getName(),
+            IllegalStateException.class.getName(),
+            UnsupportedOperationException.class.getName(),
+            NullPointerException.class.getName(),
+            IndexOutOfBoundsException.class.getName(),
+            ArithmeticException.class.getName(),
+            NumberFormatException.class.getName(),
+            NoSuchElementException.class.getName(),
+            ConcurrentModificationException.class.getName()));
+
+    private ErrorCodec() {
+    }
+
+    /**
+     * 把异常转换为错误
+     */
+    public static RpcError encode(int code, Throwable e) {
+        return RpcError.builder()
+                .code(code)
+                .exceptionClass(e.getClass().getName())
+                .message(e.getMessage())
+                .stack(sampleStack(e))
+                .build();
+    }
+
+    /**
+     * 框架生成的错误，不对应异常
+     */
+    public static RpcError error(int code, String message) {
+        return RpcError.builder()
+                .code(code)
+                .message(message)
+                .build();
+    }
+
+    /**
+     * 还原服务方法抛出的异常
+     * @param method 调用的接口方法，方法声明的异常类型都可以还原
+     */
+    public static Throwable decode(RpcError error, Method method) {
+        Constructor<? extends Throwable> constructor = error.getExceptionClass() == null ? null
+                : CONSTRUCTORS.computeIfAbsent(error.getExceptionClass(),
+                        className -> findConstructor(className, method.getDeclaringClass().getClassLoader())).orElse(null);
+        if (constructor != null && isTrusted(constructor.getDeclaringClass(), method)) {
+            try {
+                Throwable exception = constructor.newInstance(error.getMessage());
+                if (error.getStack() != null) {
+                    exception.addSuppressed(new RemoteServiceException(error));
+                }
+                return exception;
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // 构造失败时用 RemoteServiceException 代替
+            }
+        }
+        return new RemoteServiceException(error);
+    }
+
+    private static String sampleStack(Throwable e) {
+        int percent = RpcConfig.getErrorStackSamplePercent();
+        if (percent <= 0 || ThreadLocalRandom.current().nextInt(100) >= percent) {
+            return null;
+        }
+        StackTraceElement[] frames = e.getStackTrace();
+        if (frames.length == 0) {
+            return null;
+        }
+        int limit = Math.min(frames.length, RpcConfig.getErrorStackMaxFrames());
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < limit; i++) {
+            builder.append("\tat ").append(frames[i]).append('\n');
+        }
+        if (frames.length > limit) {
+            builder.append("\t... ").append(frames.length - limit).append(" more\n");
+        }
+        return builder.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Optional<Constructor<? extends Throwable>> findConstructor(String className, ClassLoader loader) {
+        try {
+            // 用服务接口的类加载器查找，不初始化类，只接受异常类型
+            Class<?> type = Class.forName(className, false, loader);
+            if (!Throwable.class.isAssignableFrom(type)) {
+                return Optional.empty();
+            }
+            return Optional.of((Constructor<? extends Throwable>) type.getConstructor(String.class));
+        } catch (ClassNotFoundException | NoSuchMethodException | LinkageError e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 调用方是否按类名还原该类型
+     * Error 一律不还原，否则服务端的致命错误会在调用方变成真正的致命错误；
+     * 方法声明的类型（受检或非受检）可以还原，其余非受检异常限于 StacklessException 的子类和常见的 JDK 异常
+     */
+    private static boolean isTrusted(Class<?> type, Method method) {
+        if (!Exception.class.isAssignableFrom(type)) {
+            return false;
+        }
+        for (Class<?> declared : method.getExceptionTypes()) {
+            if (declared.isAssignableFrom(type)) {
+                return true;
+            }
+        }
+        return RuntimeException.class.isAssignableFrom(type)
+                && (StacklessException.class.isAssignableFrom(type) || JDK_EXCEPTIONS.contains(type.getName()));
+    }
+}
@@ -1,17 +1,24 @@
 package com.anon.anonrpc.fault;
 
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.model.CallKey;
+
 import java.lang.reflect.Method;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 /**
  * 降级处理 - 用于服务不可用时提供备选方案
+ * 优先返回同样参数最近一次成功的结果（仅限 @StaleIfError 方法），其次调用注册的降级函数，最后返回默认值
  */
 public class FallbackHandler {
-    // 保存每个方法的降级处理函数
-    private static final Map<String, Function<Object[], Object>> fallbackMap = new HashMap<>();
-    
+    // 保存每个方法的降级处理函数，运行期间可能随时注册
+    private static final Map<String, Function<Object[], Object>> fallbackMap = new ConcurrentHashMap<>();
+
+    // 最近一次成功结果
+    private static volatile StaleResponseCache staleCache;
+
     /**
      * 注册降级处理函数
      * @param serviceClass 服务类
@@ -22,7 +29,42 @@ public class FallbackHandler {
         String key = generateKey(serviceClass, methodName);
         fallbackMap.put(key, fallback);
     }
-    
+
+    /**
+     * 记录一次成功结果，供之后调用失败时返回
+     * @param maxStaleMs 结果最多可以使用多久
+     */
+    public static void recordSuccess(Method method, Object[] args, Object result, long maxStaleMs) {
+        getStaleCache().put(new CallKey(method, args), result, maxStaleMs);
+    }
+
+    /**
+     * 获取同样参数最近一次成功的结果
+     * @return 缓存的结果，没有可用结果时返回null
+     */
+    public static StaleResponseCache.Entry getStaleResult(Method method, Object[] args) {
+        return getStaleCache().get(new CallKey(method, args));
+    }
+
+    /**
+     * 获取降级处理结果
+     * @param method 方法
+     * @param args 参数
+     * @param staleIfError 是否优先返回最近一次成功的结果
+     * @return 降级结果
+     */
+    public static Object getFallbackResult(Method method, Object[] args, boolean staleIfError) {
+        if (staleIfError) {
+            StaleResponseCache.Entry stale = getStaleResult(method, args);
+            if (stale != null) {
+                System.out.println("返回最近一次成功的结果: " + method.getName()
+                        + "，已存放 " + (System.currentTimeMillis() - stale.getStoredAt()) + "ms");
+                return stale.getValue();
+            }
+        }
+        return getFallbackResult(method, args);
+    }
+
     /**
      * 获取降级处理结果
      * @param method 方法
@@ -32,23 +74,40 @@ public class FallbackHandler {
     public static Object getFallbackResult(Method method, Object[] args) {
         String key = generateKey(method.getDeclaringClass(), method.getName());
         Function<Object[], Object> fallback = fallbackMap.get(key);
-        
+
         if (fallback != null) {
             System.out.println("使用降级处理方法: " + method.getName());
             return fallback.apply(args);
         }
-        
+
         // 如果没有注册降级函数，返回默认值
         return getDefaultValue(method.getReturnType());
     }
-    
+
+    /**
+     * 获取最近成功结果的缓存（含命中次数和结果存放时间统计），第一次使用时按 RpcConfig 创建
+     */
+    public static StaleResponseCache getStaleCache() {
+        StaleResponseCache cache = staleCache;
+        if (cache == null) {
+            synchronized (FallbackHandler.class) {
+                cache = staleCache;
+                if (cache == null) {
+                    cache = new StaleResponseCache(RpcConfig.getStaleCacheMaxSize());
+                    staleCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
     /**
      * 生成方法的唯一键
      */
     private static String generateKey(Class<?> serviceClass, String methodName) {
         return serviceClass.getName() + "." + methodName;
     }
-    
+
     /**
      * 获取默认返回值
      */
@@ -67,4 +126,4 @@ public class FallbackHandler {
         }
         return null;
     }
-} 
\ No newline at end of file
+}
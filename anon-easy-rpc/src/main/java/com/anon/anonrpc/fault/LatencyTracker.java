@@ -0,0 +1,72 @@
+package com.anon.anonrpc.fault;
+
+import com.anon.anonrpc.config.RpcConfig;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 方法调用耗时统计 - 用于计算对冲请求的触发延迟
+ * 每个方法保存最近 SAMPLES 次成功调用的耗时，每记录 RECOMPUTE_EVERY 次重新计算一次百分位，
+ * 读取百分位只是一次 volatile 读
+ */
+public class LatencyTracker {
+    // 保存的样本数
+    private static final int SAMPLES = 128;
+    // 每记录多少次重新计算百分位
+    private static final int RECOMPUTE_EVERY = 16;
+    // 样本少于该值时使用默认延迟
+    private static final int MIN_SAMPLES = 32;
+
+    private static final Map<Object, LatencyTracker> TRACKERS = new ConcurrentHashMap<>();
+
+    private final AtomicLongArray samples = new AtomicLongArray(SAMPLES);
+    private final AtomicInteger count = new AtomicInteger();
+    private volatile long percentileMs = -1;
+
+    /**
+     * 获取指定方法的统计，key 一般为 Method
+     */
+    public static LatencyTracker of(Object key) {
+        LatencyTracker tracker = TRACKERS.get(key);
+        return tracker != null ? tracker : TRACKERS.computeIfAbsent(key, k -> new LatencyTracker());
+    }
+
+    /**
+     * 记录一次成功调用的耗时
+     */
+    public void record(long durationMs) {
+        int n = count.getAndIncrement();
+        samples.set(Math.floorMod(n, SAMPLES), durationMs);
+        if ((n + 1) % RECOMPUTE_EVERY == 0) {
+            recompute(n + 1 < 0 ? SAMPLES : Math.min(n + 1, SAMPLES));
+        }
+    }
+
+    /**
+     * 对冲延迟：hedgePercentile 对应的耗时，不低于 hedgeMinDelayMs；样本不足时返回 hedgeDefaultDelayMs
+     */
+    public long hedgeDelayMs() {
+        long percentile = percentileMs;
+        if (percentile < 0) {
+            return RpcConfig.getHedgeDefaultDelayMs();
+        }
+        return Math.max(RpcConfig.getHedgeMinDelayMs(), percentile);
+    }
+
+    private void recompute(int size) {
+        if (size < MIN_SAMPLES) {
+            return;
+        }
+        long[] sorted = new long[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(size * RpcConfig.getHedgePercentile() / 100.0) - 1;
+        percentileMs = sorted[Math.max(0, Math.min(size - 1, index))];
+    }
+}
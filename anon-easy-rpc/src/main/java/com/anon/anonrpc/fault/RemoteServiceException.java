@@ -0,0 +1,38 @@
+package com.anon.anonrpc.fault;
+
+import com.anon.anonrpc.model.RpcError;
+
+/**
+ * 服务端返回的错误 - 服务端异常在调用方不还原为原类型时（类不存在、没有字符串构造器、
+ * 是 Error 或不在 ErrorCodec 信任范围内的类型）抛出本异常；框架错误（服务不存在等）也以本异常作为调用失败的原因
+ * 不记录堆栈，服务端附带的堆栈在消息之后
+ */
+public class RemoteServiceException extends RuntimeException {
+
+    private final RpcError error;
+
+    public RemoteServiceException(RpcError error) {
+        super(describe(error), null, true, false);
+        this.error = error;
+    }
+
+    public RpcError getError() {
+        return error;
+    }
+
+    public int getCode() {
+        return error.getCode();
+    }
+
+    private static String describe(RpcError error) {
+        StringBuilder builder = new StringBuilder();
+        if (error.getExceptionClass() != null) {
+            builder.append(error.getExceptionClass()).append(": ");
+        }
+        builder.append(error.getMessage());
+        if (error.getStack() != null) {
+            builder.append('\n').append(error.getStack());
+        }
+        return builder.toString();
+    }
+}
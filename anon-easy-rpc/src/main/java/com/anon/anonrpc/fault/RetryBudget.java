@@ -0,0 +1,73 @@
+package com.anon.anonrpc.fault;
+
+import com.anon.anonrpc.config.RpcConfig;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * 重试预算 - 令牌桶
+ * 每个原始请求存入 retryBudgetPercent% 个令牌，每次重试取走一个令牌，桶容量为 retryBudgetMaxTokens，
+ * 因此重试带来的额外请求长期不会超过原始请求量的 retryBudgetPercent%，只允许小规模突发。
+ * 对冲请求使用另一个按 hedgeBudgetPercent / hedgeBudgetMaxTokens 配置的实例
+ */
+public class RetryBudget {
+    // 以千分之一令牌为单位计数，避免浮点运算
+    private static final long UNIT = 1000;
+
+    // 每次存入的百分比及容量，从配置实时读取
+    private final IntSupplier percent;
+    private final IntSupplier maxTokens;
+
+    // 余额可能因为存入不做上限截断而超过容量，取用时再截断
+    private final AtomicLong balance;
+
+    /**
+     * 按重试预算配置创建
+     */
+    public RetryBudget() {
+        this(RpcConfig::getRetryBudgetPercent, RpcConfig::getRetryBudgetMaxTokens);
+    }
+
+    public RetryBudget(IntSupplier percent, IntSupplier maxTokens) {
+        this.percent = percent;
+        this.maxTokens = maxTokens;
+        this.balance = new AtomicLong(capacity());
+    }
+
+    /**
+     * 原始请求到来时存入令牌（一次原子加，不做CAS循环）
+     */
+    public void deposit() {
+        balance.getAndAdd(percent.getAsInt() * UNIT / 100);
+    }
+
+    /**
+     * 尝试取用一个令牌
+     * @return 预算不足时返回false，本次不应重试
+     */
+    public boolean tryWithdraw() {
+        long capacity = capacity();
+        for (;;) {
+            long current = balance.get();
+            long available = Math.min(current, capacity);
+            if (available < UNIT) {
+                return false;
+            }
+            if (balance.compareAndSet(current, available - UNIT)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 当前可用的令牌数
+     */
+    public long available() {
+        return Math.min(balance.get(), capacity()) / UNIT;
+    }
+
+    private long capacity() {
+        return maxTokens.getAsInt() * UNIT;
+    }
+}
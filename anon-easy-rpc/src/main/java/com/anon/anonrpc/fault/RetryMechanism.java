@@ -1,65 +1,334 @@
 package com.anon.anonrpc.fault;
 
-import java.util.function.Supplier;
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.context.DeadlineExceededException;
+import com.anon.anonrpc.health.OutlierDetector;
+import com.anon.anonrpc.ratelimit.RateLimitExceededException;
+import com.anon.anonrpc.utils.SharedVertx;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
 
 /**
  * 重试机制 - 用于自动重试失败的请求
+ * 重试通过定时器调度而不是在调用线程上休眠，退避时间指数增长并带随机抖动，
+ * 每次重试尽量换一个实例，并受重试预算限制，避免故障期间重试放大流量；服务端限流拒绝的调用不重试；
+ * 每次调用还要经过目标实例的自适应并发限制（见 ConcurrencyLimiter）
  */
 public class RetryMechanism {
-    // 最大重试次数
-    private static final int MAX_RETRIES = 3;
-    // 重试间隔（毫秒）
-    private static final int RETRY_INTERVAL_MS = 1000;
-    
+    // 选择实例时最多跳过的已熔断实例数
+    private static final int MAX_SELECT_ATTEMPTS = 16;
+
+    /**
+     * 没有截止时间
+     */
+    public static final long NO_DEADLINE = Long.MIN_VALUE;
+
+    // 全局重试预算
+    private static final RetryBudget BUDGET = new RetryBudget();
+
+    // 全局对冲预算
+    private static final RetryBudget HEDGE_BUDGET =
+            new RetryBudget(RpcConfig::getHedgeBudgetPercent, RpcConfig::getHedgeBudgetMaxTokens);
+
     /**
      * 执行带有重试的操作
-     * @param operation 要执行的操作
-     * @param serviceUrl 服务URL
+     * @param attempt 对指定服务URL发起一次调用；定时器触发的重试在事件循环线程上调用，不能阻塞
+     * @param selector 选择服务URL，参数为本次调用已尝试过的URL
      * @param <T> 返回类型
-     * @return 操作结果
-     * @throws Exception 如果所有重试都失败则抛出异常
+     * @return 调用结果，所有重试都失败则以异常结束
+     */
+    public static <T> CompletableFuture<T> executeWithRetry(Function<String, CompletableFuture<T>> attempt,
+                                                            Function<Collection<String>, String> selector) {
+        return executeWithRetry(attempt, selector, RpcConfig.getMaxRetries(), null, NO_DEADLINE);
+    }
+
+    /**
+     * 执行带有重试和对冲的操作，不限制截止时间
+     */
+    public static <T> CompletableFuture<T> executeWithRetry(Function<String, CompletableFuture<T>> attempt,
+                                                            Function<Collection<String>, String> selector,
+                                                            int maxRetries, LatencyTracker latency) {
+        return executeWithRetry(attempt, selector, maxRetries, latency, NO_DEADLINE);
+    }
+
+    /**
+     * 执行带有重试和对冲的操作
+     * 每一轮调用在 latency 给出的延迟内没有结果时，若对冲预算允许，向另一个实例再发一次，
+     * 取先成功的结果并取消另一个；两个都失败才进入重试
+     * @param maxRetries 最大重试次数
+     * @param latency 方法的耗时统计，为null时不对冲（只应对幂等方法传入）
+     * @param deadlineNanos System.nanoTime 基准的截止时间，过了截止时间不再选择实例（选择半开实例会占用探测名额），
+     *                      以 DeadlineExceededException 结束；NO_DEADLINE 表示不限制
+     */
+    public static <T> CompletableFuture<T> executeWithRetry(Function<String, CompletableFuture<T>> attempt,
+                                                            Function<Collection<String>, String> selector,
+                                                            int maxRetries, LatencyTracker latency, long deadlineNanos) {
+        BUDGET.deposit();
+        if (latency != null) {
+            HEDGE_BUDGET.deposit();
+        }
+        // 每次调用都经过目标URL的并发限制
+        Function<String, CompletableFuture<T>> limited = serviceUrl -> ConcurrencyLimiter.execute(serviceUrl, attempt);
+        Execution<T> execution = new Execution<>(limited, selector, maxRetries, latency, deadlineNanos);
+        execution.run();
+        return execution.result;
+    }
+
+    /**
+     * 获取重试预算
+     */
+    public static RetryBudget getBudget() {
+        return BUDGET;
+    }
+
+    /**
+     * 获取对冲预算
+     */
+    public static RetryBudget getHedgeBudget() {
+        return HEDGE_BUDGET;
+    }
+
+    /**
+     * 第 retries 次重试前的退避时间：retryIntervalMs * 2^(retries-1)，不超过上限，
+     * 再在 [一半, 全部] 之间随机取值，避免大量客户端同时重试
+     */
+    static long backoff(int retries) {
+        long base = Math.max(1, RpcConfig.getRetryIntervalMs());
+        long exponential = Math.min(RpcConfig.getRetryMaxBackoffMs(), base << Math.min(retries - 1, 20));
+        long half = exponential / 2;
+        return Math.max(1, half + ThreadLocalRandom.current().nextLong(exponential - half + 1));
+    }
+
+    /**
+     * 剥去 CompletableFuture 包装的异常
      */
-    public static <T> T executeWithRetry(Supplier<T> operation, String serviceUrl) throws Exception {
-        int retries = 0;
-        Exception lastException = null;
-        
-        while (retries <= MAX_RETRIES) {
+    static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * 单次调用的重试状态，各轮调用依次执行
+     * 同一轮内主请求、对冲请求和对冲定时器的回调可能并发执行，它们的状态变更都在该轮的 Round 上同步
+     */
+    private static final class Execution<T> {
+        final Function<String, CompletableFuture<T>> attempt;
+        final Function<Collection<String>, String> selector;
+        final int maxRetries;
+        final LatencyTracker latency;
+        final long deadlineNanos;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final List<String> tried = new ArrayList<>(2);
+        int retries;
+        Throwable lastError;
+
+        Execution(Function<String, CompletableFuture<T>> attempt, Function<Collection<String>, String> selector,
+                  int maxRetries, LatencyTracker latency, long deadlineNanos) {
+            this.attempt = attempt;
+            this.selector = selector;
+            this.maxRetries = maxRetries;
+            this.latency = latency;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        void run() {
+            if (deadlineExceeded()) {
+                result.completeExceptionally(new DeadlineExceededException("调用已超过截止时间，不再发起请求"));
+                return;
+            }
+            String serviceUrl = select(true);
+            if (serviceUrl == null) {
+                result.completeExceptionally(new RuntimeException("没有可用的服务实例（均已熔断）", lastError));
+                return;
+            }
+            if (retries > 0) {
+                System.out.println("尝试重试 " + serviceUrl + "，第 " + retries + " 次");
+            }
+            Round round = new Round();
+            synchronized (round) {
+                launch(round, serviceUrl);
+                if (latency != null && !round.done) {
+                    round.timerId = SharedVertx.get().setTimer(latency.hedgeDelayMs(), id -> hedge(round));
+                }
+            }
+        }
+
+        /**
+         * 主请求超过对冲延迟仍未返回，向另一个实例发送对冲请求
+         */
+        private void hedge(Round round) {
+            synchronized (round) {
+                round.timerId = -1;
+                if (round.done || deadlineExceeded()) {
+                    return;
+                }
+                // 先扣预算再选实例：选中半开状态的实例会占用探测名额，选中后必须发出请求
+                if (!HEDGE_BUDGET.tryWithdraw()) {
+                    return;
+                }
+                String serviceUrl = select(false);
+                if (serviceUrl == null) {
+                    return; // 没有其他实例，对同一实例对冲没有意义
+                }
+                System.out.println("发送对冲请求到 " + serviceUrl);
+                launch(round, serviceUrl);
+            }
+        }
+
+        /**
+         * 在本轮中发起一次调用，调用方持有 round 的锁
+         */
+        private void launch(Round round, String serviceUrl) {
+            tried.add(serviceUrl);
+            round.pending++;
+            long start = System.currentTimeMillis();
+            CompletableFuture<T> future;
             try {
-                if (retries > 0) {
-                    System.out.println("尝试重试 " + serviceUrl + "，第 " + retries + " 次");
+                future = attempt.apply(serviceUrl);
+            } catch (Throwable e) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+            }
+            round.calls.add(future);
+            future.whenComplete((value, error) -> complete(round, serviceUrl, start, value, error));
+        }
+
+        private void complete(Round round, String serviceUrl, long start, T value, Throwable error) {
+            if (error instanceof CancellationException) {
+                // 对冲中落败被取消的请求不计入统计，但要归还选择实例时可能占用的半开探测名额
+                CircuitBreaker.releasePermit(serviceUrl);
+                return;
+            }
+            long duration = System.currentTimeMillis() - start;
+            if (error == null) {
+                CircuitBreaker.recordSuccess(serviceUrl, duration);
+                OutlierDetector.record(serviceUrl, true, duration);
+                if (latency != null) {
+                    latency.record(duration);
+                }
+                if (round.close(true)) {
+                    // 在锁外完成结果，调用方的后续回调不会持有本轮的锁
+                    result.complete(value);
                 }
-                
-                T result = operation.get();
-                
-                // 如果成功，记录成功并返回结果
-                if (retries > 0) {
-                    System.out.println("重试成功");
+                return;
+            }
+            Throwable cause = unwrap(error);
+            if (cause instanceof DeadlineExceededException) {
+                // 选择实例后截止时间才到，请求没有发出，重试也没有意义
+                CircuitBreaker.releasePermit(serviceUrl);
+                if (round.close(true)) {
+                    result.completeExceptionally(cause);
+                }
+                return;
+            }
+            if (cause instanceof RateLimitExceededException) {
+                // 服务端限流拒绝：实例健康，只是在卸载负载，不计入熔断和离群统计；
+                // 立即换实例重试只会把被卸载的流量转给其他实例，不再重试
+                CircuitBreaker.releasePermit(serviceUrl);
+                System.out.println("调用 " + serviceUrl + " 被服务端限流拒绝");
+                if (round.close(false)) {
+                    result.completeExceptionally(cause);
                 }
-                CircuitBreaker.recordSuccess(serviceUrl);
-                return result;
-            } catch (Exception e) {
-                lastException = e;
+                return;
+            }
+            if (cause instanceof ConcurrencyLimitExceededException) {
+                // 被本地并发限制拒绝的请求没有发出，不计入统计，归还选择实例时占用的半开探测名额
+                CircuitBreaker.releasePermit(serviceUrl);
+            } else {
                 CircuitBreaker.recordFailure(serviceUrl);
-                
-                System.out.println("调用 " + serviceUrl + " 失败: " + e.getMessage());
-                
-                // 如果已达到最大重试次数，则抛出异常
-                if (retries >= MAX_RETRIES) {
-                    break;
+                OutlierDetector.record(serviceUrl, false, duration);
+            }
+            System.out.println("调用 " + serviceUrl + " 失败: " + cause.getMessage());
+            if (!round.close(false)) {
+                return; // 本轮已有结果，或等待同一轮的另一个请求
+            }
+            lastError = cause;
+
+            if (retries >= maxRetries) {
+                result.completeExceptionally(new RuntimeException("服务调用失败，已重试 " + retries + " 次", lastError));
+                return;
+            }
+            if (!BUDGET.tryWithdraw()) {
+                result.completeExceptionally(new RuntimeException("重试预算已耗尽，放弃重试", lastError));
+                return;
+            }
+            retries++;
+            SharedVertx.get().setTimer(backoff(retries), id -> run());
+        }
+
+        private boolean deadlineExceeded() {
+            return deadlineNanos != NO_DEADLINE && System.nanoTime() - deadlineNanos >= 0;
+        }
+
+        /**
+         * 选择一个未熔断的实例，优先选择本次调用还没尝试过的实例
+         * @param allowTried 没有其他实例时是否允许再次选择已尝试过的实例
+         */
+        private String select(boolean allowTried) {
+            List<String> excluded = new ArrayList<>(tried);
+            for (int i = 0; i < MAX_SELECT_ATTEMPTS; i++) {
+                String serviceUrl = selector.apply(excluded);
+                if (serviceUrl == null) {
+                    return null;
+                }
+                boolean exhausted = excluded.contains(serviceUrl);
+                if (exhausted && !allowTried) {
+                    return null;
+                }
+                if (CircuitBreaker.isAvailable(serviceUrl)) {
+                    return serviceUrl;
                 }
-                
-                // 等待一段时间后重试
-                try {
-                    Thread.sleep(RETRY_INTERVAL_MS);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    throw new RuntimeException("重试被中断", ie);
+                if (exhausted) {
+                    // 选择器已经没有其他实例可选
+                    return null;
                 }
-                
-                retries++;
+                excluded.add(serviceUrl);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 一轮调用：主请求及可能的对冲请求
+     */
+    private static final class Round {
+        final List<CompletableFuture<?>> calls = new ArrayList<>(2);
+        int pending;
+        boolean done;
+        long timerId = -1;
+
+        /**
+         * 一个请求返回后尝试结束本轮：成功时直接结束，失败时只有同一轮的请求都失败才结束
+         * 结束时取消对冲定时器和仍未返回的请求
+         * @return 是否由本次调用结束了本轮
+         */
+        boolean close(boolean success) {
+            List<CompletableFuture<?>> losers;
+            synchronized (this) {
+                if (done || (!success && --pending > 0)) {
+                    return false;
+                }
+                done = true;
+                if (timerId != -1) {
+                    SharedVertx.get().cancelTimer(timerId);
+                    timerId = -1;
+                }
+                losers = new ArrayList<>(calls);
+            }
+            for (CompletableFuture<?> call : losers) {
+                call.cancel(true);
             }
+            return true;
         }
-        
-        throw new RuntimeException("服务调用失败，已重试 " + MAX_RETRIES + " 次", lastException);
     }
-} 
\ No newline at end of file
+}
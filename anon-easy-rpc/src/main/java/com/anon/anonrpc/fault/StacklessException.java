@@ -0,0 +1,17 @@
+package com.anon.anonrpc.fault;
+
+/**
+ * 不记录堆栈的业务异常基类
+ * 业务异常（余额不足、参数校验失败等）通常频繁抛出且不需要堆栈，继承本类后构造时不遍历调用栈，
+ * 传给调用方时也不会附带堆栈，错误很多时不会带来额外的 CPU、GC 和带宽开销
+ */
+public class StacklessException extends RuntimeException {
+
+    public StacklessException(String message) {
+        super(message, null, false, false);
+    }
+
+    public StacklessException(String message, Throwable cause) {
+        super(message, cause, false, false);
+    }
+}
@@ -0,0 +1,133 @@
+package com.anon.anonrpc.fault;
+
+import com.anon.anonrpc.model.CallKey;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 最近一次成功结果的缓存 - 供 @StaleIfError 方法在调用失败时使用
+ * 按最近使用顺序淘汰，超过条数上限时淘汰最久没有用到的结果，已超过可用时间的结果在读取或淘汰时移除。
+ * 每次成功调用都会写入，读取只发生在调用失败时，所以用一个锁保护的 LinkedHashMap 即可
+ */
+public class StaleResponseCache {
+
+    private final int maxSize;
+    private final LinkedHashMap<CallKey, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stalenessMs = new LongAdder();
+    private final LongAccumulator maxStalenessMs = new LongAccumulator(Math::max, 0);
+
+    public StaleResponseCache(int maxSize) {
+        this.maxSize = Math.max(1, maxSize);
+        this.entries = new LinkedHashMap<CallKey, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CallKey, Entry> eldest) {
+                return size() > StaleResponseCache.this.maxSize
+                        || eldest.getValue().isExpired(System.currentTimeMillis());
+            }
+        };
+    }
+
+    /**
+     * 记录一次成功结果
+     * @param maxStaleMs 结果最多可以使用多久
+     */
+    public void put(CallKey key, Object value, long maxStaleMs) {
+        Entry entry = new Entry(value, System.currentTimeMillis(), maxStaleMs);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * 获取还在可用时间内的结果，并计入命中统计
+     * @return 缓存的结果，没有或已过期时返回null（结果本身为null时返回的 Entry 不为null）
+     */
+    public Entry get(CallKey key) {
+        long now = System.currentTimeMillis();
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.isExpired(now)) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        long age = now - entry.storedAt;
+        hits.increment();
+        stalenessMs.add(age);
+        maxStalenessMs.accumulate(age);
+        return entry;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * 返回了旧结果的次数
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * 需要旧结果但没有可用结果的次数
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * 返回的旧结果平均已存放多久（毫秒）
+     */
+    public double getAverageStalenessMs() {
+        long count = hits.sum();
+        return count == 0 ? 0 : (double) stalenessMs.sum() / count;
+    }
+
+    /**
+     * 返回过的旧结果中存放最久的（毫秒）
+     */
+    public long getMaxStalenessMs() {
+        return maxStalenessMs.get();
+    }
+
+    /**
+     * 缓存的结果
+     */
+    public static final class Entry {
+        private final Object value;
+        private final long storedAt;
+        private final long maxStaleMs;
+
+        Entry(Object value, long storedAt, long maxStaleMs) {
+            this.value = value;
+            this.storedAt = storedAt;
+            this.maxStaleMs = maxStaleMs;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public long getStoredAt() {
+            return storedAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - storedAt > maxStaleMs;
+        }
+    }
+}
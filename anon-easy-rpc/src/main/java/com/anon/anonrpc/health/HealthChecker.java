@@ -0,0 +1,224 @@
+package com.anon.anonrpc.health;
+
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.model.ServiceInstance;
+import com.anon.anonrpc.registry.ServiceRegistry;
+import com.anon.anonrpc.utils.ServiceAddress;
+import com.anon.anonrpc.utils.SharedVertx;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.RequestOptions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 主动健康检查 - 定期向注册中心中的实例发送 ping 请求，连续失败的实例标记为不健康，不再参与路由
+ * 所有探测共用 SharedVertx 的定时器和一个 HTTP 客户端，不额外创建线程；
+ * 探测间隔自适应：结果变化（抖动）时缩短到最小间隔，结果稳定时逐步放大，并加入随机抖动避免同时探测
+ */
+public class HealthChecker {
+
+    /**
+     * 服务端响应健康检查的路径，返回 204 空响应
+     */
+    public static final String PING_PATH = "/rpc/ping";
+
+    // URL -> 探测状态，同一URL注册在多个服务类型下时只探测一次
+    private static final Map<String, Probe> PROBES = new ConcurrentHashMap<>();
+
+    private static volatile boolean running;
+    private static HttpClient client;
+    private static long reconcileTimer = -1;
+
+    /**
+     * 启动健康检查
+     */
+    public static synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        Vertx vertx = SharedVertx.get();
+        client = vertx.createHttpClient(new HttpClientOptions()
+                .setKeepAlive(true)
+                .setTcpNoDelay(true)
+                .setMaxPoolSize(1)
+                .setConnectTimeout((int) RpcConfig.getHealthCheckTimeoutMs()));
+        reconcile(vertx);
+        // 定期与注册中心对齐探测目标（新增实例开始探测，已移除实例停止探测）
+        reconcileTimer = vertx.setPeriodic(RpcConfig.getHealthCheckIntervalMs(), id -> reconcile(vertx));
+        System.out.println("健康检查已启动");
+    }
+
+    /**
+     * 停止健康检查，并恢复所有被标记为不健康的实例
+     */
+    public static synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        Vertx vertx = SharedVertx.get();
+        vertx.cancelTimer(reconcileTimer);
+        for (Probe probe : PROBES.values()) {
+            probe.cancelled = true;
+            vertx.cancelTimer(probe.timerId);
+            if (!probe.healthy) {
+                mark(probe, true);
+            }
+        }
+        PROBES.clear();
+        client.close();
+    }
+
+    /**
+     * 在工作线程上遍历注册中心（实例很多时避免阻塞事件循环）
+     */
+    private static void reconcile(Vertx vertx) {
+        vertx.executeBlocking(promise -> {
+            Map<String, Set<String>> targets = new HashMap<>();
+            for (String serviceType : ServiceRegistry.getServiceTypes()) {
+                for (ServiceInstance instance : ServiceRegistry.getInstances(serviceType)) {
+                    targets.computeIfAbsent(instance.getUrl(), k -> new HashSet<>()).add(serviceType);
+                }
+            }
+            if (!running) {
+                promise.complete();
+                return;
+            }
+            for (Map.Entry<String, Set<String>> target : targets.entrySet()) {
+                Probe probe = PROBES.get(target.getKey());
+                if (probe == null) {
+                    probe = new Probe(target.getKey(), RpcConfig.getHealthCheckIntervalMs());
+                    probe.serviceTypes = Collections.unmodifiableSet(target.getValue());
+                    PROBES.put(probe.url, probe);
+                    // 首次探测分散在一个基础间隔内
+                    schedule(vertx, probe, ThreadLocalRandom.current().nextLong(1, RpcConfig.getHealthCheckIntervalMs() + 1));
+                } else {
+                    probe.serviceTypes = Collections.unmodifiableSet(target.getValue());
+                    if (!probe.healthy) {
+                        // 同一URL新注册到其他服务类型时同样标记
+                        mark(probe, false);
+                    }
+                }
+            }
+            PROBES.values().removeIf(probe -> {
+                if (targets.containsKey(probe.url)) {
+                    return false;
+                }
+                probe.cancelled = true;
+                vertx.cancelTimer(probe.timerId);
+                return true;
+            });
+            promise.complete();
+        }, true);
+    }
+
+    private static void schedule(Vertx vertx, Probe probe, long delayMs) {
+        if (!running || probe.cancelled) {
+            return;
+        }
+        probe.timerId = vertx.setTimer(Math.max(1, delayMs), id -> probe(vertx, probe));
+    }
+
+    private static void probe(Vertx vertx, Probe probe) {
+        if (!running || probe.cancelled) {
+            return;
+        }
+        RequestOptions options = ServiceAddress.target(new RequestOptions(), probe.url, PING_PATH)
+                .setMethod(HttpMethod.GET)
+                .setTimeout(RpcConfig.getHealthCheckTimeoutMs());
+        client.request(options)
+                .compose(request -> request.send())
+                .compose(response -> response.body().map(body -> response.statusCode() / 100 == 2))
+                .onComplete(ar -> {
+                    onResult(probe, ar.succeeded() && ar.result());
+                    schedule(vertx, probe, jitter(probe.intervalMs));
+                });
+    }
+
+    /**
+     * 处理探测结果并调整下次探测间隔（同一探测的回调按时间先后串行执行）
+     */
+    private static void onResult(Probe probe, boolean ok) {
+        boolean resultChanged = ok != probe.lastResult;
+        probe.lastResult = ok;
+        if (ok) {
+            probe.failures = 0;
+            if (!probe.healthy) {
+                probe.healthy = true;
+                mark(probe, true);
+                System.out.println("实例恢复健康: " + probe.url);
+            }
+        } else if (++probe.failures >= RpcConfig.getHealthCheckFailureThreshold() && probe.healthy) {
+            probe.healthy = false;
+            mark(probe, false);
+            System.out.println("实例被标记为不健康: " + probe.url);
+        }
+
+        if (resultChanged) {
+            // 结果变化说明正在抖动，尽快确认
+            probe.intervalMs = RpcConfig.getHealthCheckMinIntervalMs();
+        } else {
+            // 结果稳定时逐步放慢；不健康的实例最多按基础间隔探测，以便尽快发现恢复
+            long ceiling = probe.healthy ? RpcConfig.getHealthCheckMaxIntervalMs() : RpcConfig.getHealthCheckIntervalMs();
+            probe.intervalMs = Math.min(ceiling, probe.intervalMs * 3 / 2 + 1);
+        }
+    }
+
+    private static void mark(Probe probe, boolean healthy) {
+        for (String serviceType : probe.serviceTypes) {
+            ServiceRegistry.setHealthy(serviceType, probe.url, healthy);
+        }
+    }
+
+    /**
+     * 在间隔上下浮动20%
+     */
+    private static long jitter(long intervalMs) {
+        long spread = Math.max(1, intervalMs / 5);
+        return intervalMs - spread + ThreadLocalRandom.current().nextLong(spread * 2 + 1);
+    }
+
+    /**
+     * 获取当前不健康的实例URL
+     */
+    public static List<String> getUnhealthyUrls() {
+        List<String> urls = new ArrayList<>();
+        for (Probe probe : PROBES.values()) {
+            if (!probe.healthy) {
+                urls.add(probe.url);
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * 单个URL的探测状态，除 serviceTypes/cancelled 外只在该URL的探测回调中修改
+     */
+    private static final class Probe {
+        final String url;
+        volatile Set<String> serviceTypes;
+        volatile boolean cancelled;
+        volatile long timerId = -1;
+        volatile boolean healthy = true;
+        boolean lastResult = true;
+        int failures;
+        long intervalMs;
+
+        Probe(String url, long intervalMs) {
+            this.url = url;
+            this.intervalMs = intervalMs;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.anon.anonrpc.health;
+
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.model.ServiceInstance;
+import com.anon.anonrpc.registry.ServiceRegistry;
+import com.anon.anonrpc.utils.SharedVertx;
+import io.vertx.core.Vertx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 被动离群检测 - 根据实际调用结果（而不是探测请求）统计每个实例的成功率和平均耗时，
+ * 每个统计周期在同一服务类型的实例之间比较：成功率明显低于同组（低于平均值若干倍标准差）、
+ * 或平均耗时明显高于同组中位数的实例被暂时剔除，不参与路由。
+ * 同组被剔除的比例有上限；剔除时长随连续被剔除次数指数增长，实例表现正常的周期会逐步降低该次数。
+ * 与熔断器不同，只慢不失败的实例也会被剔除
+ */
+public class OutlierDetector {
+    // 按标准差判断成功率至少需要的实例数：n 个实例中单个离群值的 z 分数最大只有 sqrt(n-1)，
+    // 实例太少时默认的 1.9 倍标准差永远达不到
+    private static final int SUCCESS_RATE_MIN_HOSTS = 5;
+
+    // URL -> 当前周期的调用统计
+    private static final Map<String, Stats> STATS = new ConcurrentHashMap<>();
+    // 服务类型 -> URL -> 剔除状态，只在分析任务和 stop 中（持有类锁）修改
+    private static final Map<String, Map<String, Ejection>> EJECTIONS = new ConcurrentHashMap<>();
+
+    private static volatile boolean running;
+    private static long timerId = -1;
+
+    /**
+     * 启动离群检测
+     */
+    public static synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        Vertx vertx = SharedVertx.get();
+        timerId = vertx.setPeriodic(RpcConfig.getOutlierIntervalMs(), id -> vertx.executeBlocking(promise -> {
+            analyze(System.currentTimeMillis());
+            promise.complete();
+        }, true));
+        System.out.println("离群检测已启动");
+    }
+
+    /**
+     * 停止离群检测，并恢复所有被剔除的实例
+     */
+    public static synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        SharedVertx.get().cancelTimer(timerId);
+        // 与分析任务持有同一把锁，正在执行的分析结束后才恢复
+        for (Map.Entry<String, Map<String, Ejection>> type : EJECTIONS.entrySet()) {
+            for (Map.Entry<String, Ejection> entry : type.getValue().entrySet()) {
+                if (entry.getValue().ejected) {
+                    ServiceRegistry.setEjected(type.getKey(), entry.getKey(), false);
+                }
+            }
+        }
+        EJECTIONS.clear();
+        STATS.clear();
+    }
+
+    /**
+     * 记录一次调用结果（由代理在调用完成时调用）
+     * @param serviceUrl 服务URL
+     * @param success 是否成功
+     * @param durationMs 调用耗时
+     */
+    public static void record(String serviceUrl, boolean success, long durationMs) {
+        if (!running) {
+            return;
+        }
+        Stats stats = STATS.get(serviceUrl);
+        if (stats == null) {
+            stats = STATS.computeIfAbsent(serviceUrl, k -> new Stats());
+        }
+        stats.requests.increment();
+        if (!success) {
+            stats.failures.increment();
+        }
+        stats.latencyMs.add(durationMs);
+    }
+
+    /**
+     * 获取指定服务类型当前被剔除的实例URL
+     */
+    public static List<String> getEjectedUrls(String serviceType) {
+        List<String> urls = new ArrayList<>();
+        Map<String, Ejection> ejections = EJECTIONS.get(serviceType);
+        if (ejections != null) {
+            ejections.forEach((url, ejection) -> {
+                if (ejection.ejected) {
+                    urls.add(url);
+                }
+            });
+        }
+        return urls;
+    }
+
+    /**
+     * 执行一个统计周期的分析：取出并清零本周期统计，恢复到期的实例，再检测新的离群实例
+     */
+    static synchronized void analyze(long now) {
+        if (!running) {
+            return;
+        }
+        Map<String, Sample> samples = new HashMap<>();
+        STATS.forEach((url, stats) -> {
+            long requests = stats.requests.sumThenReset();
+            long failures = stats.failures.sumThenReset();
+            long latency = stats.latencyMs.sumThenReset();
+            if (requests > 0) {
+                samples.put(url, new Sample(url, requests, failures, latency));
+            }
+        });
+        // 本周期没有调用的URL不再保留统计对象
+        STATS.keySet().retainAll(samples.keySet());
+
+        for (String serviceType : ServiceRegistry.getServiceTypes()) {
+            analyze(serviceType, ServiceRegistry.getInstances(serviceType), samples, now);
+        }
+        EJECTIONS.keySet().retainAll(ServiceRegistry.getServiceTypes());
+    }
+
+    private static void analyze(String serviceType, List<ServiceInstance> instances, Map<String, Sample> samples, long now) {
+        Map<String, Ejection> ejections = EJECTIONS.computeIfAbsent(serviceType, k -> new ConcurrentHashMap<>());
+        List<String> urls = new ArrayList<>(instances.size());
+        for (ServiceInstance instance : instances) {
+            urls.add(instance.getUrl());
+        }
+        // 已注销的实例不再跟踪
+        ejections.keySet().retainAll(urls);
+
+        // 恢复到期的实例；未被剔除且本周期表现正常的实例降低连续剔除次数
+        int ejectedCount = 0;
+        for (Map.Entry<String, Ejection> entry : ejections.entrySet()) {
+            Ejection ejection = entry.getValue();
+            if (ejection.ejected && now >= ejection.until) {
+                ejection.ejected = false;
+                ServiceRegistry.setEjected(serviceType, entry.getKey(), false);
+                System.out.println("离群实例恢复路由: " + entry.getKey());
+            }
+            if (ejection.ejected) {
+                ejectedCount++;
+            }
+        }
+
+        // 只比较本周期请求数足够的实例
+        List<Sample> eligible = new ArrayList<>();
+        for (String url : urls) {
+            Sample sample = samples.get(url);
+            Ejection ejection = ejections.get(url);
+            if (sample != null && sample.requests >= RpcConfig.getOutlierMinRequests()
+                    && (ejection == null || !ejection.ejected)) {
+                eligible.add(sample);
+            }
+        }
+        if (eligible.size() < RpcConfig.getOutlierMinHosts()) {
+            decay(ejections, eligible);
+            return;
+        }
+
+        // 成功率：平均值与标准差
+        double mean = 0;
+        for (Sample sample : eligible) {
+            mean += sample.successRate();
+        }
+        mean /= eligible.size();
+        double variance = 0;
+        for (Sample sample : eligible) {
+            double diff = sample.successRate() - mean;
+            variance += diff * diff;
+        }
+        double successThreshold = mean - RpcConfig.getOutlierSuccessRateStdevFactor() * Math.sqrt(variance / eligible.size());
+
+        // 平均耗时：中位数
+        double[] latencies = new double[eligible.size()];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = eligible.get(i).averageLatency();
+        }
+        Arrays.sort(latencies);
+        double median = latencies.length % 2 == 1
+                ? latencies[latencies.length / 2]
+                : (latencies[latencies.length / 2 - 1] + latencies[latencies.length / 2]) / 2;
+        double latencyThreshold = Math.max(median * RpcConfig.getOutlierLatencyFactor(), median + RpcConfig.getOutlierLatencyMinMs());
+
+        int maxEjected = Math.max(1, urls.size() * RpcConfig.getOutlierMaxEjectionPercent() / 100);
+        List<Sample> healthy = new ArrayList<>(eligible.size());
+        for (Sample sample : eligible) {
+            String reason = null;
+            if (eligible.size() >= SUCCESS_RATE_MIN_HOSTS && sample.successRate() < successThreshold) {
+                reason = String.format("成功率 %.1f%%，同组平均 %.1f%%", sample.successRate() * 100, mean * 100);
+            } else if (sample.averageLatency() > latencyThreshold) {
+                reason = String.format("平均耗时 %.1fms，同组中位数 %.1fms", sample.averageLatency(), median);
+            }
+            if (reason == null) {
+                healthy.add(sample);
+                continue;
+            }
+            if (ejectedCount >= maxEjected) {
+                continue; // 已达到剔除比例上限
+            }
+            Ejection ejection = ejections.computeIfAbsent(sample.url, k -> new Ejection());
+            ejection.count++;
+            long duration = RpcConfig.getOutlierBaseEjectionMs() << Math.min(ejection.count - 1, 20);
+            ejection.until = now + Math.min(RpcConfig.getOutlierMaxEjectionMs(), duration);
+            ejection.ejected = true;
+            ejectedCount++;
+            ServiceRegistry.setEjected(serviceType, sample.url, true);
+            System.out.println("剔除离群实例 " + sample.url + "（" + reason + "），时长 " + (ejection.until - now) + "ms");
+        }
+        decay(ejections, healthy);
+    }
+
+    /**
+     * 表现正常的实例降低连续剔除次数，降到0后不再跟踪
+     */
+    private static void decay(Map<String, Ejection> ejections, List<Sample> healthy) {
+        for (Sample sample : healthy) {
+            Ejection ejection = ejections.get(sample.url);
+            if (ejection != null && !ejection.ejected && --ejection.count <= 0) {
+                ejections.remove(sample.url);
+            }
+        }
+    }
+
+    /**
+     * 单个URL在当前周期内的调用统计
+     */
+    private static final class Stats {
+        final LongAdder requests = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder latencyMs = new LongAdder();
+    }
+
+    /**
+     * 一个周期结束时取出的统计快照
+     */
+    private static final class Sample {
+        final String url;
+        final long requests;
+        final long failures;
+        final long latencyMs;
+
+        Sample(String url, long requests, long failures, long latencyMs) {
+            this.url = url;
+            this.requests = requests;
+            this.failures = failures;
+            this.latencyMs = latencyMs;
+        }
+
+        double successRate() {
+            return (double) (requests - failures) / requests;
+        }
+
+        double averageLatency() {
+            return (double) latencyMs / requests;
+        }
+    }
+
+    /**
+     * 剔除状态
+     */
+    private static final class Ejection {
+        boolean ejected;
+        long until;
+        int count;
+    }
+}
@@ -0,0 +1,18 @@
+package com.anon.anonrpc.loadbalancer;
+
+import com.anon.anonrpc.model.ServiceInstance;
+import com.anon.anonrpc.registry.InstanceSet;
+
+/**
+ * 负载均衡策略 - 从注册中心预先筛选好的候选集合中选出一个实例
+ */
+public interface LoadBalancer {
+
+    /**
+     * 选择实例
+     *
+     * @param candidates 候选实例集合（非空）
+     * @return 选中的实例
+     */
+    ServiceInstance select(InstanceSet candidates);
+}
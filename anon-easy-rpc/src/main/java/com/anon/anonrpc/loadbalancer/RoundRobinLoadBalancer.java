@@ -0,0 +1,15 @@
+package com.anon.anonrpc.loadbalancer;
+
+import com.anon.anonrpc.model.ServiceInstance;
+import com.anon.anonrpc.registry.InstanceSet;
+
+/**
+ * 轮询负载均衡 - 游标保存在候选集合上，不同候选集合各自轮询
+ */
+public class RoundRobinLoadBalancer implements LoadBalancer {
+
+    @Override
+    public ServiceInstance select(InstanceSet candidates) {
+        return candidates.next();
+    }
+}
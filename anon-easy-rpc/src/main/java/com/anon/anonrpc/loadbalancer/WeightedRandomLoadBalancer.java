@@ -0,0 +1,22 @@
+package com.anon.anonrpc.loadbalancer;
+
+import com.anon.anonrpc.model.ServiceInstance;
+import com.anon.anonrpc.registry.InstanceSet;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 加权随机负载均衡 - 使用候选集合预先计算好的累计权重，每次选择一次二分查找
+ */
+public class WeightedRandomLoadBalancer implements LoadBalancer {
+
+    @Override
+    public ServiceInstance select(InstanceSet candidates) {
+        long total = candidates.totalWeight();
+        if (total <= 0) {
+            // 权重全部为0时退化为轮询
+            return candidates.next();
+        }
+        return candidates.atWeight(ThreadLocalRandom.current().nextLong(total));
+    }
+}
@@ -0,0 +1,49 @@
+package com.anon.anonrpc.model;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * 调用的缓存键：方法及参数
+ * 参数按 Arrays.deepEquals / deepHashCode 比较，数组参数按内容比较；哈希值在创建时计算一次
+ */
+public final class CallKey {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final Method method;
+    private final Object[] args;
+    private final int hash;
+
+    public CallKey(Method method, Object[] args) {
+        this.method = method;
+        this.args = args == null ? NO_ARGS : args.clone();
+        this.hash = 31 * method.hashCode() + Arrays.deepHashCode(this.args);
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CallKey)) {
+            return false;
+        }
+        CallKey other = (CallKey) o;
+        return hash == other.hash && method.equals(other.method) && Arrays.deepEquals(args, other.args);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return method.getName() + Arrays.deepToString(args);
+    }
+}
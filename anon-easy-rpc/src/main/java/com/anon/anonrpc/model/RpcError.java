@@ -0,0 +1,61 @@
+package com.anon.anonrpc.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * RPC 错误 - 替代在响应中序列化整个异常对象（含堆栈和异常链），只传错误码、异常类名和消息，
+ * 少量按比例采样的响应附带截断后的堆栈文本
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RpcError implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 服务方法抛出的异常，调用本身成功，调用方收到还原后的异常
+     */
+    public static final int SERVICE_ERROR = 1;
+
+    /**
+     * 服务或方法不存在
+     */
+    public static final int NOT_FOUND = 2;
+
+    /**
+     * 请求无法解析
+     */
+    public static final int BAD_REQUEST = 3;
+
+    /**
+     * 框架内部错误（序列化失败等）
+     */
+    public static final int INTERNAL = 4;
+
+    /**
+     * 错误码
+     */
+    private int code;
+
+    /**
+     * 异常类名，调用方据此还原异常类型；框架生成的错误为空
+     */
+    private String exceptionClass;
+
+    /**
+     * 异常消息
+     */
+    private String message;
+
+    /**
+     * 截断后的堆栈文本，大多数响应为空
+     */
+    private String stack;
+}
@@ -0,0 +1,31 @@
+package com.anon.anonrpc.model;
+
+/**
+ * RPC 请求的 HTTP 头
+ * 服务名和方法名在请求体中也有，放在请求头里是为了服务端不反序列化请求体就能做限流等判断
+ */
+public final class RpcHeaders {
+    /**
+     * 服务名称
+     */
+    public static final String SERVICE = "X-Rpc-Service";
+
+    /**
+     * 方法名称
+     */
+    public static final String METHOD = "X-Rpc-Method";
+
+    /**
+     * 调用方剩余的超时时间（毫秒）
+     * 传相对时间而不是绝对截止时间，避免双方时钟不一致；服务端以收到请求的时刻加上该值作为截止时间
+     */
+    public static final String TIMEOUT = "X-Rpc-Timeout";
+
+    /**
+     * 单向调用标记，值为 1：服务端收下请求后立即返回 202，不写回调用结果
+     */
+    public static final String ONE_WAY = "X-Rpc-One-Way";
+
+    private RpcHeaders() {
+    }
+}
@@ -36,7 +36,7 @@ public class RpcResponse implements Serializable {
     private String message;
 
     /**
-     * 异常信息
+     * 错误，调用成功时为空
      */
-    private Exception exception;
+    private RpcError error;
 }
@@ -0,0 +1,64 @@
+package com.anon.anonrpc.model;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+import java.io.Serializable;
+import java.util.Set;
+
+/**
+ * 服务实例 - 服务地址及路由元数据
+ * 注册后作为二级索引的键使用，因此不可变；修改元数据需以新实例重新注册同一URL
+ */
+@Value
+@Builder(toBuilder = true)
+public class ServiceInstance implements Serializable {
+    /**
+     * 默认权重
+     */
+    public static final int DEFAULT_WEIGHT = 100;
+
+    /**
+     * 服务地址，同一服务类型下唯一
+     */
+    String url;
+
+    /**
+     * 权重，用于加权负载均衡
+     */
+    @Builder.Default
+    int weight = DEFAULT_WEIGHT;
+
+    /**
+     * 所在可用区，空字符串表示未指定
+     */
+    @Builder.Default
+    String zone = "";
+
+    /**
+     * 服务版本，空字符串表示未指定
+     */
+    @Builder.Default
+    String version = "";
+
+    /**
+     * 标签，例如 canary、gpu
+     */
+    @Singular
+    Set<String> tags;
+
+    /**
+     * 只有地址、没有元数据的实例
+     */
+    public static ServiceInstance of(String url) {
+        return ServiceInstance.builder().url(url).build();
+    }
+
+    /**
+     * 是否只有默认元数据
+     */
+    public boolean isBare() {
+        return weight == DEFAULT_WEIGHT && zone.isEmpty() && version.isEmpty() && tags.isEmpty();
+    }
+}
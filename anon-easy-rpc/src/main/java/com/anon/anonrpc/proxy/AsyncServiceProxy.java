@@ -1,32 +1,35 @@
 package com.anon.anonrpc.proxy;
 
-import cn.hutool.http.HttpRequest;
-import cn.hutool.http.HttpResponse;
+import com.anon.anonrpc.cache.ResponseCache;
 import com.anon.anonrpc.config.RpcConfig;
-import com.anon.anonrpc.fault.CircuitBreaker;
+import com.anon.anonrpc.context.DeadlineExceededException;
+import com.anon.anonrpc.context.RpcContext;
 import com.anon.anonrpc.fault.FallbackHandler;
+import com.anon.anonrpc.fault.RetryMechanism;
+import com.anon.anonrpc.fault.StaleResponseCache;
+import com.anon.anonrpc.model.CallKey;
 import com.anon.anonrpc.model.RpcRequest;
 import com.anon.anonrpc.model.RpcResponse;
+import com.anon.anonrpc.ratelimit.RateLimitExceededException;
+import com.anon.anonrpc.ratelimit.RateLimiter;
 import com.anon.anonrpc.registry.ServiceRegistry;
 import com.anon.anonrpc.serializer.JdkSerializer;
 import com.anon.anonrpc.serializer.Serializer;
+import io.netty.buffer.ByteBuf;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * 异步服务代理
  */
 public class AsyncServiceProxy implements InvocationHandler {
 
-    // 线程池处理异步任务
-    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool();
-    
     // 序列化器
     private final Serializer serializer = new JdkSerializer();
     
@@ -37,79 +40,154 @@ public class AsyncServiceProxy implements InvocationHandler {
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
         // 检查方法返回类型是否为CompletableFuture
         boolean isAsyncMethod = CompletableFuture.class.isAssignableFrom(method.getReturnType());
+        MethodPolicy policy = MethodPolicy.of(method);
+        
+        // 单向调用写出请求后立即返回
+        if (policy.isOneWay()) {
+            OneWayInvoker.send(policy, args);
+            return null;
+        }
         
         // 对于同步方法，等待异步调用完成
         if (!isAsyncMethod) {
-            CompletableFuture<Object> future = invokeAsync(method, args);
+            CompletableFuture<Object> future = invokeAsync(policy, args);
+            Object result;
             try {
-                return future.get(RpcConfig.getTimeoutMs(), TimeUnit.MILLISECONDS);
+                result = future.get(policy.getTimeoutMs(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                return FallbackHandler.getFallbackResult(method, args, policy.isStaleIfError());
             } catch (Exception e) {
+                // 调用失败时 invokeAsync 已经尝试过旧结果
                 return FallbackHandler.getFallbackResult(method, args);
             }
+            if (result instanceof ServiceFailure) {
+                throw ((ServiceFailure) result).exception;
+            }
+            return result;
         }
         
-        // 对于异步方法，直接返回CompletableFuture
-        return invokeAsync(method, args);
+        // 对于异步方法，直接返回CompletableFuture，服务方法抛出的异常作为其异常结果
+        return ServiceFailure.rethrow(invokeAsync(policy, args));
+    }
+    
+    /**
+     * 执行异步RPC调用：@Cacheable 方法先查客户端缓存；
+     * @StaleIfError 方法成功时记录结果，失败时返回同样参数最近一次成功的结果
+     */
+    private CompletableFuture<Object> invokeAsync(MethodPolicy policy, Object[] args) {
+        CallKey cacheKey = null;
+        if (policy.isCacheable()) {
+            cacheKey = new CallKey(policy.getMethod(), args);
+            Object cached = ConsumerCache.getInstance().get(cacheKey, () -> ServiceFailure.rethrow(call(policy, args)));
+            if (cached != ResponseCache.MISS) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+        CompletableFuture<Object> future = call(policy, args);
+        if (cacheKey == null && !policy.isStaleIfError()) {
+            return future;
+        }
+        CallKey key = cacheKey;
+        return future.handle((result, error) -> {
+            if (error == null) {
+                if (result instanceof ServiceFailure) {
+                    return result;
+                }
+                if (key != null) {
+                    ConsumerCache.getInstance().put(key, result, policy.getCacheTtlMs());
+                }
+                if (policy.isStaleIfError()) {
+                    FallbackHandler.recordSuccess(policy.getMethod(), args, result, policy.getMaxStaleMs());
+                }
+                return result;
+            }
+            StaleResponseCache.Entry stale = policy.isStaleIfError()
+                    ? FallbackHandler.getStaleResult(policy.getMethod(), args) : null;
+            if (stale == null) {
+                throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+            }
+            return stale.getValue();
+        });
     }
     
     /**
      * 执行异步RPC调用
+     * 超时、重试次数和是否对冲按方法的调用策略（见 MethodPolicy）；
+     * 重试和对冲共用同一个截止时间，在服务方法中发起的调用不会超过上游调用的剩余时间
      */
-    private CompletableFuture<Object> invokeAsync(Method method, Object[] args) {
-        // 从注册中心获取服务URL
-        String serviceUrl = ServiceRegistry.getNextServiceUrl();
-        
-        // 检查熔断器状态
-        if (!CircuitBreaker.isAvailable(serviceUrl)) {
+    private CompletableFuture<Object> call(MethodPolicy policy, Object[] args) {
+        if (RpcConfig.isClientRateLimitEnabled()
+                && !RateLimiter.CONSUMER.tryAcquire(policy.getServiceName(), policy.getMethodName())) {
             CompletableFuture<Object> future = new CompletableFuture<>();
-            future.complete(FallbackHandler.getFallbackResult(method, args));
+            future.completeExceptionally(RateLimitExceededException.INSTANCE);
             return future;
         }
         
+        // 服务实现在本JVM中时直接调用，不序列化也不经过网络；异步方法的调用方不等待结果，转到工作线程执行
+        if (LocalInvoker.isAvailable(policy)) {
+            return LocalInvoker.invoke(policy, args,
+                    CompletableFuture.class.isAssignableFrom(policy.getMethod().getReturnType()));
+        }
+        
         // 构造RPC请求
         RpcRequest rpcRequest = RpcRequest.builder()
-                .serviceName(method.getDeclaringClass().getName())
-                .methodName(method.getName())
-                .parameterTypes(method.getParameterTypes())
+                .serviceName(policy.getServiceName())
+                .methodName(policy.getMethodName())
+                .parameterTypes(policy.getParameterTypes())
                 .args(args)
                 .build();
         
-        // 返回异步CompletableFuture
-        return CompletableFuture.supplyAsync(() -> {
+        // 序列化请求到池化缓冲区，各次重试和对冲请求共用
+        ByteBuf body;
+        try {
+            body = serializer.serializeToBuffer(rpcRequest);
+        } catch (IOException e) {
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        
+        // 截止时间要在调用线程上确定，之后的重试在事件循环线程上执行，拿不到上下文
+        long deadline = RpcContext.deadlineNanos(policy.getTimeoutMs());
+        
+        // 由重试机制选择实例（跳过已熔断的实例，重试时换一个实例）并记录熔断统计
+        CompletableFuture<Object> result = RetryMechanism.executeWithRetry(
+                serviceUrl -> doInvoke(serviceUrl, policy, rpcRequest, body, deadline),
+                tried -> ServiceRegistry.getNextServiceUrl("default", tried),
+                policy.getRetries(), policy.getHedgeLatency(), deadline);
+        // 不再发起新的尝试后释放，仍在写出的请求各自持有引用
+        result.whenComplete((value, error) -> body.release());
+        return result;
+    }
+    
+    /**
+     * 执行一次HTTP调用，超时时间为距截止时间的剩余时间，取消返回的future会中断请求
+     */
+    private CompletableFuture<Object> doInvoke(String serviceUrl, MethodPolicy policy, RpcRequest rpcRequest, ByteBuf body,
+                                               long deadline) {
+        long remainingMs = (deadline - System.nanoTime()) / 1_000_000L;
+        if (remainingMs <= 0) {
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            future.completeExceptionally(new DeadlineExceededException("调用 " + rpcRequest.getMethodName() + " 已超过截止时间"));
+            return future;
+        }
+        CompletableFuture<byte[]> response = RpcHttpClient.post(serviceUrl, rpcRequest.getServiceName(),
+                rpcRequest.getMethodName(), body, remainingMs);
+        CompletableFuture<Object> future = response.thenApply(result -> {
             try {
-                // 序列化请求
-                byte[] bodyBytes = serializer.serialize(rpcRequest);
-                
-                // 异步HTTP请求
-                try (HttpResponse httpResponse = HttpRequest.post(serviceUrl)
-                        .body(bodyBytes)
-                        .timeout(RpcConfig.getTimeoutMs())
-                        .execute()) {
-                    
-                    int status = httpResponse.getStatus();
-                    if (status != 200) {
-                        throw new IOException("HTTP请求失败，状态码: " + status);
-                    }
-                    
-                    // 获取响应
-                    byte[] result = httpResponse.bodyBytes();
-                    if (result == null || result.length == 0) {
-                        throw new IOException("服务器返回空响应");
-                    }
-                    
-                    // 反序列化响应
-                    RpcResponse rpcResponse = serializer.deserialize(result, RpcResponse.class);
-                    
-                    // 记录成功
-                    CircuitBreaker.recordSuccess(serviceUrl);
-                    
-                    return rpcResponse.getData();
-                }
-            } catch (Exception e) {
-                // 记录失败
-                CircuitBreaker.recordFailure(serviceUrl);
-                throw new RuntimeException("RPC调用失败: " + e.getMessage(), e);
+                // 反序列化响应
+                RpcResponse rpcResponse = serializer.deserialize(result, RpcResponse.class);
+                return ServiceFailure.unwrap(rpcResponse, policy);
+            } catch (IOException e) {
+                throw new CompletionException("RPC调用失败: " + e.getMessage(), e);
+            }
+        });
+        // thenApply 返回的future被取消时不会传递给上游，这里手动传递
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                response.cancel(true);
             }
-        }, EXECUTOR);
+        });
+        return future;
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.anon.anonrpc.proxy;
+
+import com.anon.anonrpc.cache.ResponseCache;
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.model.CallKey;
+
+/**
+ * 客户端结果缓存 - 两种代理共用，缓存 @Cacheable 方法的结果，命中时不发出请求
+ */
+public final class ConsumerCache {
+
+    private static volatile ResponseCache<CallKey, Object> instance;
+
+    private ConsumerCache() {
+    }
+
+    /**
+     * 获取缓存（含命中率等统计），第一次使用时按 RpcConfig 创建
+     */
+    public static ResponseCache<CallKey, Object> getInstance() {
+        ResponseCache<CallKey, Object> cache = instance;
+        if (cache == null) {
+            synchronized (ConsumerCache.class) {
+                cache = instance;
+                if (cache == null) {
+                    cache = new ResponseCache<>(RpcConfig.getClientCacheMaxSize(),
+                            RpcConfig.getClientCacheRefreshAheadPercent());
+                    instance = cache;
+                }
+            }
+        }
+        return cache;
+    }
+}
@@ -0,0 +1,181 @@
+package com.anon.anonrpc.proxy;
+
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.context.RpcContext;
+import com.anon.anonrpc.fault.LatencyTracker;
+import com.anon.anonrpc.fault.RetryMechanism;
+import com.anon.anonrpc.ratelimit.RateLimitExceededException;
+import com.anon.anonrpc.ratelimit.RateLimiter;
+import com.anon.anonrpc.registry.LocalRegistry;
+import com.anon.anonrpc.serializer.JdkSerializer;
+import com.anon.anonrpc.serializer.Serializer;
+import com.anon.anonrpc.utils.SharedVertx;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 同一JVM内的直接调用 - 服务实现已注册到 LocalRegistry 时，代理不再序列化请求、也不经过网络，
+ * 直接调用服务实例（与远程调用共用同一个实例）。同步调用在调用线程上执行，调用方不等待结果时转到工作线程。
+ * 服务端限流同样生效，截止时间通过 RpcContext 传给服务方法；
+ * 调用与远程调用一样经过并发限制、熔断和离群统计（以 local://服务名 作为实例地址）以及方法耗时统计，不重试；
+ * 参数和返回值默认按引用传递，开启 localDefensiveCopy 后通过序列化复制，行为与远程调用一致
+ */
+public final class LocalInvoker {
+
+    /**
+     * 本JVM内服务在熔断、并发限制等统计中使用的实例地址前缀
+     */
+    public static final String LOCAL_URL_PREFIX = "local://";
+
+    // 接口方法 -> 实现类方法
+    private static final Map<Method, Target> TARGETS = new ConcurrentHashMap<>();
+
+    private static final Serializer COPIER = new JdkSerializer();
+
+    private static final LongAdder CALLS = new LongAdder();
+
+    private LocalInvoker() {
+    }
+
+    /**
+     * 服务是否可以在本JVM内直接调用
+     */
+    static boolean isAvailable(MethodPolicy policy) {
+        return RpcConfig.isLocalShortCircuitEnabled() && LocalRegistry.get(policy.getServiceName()) != null;
+    }
+
+    /**
+     * 在调用线程上直接调用服务方法
+     * @return 调用结果；服务方法返回 CompletionStage 时以其结果完成
+     */
+    static CompletableFuture<Object> invoke(MethodPolicy policy, Object[] args) {
+        return invoke(policy, args, false);
+    }
+
+    /**
+     * 直接调用服务方法
+     * @param offload 是否转到工作线程执行服务方法，调用方不等待结果时使用（例如返回 CompletableFuture 的异步方法）
+     * @return 调用结果；服务方法返回 CompletionStage 时以其结果完成
+     */
+    static CompletableFuture<Object> invoke(MethodPolicy policy, Object[] args, boolean offload) {
+        if (RpcConfig.isRateLimitEnabled()
+                && !RateLimiter.PROVIDER.tryAcquire(policy.getServiceName(), policy.getMethodName())) {
+            // 与远程服务端的 429 一样报告为服务端限流，与调用方自己的限流区分开
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            future.completeExceptionally(RateLimitExceededException.PROVIDER);
+            return future;
+        }
+        // 截止时间要在调用线程上确定，工作线程上拿不到上游的上下文
+        long deadline = RpcContext.deadlineNanos(policy.getTimeoutMs());
+        String localUrl = LOCAL_URL_PREFIX + policy.getServiceName();
+        LatencyTracker latency = policy.getHedgeLatency();
+        // 只有一个实例，不重试也不对冲；方法耗时在这里记录，传给重试机制会触发对冲
+        return RetryMechanism.executeWithRetry(
+                url -> offload ? offload(policy, args, deadline, latency) : call(policy, args, deadline, latency),
+                tried -> localUrl, 0, null, deadline);
+    }
+
+    private static CompletableFuture<Object> offload(MethodPolicy policy, Object[] args, long deadline,
+                                                     LatencyTracker latency) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        SharedVertx.get().executeBlocking(promise -> {
+            call(policy, args, deadline, latency).whenComplete((value, error) -> {
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    future.complete(value);
+                }
+            });
+            promise.complete();
+        }, false);
+        return future;
+    }
+
+    private static CompletableFuture<Object> call(MethodPolicy policy, Object[] args, long deadline,
+                                                  LatencyTracker latency) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CALLS.increment();
+        long start = System.currentTimeMillis();
+        RpcContext previous = RpcContext.attach(RpcContext.withDeadline(deadline));
+        try {
+            Object instance = LocalRegistry.getInstance(policy.getServiceName());
+            Method method = target(policy, instance.getClass());
+            boolean copy = RpcConfig.isLocalDefensiveCopy();
+            Object result = method.invoke(instance, copy ? copy(args) : args);
+            if (result instanceof CompletionStage) {
+                return ((CompletionStage<?>) result).toCompletableFuture()
+                        .handle((value, error) -> {
+                            recordLatency(latency, start);
+                            return error != null
+                                    ? new ServiceFailure(error instanceof CompletionException && error.getCause() != null
+                                            ? error.getCause() : error)
+                                    : copy ? copy(value) : value;
+                        });
+            }
+            future.complete(copy ? copy(result) : result);
+            recordLatency(latency, start);
+        } catch (InvocationTargetException e) {
+            // 与远程调用一致：服务方法抛出的异常不作为调用失败，原样抛给调用方
+            future.complete(new ServiceFailure(e.getCause()));
+            recordLatency(latency, start);
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        } finally {
+            RpcContext.detach(previous);
+        }
+        return future;
+    }
+
+    private static void recordLatency(LatencyTracker latency, long start) {
+        if (latency != null) {
+            latency.record(System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * 本JVM内直接调用的次数
+     */
+    public static long getCallCount() {
+        return CALLS.sum();
+    }
+
+    private static Method target(MethodPolicy policy, Class<?> implClass) throws NoSuchMethodException {
+        Target target = TARGETS.get(policy.getMethod());
+        // 重新注册了其他实现类时重新解析
+        if (target == null || target.implClass != implClass) {
+            target = new Target(implClass, implClass.getMethod(policy.getMethodName(), policy.getParameterTypes()));
+            TARGETS.put(policy.getMethod(), target);
+        }
+        return target.method;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T copy(T value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return (T) COPIER.deserialize(COPIER.serialize(value), Object.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("复制参数或返回值失败", e);
+        }
+    }
+
+    private static final class Target {
+        final Class<?> implClass;
+        final Method method;
+
+        Target(Class<?> implClass, Method method) {
+            this.implClass = implClass;
+            this.method = method;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.anon.anonrpc.proxy;
+
+import com.anon.anonrpc.annotation.Cacheable;
+import com.anon.anonrpc.annotation.Hedge;
+import com.anon.anonrpc.annotation.Idempotent;
+import com.anon.anonrpc.annotation.OneWay;
+import com.anon.anonrpc.annotation.Retry;
+import com.anon.anonrpc.annotation.StaleIfError;
+import com.anon.anonrpc.annotation.Timeout;
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.context.RpcContext;
+import com.anon.anonrpc.fault.LatencyTracker;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 方法调用策略 - 由服务接口方法上的注解解析得到，创建代理时解析一次并按 Method 缓存，之后不可变
+ * 注解没有指定的项在调用时读取 RpcConfig 的全局配置，修改全局配置对已创建的代理同样生效
+ */
+public final class MethodPolicy {
+
+    private static final Map<Method, MethodPolicy> POLICIES = new ConcurrentHashMap<>();
+
+    private final Method method;
+    private final String serviceName;
+    private final String methodName;
+    private final Class<?>[] parameterTypes;
+    // 超时时间，0 表示使用全局配置
+    private final long timeoutMs;
+    // 重试次数，-1 表示使用全局配置
+    private final int retries;
+    private final boolean idempotent;
+    // 对冲开关，null 表示使用全局配置
+    private final Boolean hedge;
+    // 结果缓存时间，0 表示不缓存
+    private final long cacheTtlMs;
+    // 调用失败时旧结果的可用时间，0 表示不使用旧结果
+    private final long maxStaleMs;
+    // 幂等方法的耗时统计，用于计算对冲延迟
+    private final LatencyTracker latency;
+    private final boolean voidMethod;
+    private final boolean oneWay;
+
+    private MethodPolicy(Method method) {
+        Class<?> service = method.getDeclaringClass();
+        this.method = method;
+        this.serviceName = service.getName();
+        this.methodName = method.getName();
+        this.parameterTypes = method.getParameterTypes();
+
+        Timeout timeout = method.getAnnotation(Timeout.class);
+        if (timeout == null) {
+            timeout = service.getAnnotation(Timeout.class);
+        }
+        this.timeoutMs = timeout == null ? 0 : Math.max(1, timeout.value());
+
+        Retry retry = method.getAnnotation(Retry.class);
+        if (retry == null) {
+            retry = service.getAnnotation(Retry.class);
+        }
+        this.retries = retry == null ? -1 : Math.max(0, retry.value());
+
+        this.idempotent = method.isAnnotationPresent(Idempotent.class);
+        Hedge hedge = method.getAnnotation(Hedge.class);
+        this.hedge = hedge == null ? null : hedge.value();
+        this.latency = idempotent ? LatencyTracker.of(method) : null;
+
+        Cacheable cacheable = method.getAnnotation(Cacheable.class);
+        this.cacheTtlMs = cacheable == null ? 0 : Math.max(0, cacheable.ttlMs());
+
+        StaleIfError staleIfError = method.getAnnotation(StaleIfError.class);
+        this.maxStaleMs = staleIfError == null ? 0 : Math.max(0, staleIfError.maxStaleMs());
+
+        this.voidMethod = method.getReturnType() == void.class;
+        this.oneWay = voidMethod && (method.isAnnotationPresent(OneWay.class) || service.isAnnotationPresent(OneWay.class));
+    }
+
+    /**
+     * 获取方法的调用策略，第一次获取时解析
+     */
+    public static MethodPolicy of(Method method) {
+        MethodPolicy policy = POLICIES.get(method);
+        return policy != null ? policy : POLICIES.computeIfAbsent(method, MethodPolicy::new);
+    }
+
+    /**
+     * 解析服务接口所有方法的调用策略，代理工厂在创建代理时调用
+     */
+    public static void resolve(Class<?> serviceInterface) {
+        for (Method method : serviceInterface.getMethods()) {
+            if (method.getDeclaringClass() != Object.class) {
+                of(method);
+            }
+        }
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * 参数类型，构造请求时直接使用，调用方不能修改
+     */
+    public Class<?>[] getParameterTypes() {
+        return parameterTypes;
+    }
+
+    /**
+     * 超时时间（毫秒）
+     */
+    public long getTimeoutMs() {
+        return timeoutMs > 0 ? timeoutMs : RpcConfig.getTimeoutMs();
+    }
+
+    /**
+     * 最大重试次数
+     */
+    public int getRetries() {
+        return retries >= 0 ? retries : RpcConfig.getMaxRetries();
+    }
+
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    /**
+     * 获取对冲使用的耗时统计，不发送对冲请求时返回null
+     */
+    public LatencyTracker getHedgeLatency() {
+        if (latency == null) {
+            return null;
+        }
+        boolean enabled = hedge != null ? hedge : RpcConfig.isHedgeEnabled();
+        return enabled ? latency : null;
+    }
+
+    public boolean isCacheable() {
+        return cacheTtlMs > 0;
+    }
+
+    public long getCacheTtlMs() {
+        return cacheTtlMs;
+    }
+
+    /**
+     * 调用失败时是否返回最近一次成功的结果
+     */
+    public boolean isStaleIfError() {
+        return maxStaleMs > 0;
+    }
+
+    public long getMaxStaleMs() {
+        return maxStaleMs;
+    }
+
+    /**
+     * 本次调用是否以单向方式发送：void 方法标注了 @OneWay，或在 RpcContext.runOneWay 中调用
+     */
+    public boolean isOneWay() {
+        return oneWay || (voidMethod && RpcContext.isOneWayRequested());
+    }
+}
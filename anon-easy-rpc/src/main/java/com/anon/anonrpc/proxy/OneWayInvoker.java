@@ -0,0 +1,142 @@
+package com.anon.anonrpc.proxy;
+
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.fault.CircuitBreaker;
+import com.anon.anonrpc.model.RpcRequest;
+import com.anon.anonrpc.ratelimit.RateLimitExceededException;
+import com.anon.anonrpc.ratelimit.RateLimiter;
+import com.anon.anonrpc.registry.ServiceRegistry;
+import com.anon.anonrpc.serializer.JdkSerializer;
+import com.anon.anonrpc.serializer.Serializer;
+import com.anon.anonrpc.utils.SharedVertx;
+import io.netty.buffer.ByteBuf;
+import io.vertx.core.Context;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单向调用 - 序列化请求并交给 Vert.x 客户端写出后立即返回，调用线程不等待服务端执行。
+ * 服务端以 202 确认收到，确认结果只用于熔断统计和背压：未确认的请求超过 clientOneWayMaxPending 时，
+ * 新的调用等到自己的确认再返回，生产过快的调用方会被自然减速。
+ * 单向调用最多送达一次：不重试、不降级，被限流、没有可用实例或发送失败时丢弃并计数
+ */
+public final class OneWayInvoker {
+
+    private static final Serializer SERIALIZER = new JdkSerializer();
+
+    private static final AtomicInteger PENDING = new AtomicInteger();
+    private static final LongAdder SENT = new LongAdder();
+    private static final LongAdder DROPPED = new LongAdder();
+
+    private OneWayInvoker() {
+    }
+
+    /**
+     * 发送单向调用
+     */
+    static void send(MethodPolicy policy, Object[] args) {
+        // 服务实现在本JVM中时放到工作线程上执行，调用方同样立即返回
+        if (LocalInvoker.isAvailable(policy)) {
+            SENT.increment();
+            SharedVertx.get().executeBlocking(promise -> {
+                LocalInvoker.invoke(policy, args).whenComplete((result, error) -> report(policy,
+                        result instanceof ServiceFailure ? ((ServiceFailure) result).exception : error));
+                promise.complete();
+            }, false);
+            return;
+        }
+        if (RpcConfig.isClientRateLimitEnabled()
+                && !RateLimiter.CONSUMER.tryAcquire(policy.getServiceName(), policy.getMethodName())) {
+            DROPPED.increment();
+            return;
+        }
+        String serviceUrl = ServiceRegistry.getNextServiceUrl("default");
+        if (serviceUrl == null || !CircuitBreaker.isAvailable(serviceUrl)) {
+            DROPPED.increment();
+            return;
+        }
+
+        RpcRequest rpcRequest = RpcRequest.builder()
+                .serviceName(policy.getServiceName())
+                .methodName(policy.getMethodName())
+                .parameterTypes(policy.getParameterTypes())
+                .args(args)
+                .build();
+        ByteBuf body;
+        try {
+            body = SERIALIZER.serializeToBuffer(rpcRequest);
+        } catch (IOException e) {
+            // 请求没有发出，归还半开状态下 isAvailable 取得的试探名额
+            CircuitBreaker.releasePermit(serviceUrl);
+            report(policy, e);
+            return;
+        }
+
+        long timeoutMs = policy.getTimeoutMs();
+        long start = System.currentTimeMillis();
+        CompletableFuture<Void> ack;
+        try {
+            ack = RpcHttpClient.postOneWay(serviceUrl, policy.getServiceName(), policy.getMethodName(), body, timeoutMs);
+        } finally {
+            body.release();
+        }
+        SENT.increment();
+        int pending = PENDING.incrementAndGet();
+        ack.whenComplete((result, error) -> {
+            PENDING.decrementAndGet();
+            if (error == null) {
+                CircuitBreaker.recordSuccess(serviceUrl, System.currentTimeMillis() - start);
+            } else {
+                // 服务端限流拒绝不说明实例故障
+                if (error instanceof RateLimitExceededException) {
+                    CircuitBreaker.releasePermit(serviceUrl);
+                } else {
+                    CircuitBreaker.recordFailure(serviceUrl);
+                }
+                report(policy, error);
+            }
+        });
+
+        // 背压：事件循环线程上不能阻塞，只在调用方自己的线程上等待
+        if (pending > RpcConfig.getClientOneWayMaxPending() && !Context.isOnEventLoopThread()) {
+            try {
+                ack.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                // 结果已在回调中处理
+            }
+        }
+    }
+
+    private static void report(MethodPolicy policy, Throwable error) {
+        if (error == null) {
+            return;
+        }
+        DROPPED.increment();
+        System.err.println("单向调用 " + policy.getMethodName() + " 失败: " + error);
+    }
+
+    /**
+     * 发出的单向调用数
+     */
+    public static long getSentCount() {
+        return SENT.sum();
+    }
+
+    /**
+     * 被丢弃或执行失败的单向调用数
+     */
+    public static long getDroppedCount() {
+        return DROPPED.sum();
+    }
+
+    /**
+     * 已发出、尚未确认的单向请求数
+     */
+    public static int getPendingCount() {
+        return PENDING.get();
+    }
+}
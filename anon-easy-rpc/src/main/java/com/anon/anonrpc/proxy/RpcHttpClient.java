@@ -0,0 +1,161 @@
+package com.anon.anonrpc.proxy;
+
+import com.anon.anonrpc.model.RpcHeaders;
+import com.anon.anonrpc.ratelimit.RateLimitExceededException;
+import com.anon.anonrpc.utils.HttpTransportOptions;
+import com.anon.anonrpc.utils.ServiceAddress;
+import com.anon.anonrpc.utils.SharedVertx;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.RequestOptions;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * 基于 Vert.x 的非阻塞 RPC HTTP 客户端
+ * 请求在 SharedVertx 的事件循环上发送，不占用调用线程；开启 http2Enabled 后同一服务端的并发请求复用一个 HTTP/2 连接；
+ * 取消返回的 CompletableFuture 会重置底层 HTTP 请求，对冲请求中落败的一方借此及时释放连接
+ */
+public class RpcHttpClient {
+
+    // HTTP/1.1 下每个事件循环到同一服务端的最大连接数
+    private static final int MAX_POOL_SIZE = 64;
+
+    private static volatile HttpClient CLIENT;
+
+    /**
+     * 发送 POST 请求
+     * @param serviceUrl 服务URL，http://、https:// 或 unix://
+     * @param serviceName 服务名称，放在请求头中供服务端在读取请求体前使用
+     * @param methodName 方法名称
+     * @param body 请求体
+     * @param timeoutMs 超时时间，同时作为剩余时间放在请求头中传给服务端
+     * @return 响应体；服务端限流（429）时以 RateLimitExceededException.PROVIDER 结束，
+     *         其他状态码不是200或响应为空时以 IOException 结束
+     */
+    public static CompletableFuture<byte[]> post(String serviceUrl, String serviceName, String methodName,
+                                                 byte[] body, long timeoutMs) {
+        ByteBuf buffer = Unpooled.wrappedBuffer(body);
+        try {
+            return post(serviceUrl, serviceName, methodName, buffer, timeoutMs);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * 发送 POST 请求，请求体来自（池化的）缓冲区
+     * 每次发送持有缓冲区的一个引用并在写出完成后释放，调用方可以用同一个缓冲区多次发送（重试、对冲），
+     * 全部发送发起后自行 release
+     * @see #post(String, String, String, byte[], long)
+     */
+    public static CompletableFuture<byte[]> post(String serviceUrl, String serviceName, String methodName,
+                                                 ByteBuf body, long timeoutMs) {
+        RequestOptions options = ServiceAddress.target(new RequestOptions(), serviceUrl, null)
+                .setMethod(HttpMethod.POST)
+                .putHeader(RpcHeaders.SERVICE, serviceName)
+                .putHeader(RpcHeaders.METHOD, methodName)
+                .putHeader(RpcHeaders.TIMEOUT, Long.toString(timeoutMs))
+                .setTimeout(timeoutMs);
+        return send(options, body, response -> response.statusCode() != 200
+                ? rejected(response, "HTTP请求失败，状态码: ")
+                : response.body().compose(buffer -> buffer.length() == 0
+                        ? Future.failedFuture(new IOException("服务器返回空响应"))
+                        : Future.succeededFuture(buffer.getBytes())));
+    }
+
+    /**
+     * 发送单向请求，服务端收下请求后立即以 202 确认，不返回调用结果
+     * 不携带剩余时间，服务端不按截止时间丢弃单向请求
+     * @param timeoutMs 等待确认的超时时间
+     * @return 收到确认时完成；服务端限流（429）时以 RateLimitExceededException.PROVIDER 结束，
+     *         服务端过载（503）等其他非2xx状态码时以 IOException 结束
+     */
+    public static CompletableFuture<Void> postOneWay(String serviceUrl, String serviceName, String methodName,
+                                                     ByteBuf body, long timeoutMs) {
+        RequestOptions options = ServiceAddress.target(new RequestOptions(), serviceUrl, null)
+                .setMethod(HttpMethod.POST)
+                .putHeader(RpcHeaders.SERVICE, serviceName)
+                .putHeader(RpcHeaders.METHOD, methodName)
+                .putHeader(RpcHeaders.ONE_WAY, "1")
+                .setTimeout(timeoutMs);
+        return send(options, body, response -> response.statusCode() / 100 != 2
+                ? rejected(response, "单向请求未被接收，状态码: ")
+                : response.end());
+    }
+
+    /**
+     * 服务端没有执行请求时的失败结果，丢弃响应体
+     */
+    private static <T> Future<T> rejected(HttpClientResponse response, String message) {
+        // 限流拒绝与其他失败区分开，调用方不把正在卸载负载的实例当作故障
+        Throwable error = response.statusCode() == 429
+                ? RateLimitExceededException.PROVIDER
+                : new IOException(message + response.statusCode());
+        return response.end().transform(ignored -> Future.failedFuture(error));
+    }
+
+    private static <T> CompletableFuture<T> send(RequestOptions options, ByteBuf body,
+                                                 Function<HttpClientResponse, Future<T>> responseHandler) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        ByteBuf payload = body.retainedDuplicate();
+        client().request(options).onComplete(ar -> {
+            if (ar.failed()) {
+                payload.release();
+                future.completeExceptionally(ar.cause());
+                return;
+            }
+            HttpClientRequest request = ar.result();
+            // 请求只在所属的事件循环上操作：取消时的重置排到这里执行，不会与下面的检查和写出交错
+            Context context = Vertx.currentContext();
+            // 请求的异常同样会使 response() 失败，在那里处理；取消时 reset 产生的异常不再作为未处理异常记录
+            request.exceptionHandler(error -> {
+            });
+            future.whenComplete((result, error) -> {
+                if (future.isCancelled()) {
+                    context.runOnContext(v -> request.reset());
+                }
+            });
+            request.response()
+                    .compose(responseHandler)
+                    .onComplete(response -> {
+                        if (response.failed()) {
+                            future.completeExceptionally(response.cause());
+                        } else {
+                            future.complete(response.result());
+                        }
+                    });
+            // 连接就绪前已被取消的请求不再写出
+            if (future.isDone()) {
+                payload.release();
+                return;
+            }
+            request.end(Buffer.buffer(payload)).onComplete(written -> payload.release());
+        });
+        return future;
+    }
+
+    private static HttpClient client() {
+        HttpClient client = CLIENT;
+        if (client == null) {
+            synchronized (RpcHttpClient.class) {
+                client = CLIENT;
+                if (client == null) {
+                    client = SharedVertx.get().createHttpClient(HttpTransportOptions.client(MAX_POOL_SIZE));
+                    CLIENT = client;
+                }
+            }
+        }
+        return client;
+    }
+}
@@ -0,0 +1,50 @@
+package com.anon.anonrpc.proxy;
+
+import com.anon.anonrpc.fault.ErrorCodec;
+import com.anon.anonrpc.fault.RemoteServiceException;
+import com.anon.anonrpc.model.RpcError;
+import com.anon.anonrpc.model.RpcResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 服务方法抛出了异常 - 对框架来说调用是成功的：作为调用结果在重试机制中传递，
+ * 不重试、不计入熔断、不降级，也不写入缓存，代理在返回前重新抛给调用方
+ */
+final class ServiceFailure {
+
+    final Throwable exception;
+
+    ServiceFailure(Throwable exception) {
+        this.exception = exception;
+    }
+
+    /**
+     * 取出响应中的结果：服务方法抛出异常时返回 ServiceFailure；
+     * 服务不存在等框架错误抛出 RemoteServiceException，按调用失败处理
+     */
+    static Object unwrap(RpcResponse response, MethodPolicy policy) {
+        RpcError error = response.getError();
+        if (error == null) {
+            return response.getData();
+        }
+        if (error.getCode() != RpcError.SERVICE_ERROR) {
+            throw new RemoteServiceException(error);
+        }
+        return new ServiceFailure(ErrorCodec.decode(error, policy.getMethod()));
+    }
+
+    /**
+     * 把结果中的 ServiceFailure 转换为异常结束的future
+     */
+    static CompletableFuture<Object> rethrow(CompletableFuture<Object> future) {
+        return future.thenCompose(result -> {
+            if (result instanceof ServiceFailure) {
+                CompletableFuture<Object> failed = new CompletableFuture<>();
+                failed.completeExceptionally(((ServiceFailure) result).exception);
+                return failed;
+            }
+            return CompletableFuture.completedFuture(result);
+        });
+    }
+}
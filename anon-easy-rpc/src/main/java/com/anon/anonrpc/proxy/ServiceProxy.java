@@ -2,27 +2,39 @@ package com.anon.anonrpc.proxy;
 
 import cn.hutool.http.HttpRequest;
 import cn.hutool.http.HttpResponse;
-import com.anon.anonrpc.fault.CircuitBreaker;
+import com.anon.anonrpc.cache.ResponseCache;
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.context.DeadlineExceededException;
+import com.anon.anonrpc.context.RpcContext;
 import com.anon.anonrpc.fault.FallbackHandler;
 import com.anon.anonrpc.fault.RetryMechanism;
+import com.anon.anonrpc.model.CallKey;
 import com.anon.anonrpc.model.RpcRequest;
+import com.anon.anonrpc.model.RpcHeaders;
 import com.anon.anonrpc.model.RpcResponse;
+import com.anon.anonrpc.ratelimit.RateLimiter;
 import com.anon.anonrpc.serializer.JdkSerializer;
 import com.anon.anonrpc.serializer.Serializer;
+import com.anon.anonrpc.utils.ServiceAddress;
 import com.anon.anonrpc.registry.ServiceRegistry;
+import io.vertx.core.Context;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * 服务代理（JDK动态代理）
  */
 public class ServiceProxy implements InvocationHandler {
 
-    // 调用超时时间（毫秒）
-    private static final int TIMEOUT_MS = 3000;
+    // 执行重试调用的线程池
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool();
 
     /**
      * 调用代理
@@ -32,41 +44,115 @@ public class ServiceProxy implements InvocationHandler {
      */
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        // 从服务注册中心获取下一个服务实例
-        String serviceUrl = ServiceRegistry.getNextServiceUrl();
+        MethodPolicy policy = MethodPolicy.of(method);
         
-        // 如果熔断器显示服务不可用，直接返回降级结果
-        if (!CircuitBreaker.isAvailable(serviceUrl)) {
-            System.out.println("服务 " + serviceUrl + " 已熔断，使用降级处理");
-            return FallbackHandler.getFallbackResult(method, args);
+        // 单向调用写出请求后立即返回
+        if (policy.isOneWay()) {
+            OneWayInvoker.send(policy, args);
+            return null;
         }
         
+        // @Cacheable 方法先查客户端缓存，命中时不发出请求
+        CallKey cacheKey = null;
+        if (policy.isCacheable()) {
+            cacheKey = new CallKey(method, args);
+            Object cached = ConsumerCache.getInstance().get(cacheKey, () -> ServiceFailure.rethrow(refresh(policy, args)));
+            if (cached != ResponseCache.MISS) {
+                return cached;
+            }
+        }
+        
+        // 客户端限流，被拒绝时直接降级
+        if (RpcConfig.isClientRateLimitEnabled()
+                && !RateLimiter.CONSUMER.tryAcquire(policy.getServiceName(), policy.getMethodName())) {
+            return FallbackHandler.getFallbackResult(method, args, policy.isStaleIfError());
+        }
+        
+        CompletableFuture<Object> future = call(policy, args);
+        Object result;
         try {
-            // 使用重试机制执行RPC调用
-            return RetryMechanism.executeWithRetry(() -> {
+            result = future.get();
+        } catch (ExecutionException e) {
+            System.err.println("所有重试都失败，使用降级处理: " + e.getCause().getMessage());
+            return FallbackHandler.getFallbackResult(method, args, policy.isStaleIfError());
+        }
+        if (result instanceof ServiceFailure) {
+            throw ((ServiceFailure) result).exception;
+        }
+        if (cacheKey != null) {
+            ConsumerCache.getInstance().put(cacheKey, result, policy.getCacheTtlMs());
+        }
+        if (policy.isStaleIfError()) {
+            FallbackHandler.recordSuccess(method, args, result, policy.getMaxStaleMs());
+        }
+        return result;
+    }
+    
+    /**
+     * 发起带重试的调用，服务实现在本JVM中时直接调用
+     */
+    private CompletableFuture<Object> call(MethodPolicy policy, Object[] args) {
+        // 服务实现在本JVM中时直接调用，不序列化也不经过网络
+        if (LocalInvoker.isAvailable(policy)) {
+            return LocalInvoker.invoke(policy, args);
+        }
+        
+        // 所有重试共用一个截止时间，在服务方法中发起的调用不超过上游调用的剩余时间
+        long deadline = RpcContext.deadlineNanos(policy.getTimeoutMs());
+        
+        // 由重试机制选择实例（跳过已熔断的实例，重试时换一个实例）
+        return RetryMechanism.executeWithRetry(
+                serviceUrl -> attempt(serviceUrl, policy, args, deadline),
+                tried -> ServiceRegistry.getNextServiceUrl("default", tried),
+                policy.getRetries(), null, deadline);
+    }
+    
+    /**
+     * 提前刷新缓存：首次调用会在当前线程上执行阻塞的HTTP请求，所以转到线程池发起，不占用读取缓存的线程
+     */
+    private CompletableFuture<Object> refresh(MethodPolicy policy, Object[] args) {
+        return CompletableFuture.supplyAsync(() -> call(policy, args), EXECUTOR).thenCompose(future -> future);
+    }
+    
+    /**
+     * 发起一次调用：首次调用直接在调用线程上执行，
+     * 定时器触发的重试在事件循环线程上，需要转到线程池执行阻塞的HTTP调用
+     */
+    private CompletableFuture<Object> attempt(String serviceUrl, MethodPolicy policy, Object[] args, long deadline) {
+        if (Context.isOnEventLoopThread()) {
+            return CompletableFuture.supplyAsync(() -> {
                 try {
-                    return doInvoke(serviceUrl, method, args);
+                    return doInvoke(serviceUrl, policy, args, deadline);
                 } catch (Exception e) {
-                    throw new RuntimeException(e);
+                    throw new CompletionException(e);
                 }
-            }, serviceUrl);
+            }, EXECUTOR);
+        }
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        try {
+            future.complete(doInvoke(serviceUrl, policy, args, deadline));
         } catch (Exception e) {
-            System.err.println("所有重试都失败，使用降级处理");
-            return FallbackHandler.getFallbackResult(method, args);
+            future.completeExceptionally(e);
         }
+        return future;
     }
     
     /**
-     * 执行实际的RPC调用
+     * 执行实际的RPC调用，超时时间为距截止时间的剩余时间
      */
-    private Object doInvoke(String serviceUrl, Method method, Object[] args) throws Exception {
+    private Object doInvoke(String serviceUrl, MethodPolicy policy, Object[] args, long deadline) throws Exception {
+        long remainingMs = (deadline - System.nanoTime()) / 1_000_000L;
+        if (remainingMs <= 0) {
+            throw new DeadlineExceededException("调用 " + policy.getMethodName() + " 已超过截止时间");
+        }
+
         // 指定序列化器
         Serializer serializer = new JdkSerializer();
         // 构造请求
         RpcRequest rpcRequest = RpcRequest.builder()
-                .serviceName(method.getDeclaringClass().getName())
-                .methodName(method.getName())
-                .parameterTypes(method.getParameterTypes())
+                .serviceName(policy.getServiceName())
+                .methodName(policy.getMethodName())
+                .parameterTypes(policy.getParameterTypes())
                 .args(args)
                 .build();
         
@@ -75,15 +161,33 @@ public class ServiceProxy implements InvocationHandler {
         // 序列化
         byte[] bodyBytes = serializer.serialize(rpcRequest);
         
+        // hutool 只支持 TCP 上的 HTTP/1.1，Unix 域套接字和 HTTP/2 改用 Vert.x 客户端并在当前线程等待结果
+        if (ServiceAddress.isUnix(serviceUrl) || RpcConfig.isHttp2Enabled()) {
+            byte[] result;
+            try {
+                result = RpcHttpClient.post(serviceUrl, rpcRequest.getServiceName(), rpcRequest.getMethodName(),
+                        bodyBytes, remainingMs).get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+            return ServiceFailure.unwrap(serializer.deserialize(result, RpcResponse.class), policy);
+        }
+        
         // 发送请求，设置超时时间
         try (HttpResponse httpResponse = HttpRequest.post(serviceUrl)
+                .header(RpcHeaders.SERVICE, rpcRequest.getServiceName())
+                .header(RpcHeaders.METHOD, rpcRequest.getMethodName())
+                .header(RpcHeaders.TIMEOUT, Long.toString(remainingMs))
                 .body(bodyBytes)
-                .timeout(TIMEOUT_MS) // 设置超时时间
+                .timeout((int) remainingMs) // 设置超时时间
                 .execute()) {
             
             // 检查HTTP状态码
             int status = httpResponse.getStatus();
             System.out.println("HTTP响应状态码: " + status);
+            if (status != 200) {
+                throw new IOException("HTTP请求失败，状态码: " + status);
+            }
             
             // 获取响应内容
             byte[] result = httpResponse.bodyBytes();
@@ -96,7 +200,7 @@ public class ServiceProxy implements InvocationHandler {
             
             // 反序列化
             RpcResponse rpcResponse = serializer.deserialize(result, RpcResponse.class);
-            return rpcResponse.getData();
+            return ServiceFailure.unwrap(rpcResponse, policy);
         }
     }
 }
@@ -1,5 +1,7 @@
 package com.anon.anonrpc.proxy;
 
+import com.anon.anonrpc.ratelimit.RateLimiter;
+
 import java.lang.reflect.Proxy;
 
 /**
@@ -14,6 +16,10 @@ public class ServiceProxyFactory {
      * @return
      */
     public static <T> T getProxy(Class<T> serviceClass) {
+        // 读取服务接口上的 @RateLimit 客户端限流配置
+        RateLimiter.CONSUMER.register(serviceClass.getName(), serviceClass);
+        // 预先解析各方法的调用策略
+        MethodPolicy.resolve(serviceClass);
         return (T) Proxy.newProxyInstance(
                 serviceClass.getClassLoader(),
                 new Class[]{serviceClass},
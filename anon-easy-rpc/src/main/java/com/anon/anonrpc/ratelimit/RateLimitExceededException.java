@@ -0,0 +1,24 @@
+package com.anon.anonrpc.ratelimit;
+
+/**
+ * 限流拒绝
+ * 客户端限流器拒绝时为 INSTANCE；服务端限流器拒绝（远程服务端返回 429，或本JVM内的服务端限流器拒绝）时为 PROVIDER。
+ * 请求没有被执行，实例本身是健康的，不计入熔断和离群统计。
+ * 不记录堆栈、各自全局共用一个实例，被拒绝的调用不分配对象
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    /**
+     * 客户端限流拒绝
+     */
+    public static final RateLimitExceededException INSTANCE = new RateLimitExceededException("超过客户端限流");
+
+    /**
+     * 服务端限流拒绝
+     */
+    public static final RateLimitExceededException PROVIDER = new RateLimitExceededException("超过服务端限流");
+
+    private RateLimitExceededException(String message) {
+        super(message, null, false, false);
+    }
+}
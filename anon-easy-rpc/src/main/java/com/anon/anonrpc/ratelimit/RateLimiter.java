@@ -0,0 +1,125 @@
+package com.anon.anonrpc.ratelimit;
+
+import com.anon.anonrpc.annotation.RateLimit;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 限流器 - 按服务和方法两级令牌桶限流
+ * 服务端和客户端各用一个实例：服务端在反序列化请求之前检查，客户端在代理发出请求之前检查（默认关闭）。
+ * 没有配置限制的服务只多一次Map查询；被拒绝的调用不分配对象
+ */
+public class RateLimiter {
+
+    /**
+     * 服务端限流器
+     */
+    public static final RateLimiter PROVIDER = new RateLimiter();
+
+    /**
+     * 客户端限流器
+     */
+    public static final RateLimiter CONSUMER = new RateLimiter();
+
+    // 服务名 -> 该服务的限制
+    private final Map<String, Limits> services = new ConcurrentHashMap<>();
+
+    /**
+     * 尝试通过限流
+     * @param serviceName 服务名称
+     * @param methodName 方法名称，可以为null（只检查服务级限制）
+     * @return 是否放行
+     */
+    public boolean tryAcquire(String serviceName, String methodName) {
+        if (serviceName == null) {
+            return true;
+        }
+        Limits limits = services.get(serviceName);
+        if (limits == null) {
+            return true;
+        }
+        TokenBucket method = methodName != null && !limits.methods.isEmpty() ? limits.methods.get(methodName) : null;
+        if (method != null && !method.tryAcquire()) {
+            return false;
+        }
+        TokenBucket service = limits.service;
+        if (service == null || service.tryAcquire()) {
+            return true;
+        }
+        // 服务级拒绝时调用没有执行，归还已取得的方法级令牌
+        if (method != null) {
+            method.release();
+        }
+        return false;
+    }
+
+    /**
+     * 设置服务级限制
+     * @param serviceName 服务名称
+     * @param permitsPerSecond 每秒请求数
+     * @param burst 突发容量
+     */
+    public void setServiceLimit(String serviceName, double permitsPerSecond, int burst) {
+        limits(serviceName).service = new TokenBucket(permitsPerSecond, burst);
+    }
+
+    /**
+     * 设置方法级限制
+     */
+    public void setMethodLimit(String serviceName, String methodName, double permitsPerSecond, int burst) {
+        limits(serviceName).methods.put(methodName, new TokenBucket(permitsPerSecond, burst));
+    }
+
+    /**
+     * 移除服务及其所有方法的限制
+     */
+    public void removeLimits(String serviceName) {
+        services.remove(serviceName);
+    }
+
+    /**
+     * 读取类型（及其接口）上的 @RateLimit 注解，为还没有显式配置的服务和方法设置限制
+     * @param serviceName 服务名称
+     * @param type 服务实现类或服务接口
+     */
+    public void register(String serviceName, Class<?> type) {
+        List<Class<?>> types = new ArrayList<>();
+        types.add(type);
+        for (Class<?> iface : type.getInterfaces()) {
+            types.add(iface);
+        }
+        for (Class<?> candidate : types) {
+            RateLimit limit = candidate.getAnnotation(RateLimit.class);
+            if (limit != null && limits(serviceName).service == null) {
+                setServiceLimit(serviceName, limit.permitsPerSecond(), burst(limit));
+            }
+            for (Method method : candidate.getDeclaredMethods()) {
+                limit = method.getAnnotation(RateLimit.class);
+                if (limit != null) {
+                    limits(serviceName).methods.putIfAbsent(method.getName(),
+                            new TokenBucket(limit.permitsPerSecond(), burst(limit)));
+                }
+            }
+        }
+    }
+
+    private Limits limits(String serviceName) {
+        return services.computeIfAbsent(serviceName, k -> new Limits());
+    }
+
+    private static int burst(RateLimit limit) {
+        return limit.burst() > 0 ? limit.burst() : (int) Math.max(1, Math.ceil(limit.permitsPerSecond()));
+    }
+
+    /**
+     * 单个服务的限制
+     */
+    private static final class Limits {
+        volatile TokenBucket service;
+        final Map<String, TokenBucket> methods = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,70 @@
+package com.anon.anonrpc.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁令牌桶（GCRA 形式）
+ * 不单独维护令牌数和补充时间，只保存一个"理论到达时间" TAT：每发放一个令牌 TAT 后移一个发放间隔，
+ * TAT 超前当前时间超过突发容量时拒绝。发放令牌是一次 CAS，拒绝只读一次 volatile 字段，不分配对象，
+ * 也不需要后台线程补充令牌
+ */
+public final class TokenBucket {
+    // 发放一个令牌的间隔（纳秒）
+    private final long intervalNanos;
+    // 允许 TAT 超前当前时间的最大值，即突发容量
+    private final long burstNanos;
+    private final AtomicLong tat;
+
+    /**
+     * @param permitsPerSecond 每秒令牌数
+     * @param burst 突发容量（桶大小），至少为1
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond必须大于0");
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.burstNanos = intervalNanos * Math.max(1, burst);
+        this.tat = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * 尝试取一个令牌
+     * @return 是否取得
+     */
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+        for (;;) {
+            long current = tat.get();
+            long next = Math.max(current, now) + intervalNanos;
+            if (next - now > burstNanos) {
+                return false;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 归还 tryAcquire 取得、但最终没有使用的令牌（TAT 前移一个发放间隔）
+     * 只能在 tryAcquire 返回 true 之后调用一次
+     */
+    public void release() {
+        tat.addAndGet(-intervalNanos);
+    }
+
+    /**
+     * 每秒令牌数
+     */
+    public double getPermitsPerSecond() {
+        return 1_000_000_000.0 / intervalNanos;
+    }
+
+    /**
+     * 突发容量
+     */
+    public int getBurst() {
+        return (int) (burstNanos / intervalNanos);
+    }
+}
@@ -0,0 +1,101 @@
+package com.anon.anonrpc.registry;
+
+import com.anon.anonrpc.model.ServiceInstance;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 候选实例集合 - 注册表按服务类型、可用区、版本、标签预先建好的不可变集合
+ * 同时预先计算累计权重，加权选择只需一次二分查找；集合随成员变化整体重建
+ */
+public final class InstanceSet {
+    static final InstanceSet EMPTY = new InstanceSet(new ServiceInstance[0]);
+
+    private final ServiceInstance[] instances;
+    // cumulativeWeights[i] 为前 i+1 个实例的权重之和
+    private final long[] cumulativeWeights;
+    private final long totalWeight;
+
+    // 轮询游标，随集合一起重建；从随机位置开始，避免频繁重建时总是偏向前几个实例
+    private final AtomicInteger cursor = new AtomicInteger(ThreadLocalRandom.current().nextInt(1 << 16));
+
+    InstanceSet(ServiceInstance[] instances) {
+        this.instances = instances;
+        this.cumulativeWeights = new long[instances.length];
+        long sum = 0;
+        for (int i = 0; i < instances.length; i++) {
+            sum += Math.max(0, instances[i].getWeight());
+            cumulativeWeights[i] = sum;
+        }
+        this.totalWeight = sum;
+    }
+
+    public int size() {
+        return instances.length;
+    }
+
+    public boolean isEmpty() {
+        return instances.length == 0;
+    }
+
+    public ServiceInstance get(int index) {
+        return instances[index];
+    }
+
+    /**
+     * 总权重
+     */
+    public long totalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * 轮询取下一个实例
+     */
+    public ServiceInstance next() {
+        return instances[Math.floorMod(cursor.getAndIncrement(), instances.length)];
+    }
+
+    /**
+     * 轮询取下一个不在 excluded 中的实例（用于重试时换一个实例）
+     * @return 全部被排除时返回null
+     */
+    public ServiceInstance nextExcluding(Collection<String> excluded) {
+        int start = cursor.getAndIncrement();
+        for (int i = 0; i < instances.length; i++) {
+            ServiceInstance instance = instances[Math.floorMod(start + i, instances.length)];
+            if (!excluded.contains(instance.getUrl())) {
+                return instance;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按累计权重定位实例
+     * @param point 取值范围 [0, totalWeight)
+     */
+    public ServiceInstance atWeight(long point) {
+        int index = Arrays.binarySearch(cumulativeWeights, point + 1);
+        if (index < 0) {
+            return instances[-index - 1];
+        }
+        // 命中时跳过前面权重为0的实例（它们与命中位置的累计值相同）
+        while (index > 0 && cumulativeWeights[index - 1] == cumulativeWeights[index]) {
+            index--;
+        }
+        return instances[index];
+    }
+
+    /**
+     * 只读列表视图，不拷贝
+     */
+    public List<ServiceInstance> asList() {
+        return Collections.unmodifiableList(Arrays.asList(instances));
+    }
+}
@@ -1,5 +1,7 @@
 package com.anon.anonrpc.registry;
 
+import com.anon.anonrpc.ratelimit.RateLimiter;
+
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -13,12 +15,19 @@ public class LocalRegistry {
     private static final Map<String, Class<?>> map = new ConcurrentHashMap<>();
 
     /**
-     * 注册服务
+     * 服务实例，每个服务一个，远程调用和同一JVM内的直接调用共用
+     */
+    private static final Map<String, Object> instances = new ConcurrentHashMap<>();
+
+    /**
+     * 注册服务，同时读取实现类上的 @RateLimit 限流配置
      * @param serviceName
      * @param implClass
      */
     public static void register(String serviceName, Class<?> implClass) {
         map.put(serviceName, implClass);
+        instances.remove(serviceName);
+        RateLimiter.PROVIDER.register(serviceName, implClass);
     }
 
     /**
@@ -30,11 +39,35 @@ public class LocalRegistry {
         return map.get(serviceName);
     }
 
+    /**
+     * 获取服务实例，第一次获取时用无参构造器创建
+     * @param serviceName
+     * @return 服务实例，服务未注册时返回null
+     */
+    public static Object getInstance(String serviceName) {
+        Object instance = instances.get(serviceName);
+        if (instance != null) {
+            return instance;
+        }
+        Class<?> implClass = map.get(serviceName);
+        if (implClass == null) {
+            return null;
+        }
+        return instances.computeIfAbsent(serviceName, key -> {
+            try {
+                return implClass.getDeclaredConstructor().newInstance();
+            } catch (Exception e) {
+                throw new RuntimeException("创建服务实例失败: " + key, e);
+            }
+        });
+    }
+
     /**
      * 删除服务
      * @param serviceName
      */
     public static void remove(String serviceName) {
         map.remove(serviceName);
+        instances.remove(serviceName);
     }
 }
@@ -0,0 +1,488 @@
+package com.anon.anonrpc.registry;
+
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.model.ServiceInstance;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 注册中心集群节点 - 基于版本向量的反熵复制
+ * 每个节点都可以接受写入并在本地提供读取，写入按 (Lamport时钟, 节点ID) 后写者胜出，
+ * 节点周期性地与随机对端交换版本向量，只传输对方缺少的条目（推拉结合）
+ * 注销以墓碑条目保留，所有对端都确认收到且超过保留时间后回收
+ * 同一台机器上可以用不同端口启动多个节点
+ */
+public class RegistryClusterNode extends AbstractVerticle implements RegistryListener {
+
+    private static final String SYNC_PATH = "/cluster/sync";
+    private static final String PUSH_PATH = "/cluster/push";
+
+    private final String nodeId;
+    private final int clusterPort;
+    private final List<String> peers;
+
+    // Lamport时钟
+    private final AtomicLong clock = new AtomicLong();
+    // 每个 服务类型+URL 的最新版本
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // 按来源节点、来源序号排序的条目索引，被覆盖的旧版本会移除
+    private final Map<String, ConcurrentSkipListMap<Long, Entry>> originIndex = new ConcurrentHashMap<>();
+    // 版本向量：已接收的各来源节点的最大序号（本节点除外）
+    private final Map<String, Long> versionVector = new ConcurrentHashMap<>();
+    // 注销条目（墓碑），按产生顺序排列，等待回收
+    private final Queue<Tombstone> tombstones = new ConcurrentLinkedQueue<>();
+    // 各对端已确认的版本向量，同步成功时更新，只在事件循环线程上访问
+    private final Map<String, Map<String, Long>> peerVersions = new HashMap<>();
+
+    // 本节点序号，分配序号和写入索引需原子完成，保证读到的序号之前的条目都已入索引
+    private final Object localWriteLock = new Object();
+    private long localSeq;
+
+    private HttpClient client;
+    private long gossipTimer;
+    // 只在事件循环线程上访问
+    private boolean gossipInFlight;
+
+    /**
+     * @param host 本节点对外地址
+     * @param clusterPort 集群同步端口
+     * @param peers 其他节点地址列表，格式 host:port
+     */
+    public RegistryClusterNode(String host, int clusterPort, List<String> peers) {
+        this.nodeId = host + ":" + clusterPort;
+        this.clusterPort = clusterPort;
+        this.peers = new ArrayList<>(peers);
+        this.peers.remove(nodeId);
+    }
+
+    @Override
+    public void start(Promise<Void> startPromise) {
+        client = vertx.createHttpClient(new HttpClientOptions()
+                .setKeepAlive(true)
+                .setTcpNoDelay(true)
+                .setMaxPoolSize(2));
+
+        // 先挂监听器再导入已有数据，避免遗漏中间的写入
+        ServiceRegistry.setListener(this);
+        for (Map.Entry<String, List<ServiceInstance>> service : ServiceRegistry.snapshotState().entrySet()) {
+            for (ServiceInstance instance : service.getValue()) {
+                if (!entries.containsKey(key(service.getKey(), instance.getUrl()))) {
+                    onChange(service.getKey(), instance, true);
+                }
+            }
+        }
+
+        vertx.createHttpServer()
+                .requestHandler(this::handle)
+                .listen(clusterPort, ar -> {
+                    if (ar.succeeded()) {
+                        gossipTimer = vertx.setPeriodic(RpcConfig.getRegistryGossipIntervalMs(), id -> {
+                            gossip();
+                            collectTombstones();
+                        });
+                        System.out.println("注册中心集群节点 " + nodeId + " 已启动，对端: " + peers);
+                        startPromise.complete();
+                    } else {
+                        startPromise.fail(ar.cause());
+                    }
+                });
+    }
+
+    @Override
+    public void stop() {
+        vertx.cancelTimer(gossipTimer);
+        ServiceRegistry.setListener(null);
+    }
+
+    /**
+     * 本地写入（在URL分段锁内回调）
+     */
+    @Override
+    public void onChange(String serviceType, ServiceInstance instance, boolean registered) {
+        long lamport = clock.incrementAndGet();
+        String key = key(serviceType, instance.getUrl());
+        synchronized (localWriteLock) {
+            long seq = localSeq + 1;
+            Entry entry = new Entry(serviceType, instance, registered, lamport, nodeId, seq);
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                removeFromIndex(previous);
+            }
+            originIndex.computeIfAbsent(nodeId, k -> new ConcurrentSkipListMap<>()).put(seq, entry);
+            localSeq = seq;
+            if (!registered) {
+                tombstones.add(new Tombstone(key, entry));
+            }
+        }
+    }
+
+    /**
+     * 一轮反熵：向随机对端发送本节点版本向量，拉取对方多出的条目，再推送对方缺少的条目
+     */
+    private void gossip() {
+        // 上一轮未完成时跳过，避免携带过期版本向量的请求堆积（对端不可用时同样等待下一轮）
+        if (peers.isEmpty() || gossipInFlight) {
+            return;
+        }
+        gossipInFlight = true;
+        String peer = peers.get(ThreadLocalRandom.current().nextInt(peers.size()));
+        JsonObject request = new JsonObject().put("vv", currentVersionVector());
+        post(peer, SYNC_PATH, request)
+                .compose(response -> {
+                    applyDelta(response);
+                    JsonObject peerVv = versionVector(response.getValue("peerVv"));
+                    recordPeerVersions(peer, peerVv);
+                    JsonObject push = buildDelta(peerVv);
+                    if (push.getJsonArray("entries").isEmpty()) {
+                        return Future.succeededFuture();
+                    }
+                    return post(peer, PUSH_PATH, push)
+                            .onSuccess(ack -> recordPeerVersions(peer, push.getJsonObject("vv")));
+                })
+                .onComplete(ar -> gossipInFlight = false);
+    }
+
+    private void recordPeerVersions(String peer, JsonObject vv) {
+        Map<String, Long> known = peerVersions.computeIfAbsent(peer, k -> new HashMap<>());
+        for (String origin : vv.fieldNames()) {
+            known.merge(origin, vv.getLong(origin), Math::max);
+        }
+    }
+
+    /**
+     * 回收所有对端都已收到的墓碑
+     * 只确认过对端收到还不够：对端可能还没收到同一URL上更早的注册，墓碑回收后那条注册会被当作新写入，
+     * 因此墓碑还要保留 registryTombstoneGraceMs，让反熵有足够时间把更早的条目传播到所有节点
+     */
+    private void collectTombstones() {
+        long deadline = System.currentTimeMillis() - RpcConfig.getRegistryTombstoneGraceMs();
+        for (Iterator<Tombstone> it = tombstones.iterator(); it.hasNext(); ) {
+            Tombstone tombstone = it.next();
+            if (entries.get(tombstone.key) != tombstone.entry) {
+                // 已被更新的条目覆盖，墓碑已随之移出索引
+                it.remove();
+            } else if (tombstone.createdAt <= deadline && seenByAllPeers(tombstone.entry)) {
+                if (entries.remove(tombstone.key, tombstone.entry)) {
+                    removeFromIndex(tombstone.entry);
+                }
+                it.remove();
+            }
+        }
+    }
+
+    private boolean seenByAllPeers(Entry entry) {
+        for (String peer : peers) {
+            Map<String, Long> known = peerVersions.get(peer);
+            if (known == null || known.getOrDefault(entry.origin, 0L) < entry.seq) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void handle(HttpServerRequest request) {
+        String path = request.path();
+        if (!SYNC_PATH.equals(path) && !PUSH_PATH.equals(path)) {
+            request.response().setStatusCode(404).end();
+            return;
+        }
+        request.body()
+                .onSuccess(body -> {
+                    // 在事件循环上执行，任何异常都要结束响应，否则对端只能等到超时
+                    try {
+                        JsonObject message = parse(body);
+                        JsonObject reply;
+                        if (SYNC_PATH.equals(path)) {
+                            JsonObject remoteVv = versionVector(message.getValue("vv"));
+                            // 版本向量要先于差量读取，差量中多出的条目是无害的
+                            JsonObject peerVv = currentVersionVector();
+                            reply = buildDelta(remoteVv).put("peerVv", peerVv);
+                        } else {
+                            applyDelta(message);
+                            reply = new JsonObject();
+                        }
+                        request.response()
+                                .putHeader("content-type", "application/json")
+                                .end(reply.toBuffer());
+                    } catch (IllegalArgumentException e) {
+                        reject(request, 400, e.getMessage());
+                    } catch (RuntimeException e) {
+                        System.err.println("处理集群同步请求失败: " + e);
+                        reject(request, 500, String.valueOf(e.getMessage()));
+                    }
+                })
+                .onFailure(error -> reject(request, 400, "读取请求体失败: " + error.getMessage()));
+    }
+
+    private static void reject(HttpServerRequest request, int status, String message) {
+        HttpServerResponse response = request.response();
+        if (!response.ended() && !response.closed()) {
+            response.setStatusCode(status).end(message);
+        }
+    }
+
+    private static JsonObject parse(Buffer body) {
+        try {
+            return body.toJsonObject();
+        } catch (DecodeException e) {
+            throw new IllegalArgumentException("请求体不是JSON对象: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 校验版本向量：来源节点 -> 序号
+     */
+    private static JsonObject versionVector(Object value) {
+        if (!(value instanceof JsonObject)) {
+            throw new IllegalArgumentException("缺少版本向量");
+        }
+        JsonObject vv = (JsonObject) value;
+        for (String origin : vv.fieldNames()) {
+            if (!(vv.getValue(origin) instanceof Number)) {
+                throw new IllegalArgumentException("版本向量中 " + origin + " 的序号不是数字");
+            }
+        }
+        return vv;
+    }
+
+    private Future<JsonObject> post(String peer, String path, JsonObject body) {
+        int idx = peer.lastIndexOf(':');
+        String host = peer.substring(0, idx);
+        int port = Integer.parseInt(peer.substring(idx + 1));
+        Buffer payload = body.toBuffer();
+        RequestOptions options = new RequestOptions()
+                .setMethod(HttpMethod.POST)
+                .setHost(host)
+                .setPort(port)
+                .setURI(path)
+                .setTimeout(RpcConfig.getTimeoutMs());
+        return client.request(options)
+                .compose(req -> req.putHeader("content-type", "application/json").send(payload))
+                .compose(resp -> resp.body().compose(content -> resp.statusCode() == 200
+                        ? Future.succeededFuture(content)
+                        : Future.failedFuture("对端 " + peer + " 返回 " + resp.statusCode() + ": " + content)))
+                .map(Buffer::toJsonObject);
+    }
+
+    /**
+     * 计算对端缺少的条目
+     * @param remoteVv 对端版本向量
+     * @return entries 为条目列表，vv 为本次发送后对端可以确认的版本向量（截断时只确认到已发送的位置）
+     */
+    private JsonObject buildDelta(JsonObject remoteVv) {
+        JsonObject effective = new JsonObject();
+        JsonArray out = new JsonArray();
+        int budget = RpcConfig.getRegistryGossipBatchSize();
+        for (Map.Entry<String, ConcurrentSkipListMap<Long, Entry>> origin : originIndex.entrySet()) {
+            long known = remoteVv.getLong(origin.getKey(), 0L);
+            long mine = currentVersion(origin.getKey());
+            if (mine <= known) {
+                continue;
+            }
+            ConcurrentNavigableMap<Long, Entry> tail = origin.getValue().subMap(known, false, mine, true);
+            long sent = mine;
+            for (Entry entry : tail.values()) {
+                if (budget-- <= 0) {
+                    sent = -1;
+                    break;
+                }
+                out.add(entry.toJson());
+                known = entry.seq;
+            }
+            effective.put(origin.getKey(), sent < 0 ? known : sent);
+            if (sent < 0) {
+                break;
+            }
+        }
+        return new JsonObject().put("vv", effective).put("entries", out);
+    }
+
+    /**
+     * 应用对端发来的条目并推进版本向量
+     * 先解析并校验全部条目，格式错误时一条也不应用
+     * @throws IllegalArgumentException 差量格式错误
+     */
+    private void applyDelta(JsonObject delta) {
+        JsonObject vv = versionVector(delta.getValue("vv"));
+        Object value = delta.getValue("entries");
+        if (!(value instanceof JsonArray)) {
+            throw new IllegalArgumentException("缺少条目列表");
+        }
+        JsonArray array = (JsonArray) value;
+        List<Entry> received = new ArrayList<>(array.size());
+        for (int i = 0; i < array.size(); i++) {
+            received.add(Entry.fromJson(array.getValue(i)));
+        }
+        for (Entry entry : received) {
+            if (nodeId.equals(entry.origin)) {
+                continue;
+            }
+            clock.accumulateAndGet(entry.lamport, Math::max);
+            ServiceRegistry.applyReplicated(entry.serviceType, entry.instance, entry.registered, () -> accept(entry));
+        }
+        for (String origin : vv.fieldNames()) {
+            if (!nodeId.equals(origin)) {
+                versionVector.merge(origin, vv.getLong(origin), Math::max);
+            }
+        }
+    }
+
+    /**
+     * 版本比较（在URL分段锁内执行），较新时替换本地条目
+     */
+    private boolean accept(Entry entry) {
+        String key = key(entry.serviceType, entry.instance.getUrl());
+        Entry current = entries.get(key);
+        if (current != null && !entry.newerThan(current)) {
+            return false;
+        }
+        entries.put(key, entry);
+        if (current != null) {
+            removeFromIndex(current);
+        }
+        originIndex.computeIfAbsent(entry.origin, k -> new ConcurrentSkipListMap<>()).put(entry.seq, entry);
+        if (!entry.registered) {
+            tombstones.add(new Tombstone(key, entry));
+        }
+        return true;
+    }
+
+    private void removeFromIndex(Entry entry) {
+        ConcurrentSkipListMap<Long, Entry> index = originIndex.get(entry.origin);
+        if (index != null) {
+            index.remove(entry.seq, entry);
+        }
+    }
+
+    private long currentVersion(String origin) {
+        if (nodeId.equals(origin)) {
+            synchronized (localWriteLock) {
+                return localSeq;
+            }
+        }
+        return versionVector.getOrDefault(origin, 0L);
+    }
+
+    private JsonObject currentVersionVector() {
+        JsonObject vv = new JsonObject();
+        for (Map.Entry<String, Long> origin : versionVector.entrySet()) {
+            vv.put(origin.getKey(), origin.getValue());
+        }
+        vv.put(nodeId, currentVersion(nodeId));
+        return vv;
+    }
+
+    private static String key(String serviceType, String serviceUrl) {
+        return serviceType + '\u0000' + serviceUrl;
+    }
+
+    /**
+     * 等待回收的墓碑
+     */
+    private static final class Tombstone {
+        final String key;
+        final Entry entry;
+        final long createdAt = System.currentTimeMillis();
+
+        Tombstone(String key, Entry entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * 复制条目（不可变）
+     */
+    private static final class Entry {
+        final String serviceType;
+        final ServiceInstance instance;
+        final boolean registered;
+        final long lamport;
+        final String origin;
+        final long seq;
+
+        Entry(String serviceType, ServiceInstance instance, boolean registered, long lamport, String origin, long seq) {
+            this.serviceType = serviceType;
+            this.instance = instance;
+            this.registered = registered;
+            this.lamport = lamport;
+            this.origin = origin;
+            this.seq = seq;
+        }
+
+        boolean newerThan(Entry other) {
+            if (lamport != other.lamport) {
+                return lamport > other.lamport;
+            }
+            return origin.compareTo(other.origin) > 0;
+        }
+
+        JsonArray toJson() {
+            JsonArray json = new JsonArray().add(serviceType).add(instance.getUrl()).add(registered)
+                    .add(lamport).add(origin).add(seq);
+            // 只有注册且带元数据时追加 [权重, 可用区, 版本, [标签...]]
+            if (registered && !instance.isBare()) {
+                json.add(instance.getWeight()).add(instance.getZone()).add(instance.getVersion())
+                        .add(new JsonArray(new ArrayList<>(instance.getTags())));
+            }
+            return json;
+        }
+
+        /**
+         * @throws IllegalArgumentException 条目缺少字段或字段类型不对
+         */
+        static Entry fromJson(Object value) {
+            if (!(value instanceof JsonArray) || (((JsonArray) value).size() != 6 && ((JsonArray) value).size() != 10)) {
+                throw new IllegalArgumentException("条目格式错误: " + value);
+            }
+            JsonArray json = (JsonArray) value;
+            try {
+                ServiceInstance.ServiceInstanceBuilder builder = ServiceInstance.builder().url(required(json.getString(1)));
+                if (json.size() > 6) {
+                    builder.weight(json.getInteger(6))
+                            .zone(required(json.getString(7)))
+                            .version(required(json.getString(8)));
+                    JsonArray tags = json.getJsonArray(9);
+                    for (int i = 0; i < tags.size(); i++) {
+                        builder.tag(required(tags.getString(i)));
+                    }
+                }
+                return new Entry(required(json.getString(0)), builder.build(), json.getBoolean(2),
+                        json.getLong(3), required(json.getString(4)), json.getLong(5));
+            } catch (ClassCastException | NullPointerException e) {
+                throw new IllegalArgumentException("条目格式错误: " + json);
+            }
+        }
+
+        private static String required(String value) {
+            if (value == null) {
+                throw new NullPointerException();
+            }
+            return value;
+        }
+    }
+}
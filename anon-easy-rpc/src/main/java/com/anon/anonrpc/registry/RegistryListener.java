@@ -0,0 +1,19 @@
+package com.anon.anonrpc.registry;
+
+import com.anon.anonrpc.model.ServiceInstance;
+
+/**
+ * 注册表变更监听器 - 用于集群复制等场景
+ * 回调在URL分段锁内执行，实现应尽量轻量（例如只入队）
+ */
+public interface RegistryListener {
+
+    /**
+     * 本地发生注册或注销
+     *
+     * @param serviceType 服务类型
+     * @param instance    注册时为完整实例（含元数据），注销时只有URL有意义
+     * @param registered  true为注册，false为注销
+     */
+    void onChange(String serviceType, ServiceInstance instance, boolean registered);
+}
@@ -0,0 +1,72 @@
+package com.anon.anonrpc.registry;
+
+import com.anon.anonrpc.model.ServiceInstance;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 注册中心分片 - 按服务类型哈希划分，每个分片拥有独立的存储和序号
+ * 分片之间没有共享的锁或计数器，清空、快照等跨分片操作逐个分片进行，不需要全局停顿
+ */
+final class RegistryShard {
+    // 本分片内各服务类型的实例集合
+    private final Map<String, ServiceGroup> groups = new ConcurrentHashMap<>();
+
+    // 本分片的修改序号，每次注册/注销/清空递增
+    final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * 获取服务类型对应的实例集合，不存在时创建
+     */
+    ServiceGroup group(String serviceType) {
+        // 先无锁读取，避免 computeIfAbsent 在键已存在时仍然锁住哈希桶
+        ServiceGroup group = groups.get(serviceType);
+        return group != null ? group : groups.computeIfAbsent(serviceType, k -> new ServiceGroup());
+    }
+
+    /**
+     * 获取服务类型对应的实例集合，不存在时返回null
+     */
+    ServiceGroup get(String serviceType) {
+        return groups.get(serviceType);
+    }
+
+    /**
+     * 本分片当前的服务类型（弱一致视图）
+     */
+    Set<String> types() {
+        return groups.keySet();
+    }
+
+    /**
+     * 逐个服务类型清空本分片
+     * @param onCleared 在该服务类型的全部分段锁内回调（用于记录日志），保证与并发写入的顺序一致
+     */
+    void clear(Consumer<String> onCleared) {
+        for (Map.Entry<String, ServiceGroup> entry : groups.entrySet()) {
+            ServiceGroup group = entry.getValue();
+            group.retire(() -> {
+                groups.remove(entry.getKey(), group);
+                sequence.incrementAndGet();
+                onCleared.accept(entry.getKey());
+            });
+        }
+    }
+
+    /**
+     * 将本分片的当前状态写入 out
+     * @return 快照对应的分片序号
+     */
+    long snapshot(Map<String, List<ServiceInstance>> out) {
+        long seq = sequence.get();
+        for (Map.Entry<String, ServiceGroup> entry : groups.entrySet()) {
+            out.put(entry.getKey(), entry.getValue().view().registered.asList());
+        }
+        return seq;
+    }
+}
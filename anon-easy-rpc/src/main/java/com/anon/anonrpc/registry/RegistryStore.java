@@ -0,0 +1,600 @@
+package com.anon.anonrpc.registry;
+
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.model.ServiceInstance;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * 注册中心持久化存储 - 追加日志 + 定期快照
+ * 注册/注销事件由单独的写线程批量写入日志（组提交，每批一次 write + fsync），
+ * append 返回的 future 在所在批次落盘后完成，调用方等待它即可确认注册已持久化；
+ * 写入失败时该批及之后的所有事件都以 IOException 结束，不会在确认之后被静默丢弃（日志尾部可能已损坏，不再继续追加）。
+ * 快照线程定期切换日志代并写出压缩后的全量快照，重启时按 快照 + 日志尾部 重建状态
+ */
+public class RegistryStore implements Closeable {
+    // 事件类型
+    static final byte OP_REGISTER = 1;
+    static final byte OP_UNREGISTER = 2;
+    static final byte OP_CLEAR = 3;
+
+    private static final int SNAPSHOT_MAGIC = 0x414E5253; // "ANRS"，只有URL
+    private static final int SNAPSHOT_MAGIC_V2 = 0x414E5232; // "ANR2"，含实例元数据
+    private static final String LOG_PREFIX = "registry-";
+    private static final String LOG_SUFFIX = ".log";
+    private static final String SNAPSHOT_FILE = "registry.snapshot";
+
+    // 单条日志记录头：长度(4) + 校验和尾(4)
+    private static final int RECORD_OVERHEAD = 8;
+    // 字符串字段的2字节长度前缀能表示的最大字节数，同时也是标签数上限
+    private static final int MAX_FIELD_LENGTH = 0xFFFF;
+    // 停止写线程的标记事件（不能用中断，中断会关闭正在写的FileChannel）
+    private static final LogEvent STOP = new LogEvent((byte) 0, "", null);
+
+    private final Path dir;
+    private final Supplier<Map<String, List<ServiceInstance>>> stateSupplier;
+
+    // 待写入事件队列，由写线程批量消费
+    private final BlockingQueue<LogEvent> queue = new LinkedBlockingQueue<>();
+    // 写缓冲区，写线程独占复用
+    private ByteBuffer writeBuffer = ByteBuffer.allocateDirect(64 * 1024);
+    private final CRC32 crc = new CRC32();
+
+    // 当前日志代及通道，切换日志代时需持有 this 锁
+    private long generation;
+    private FileChannel logChannel;
+    private volatile long recordsSinceSnapshot;
+
+    // 第一次写日志失败的原因，之后的事件直接失败
+    private volatile IOException failure;
+
+    private Thread writerThread;
+    private ScheduledExecutorService snapshotExecutor;
+    private volatile boolean running;
+    // close 已取走队列中剩余事件，之后入队的事件由 append 自己失败掉（持有 this 锁读写）
+    private boolean closed;
+
+    /**
+     * @param dir 数据目录
+     * @param stateSupplier 当前注册表状态提供者（用于生成快照）
+     */
+    public RegistryStore(Path dir, Supplier<Map<String, List<ServiceInstance>>> stateSupplier) {
+        this.dir = dir;
+        this.stateSupplier = stateSupplier;
+    }
+
+    /**
+     * 从快照和日志尾部恢复注册表状态，并打开新的日志代用于追加
+     * @return 服务类型 -> (服务URL -> 实例)
+     */
+    public Map<String, LinkedHashMap<String, ServiceInstance>> recover() throws IOException {
+        Files.createDirectories(dir);
+        long start = System.nanoTime();
+        Map<String, LinkedHashMap<String, ServiceInstance>> state = new HashMap<>();
+
+        long snapshotGeneration = readSnapshot(state);
+        long lastGeneration = snapshotGeneration;
+        int replayed = 0;
+        for (long gen : listLogGenerations()) {
+            if (gen < snapshotGeneration) {
+                // 已被快照覆盖的旧日志
+                Files.deleteIfExists(logPath(gen));
+                continue;
+            }
+            replayed += replayLog(logPath(gen), state);
+            lastGeneration = Math.max(lastGeneration, gen);
+        }
+
+        // 始终在新的日志代上追加，避免继续写可能被截断的尾部
+        generation = lastGeneration + 1;
+        logChannel = openLog(generation);
+        recordsSinceSnapshot = replayed;
+
+        int total = 0;
+        for (Map<String, ServiceInstance> instances : state.values()) {
+            total += instances.size();
+        }
+        System.out.printf("注册中心已从磁盘恢复: %d 个实例，回放日志 %d 条，耗时 %.1f ms%n",
+                total, replayed, (System.nanoTime() - start) / 1_000_000.0);
+        return state;
+    }
+
+    /**
+     * 启动写线程和定期快照
+     */
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::writeLoop, "registry-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        long interval = RpcConfig.getRegistrySnapshotIntervalMs();
+        snapshotExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "registry-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        snapshotExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                if (recordsSinceSnapshot > 0) {
+                    snapshot();
+                }
+            } catch (Exception e) {
+                System.err.println("写入注册中心快照失败: " + e.getMessage());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 追加事件（异步，由写线程组提交）
+     * @param instance 注册时为完整实例，注销时只使用URL，清空时为null
+     * @return 事件所在批次写入（开启 registryLogSyncEnabled 时为 fsync）后完成；
+     *         存储已关闭或写入失败时以 IOException 结束
+     */
+    public CompletableFuture<Void> append(byte op, String serviceType, ServiceInstance instance) {
+        LogEvent event = new LogEvent(op, serviceType, instance);
+        IOException error = failure;
+        if (error != null) {
+            event.completeExceptionally(error);
+        } else if (!running) {
+            event.completeExceptionally(new IOException("注册中心日志已关闭"));
+        } else {
+            queue.offer(event);
+            if (!running) {
+                failLateEvents();
+            }
+        }
+        return event;
+    }
+
+    /**
+     * 与 close 并发入队的事件可能错过 close 的最后一次写入，不能让调用方一直等待
+     */
+    private synchronized void failLateEvents() {
+        if (!closed) {
+            // close 还没有取走剩余事件，会一并写入
+            return;
+        }
+        List<LogEvent> late = new ArrayList<>();
+        queue.drainTo(late);
+        for (LogEvent event : late) {
+            event.completeExceptionally(new IOException("注册中心日志已关闭"));
+        }
+    }
+
+    /**
+     * 检查服务类型和实例的各字段能否写入日志和快照：字符串以2字节长度前缀编码，标签数同样为2字节
+     * 快照使用 DataOutput.writeUTF（修改版UTF-8），其编码长度不小于日志使用的标准UTF-8，按它计算即可
+     * @throws IllegalArgumentException 字段超出长度限制
+     */
+    static void validate(String serviceType, ServiceInstance instance) {
+        checkLength("服务类型", serviceType);
+        checkLength("服务URL", instance.getUrl());
+        checkLength("可用区", instance.getZone());
+        checkLength("版本", instance.getVersion());
+        if (instance.getTags().size() > MAX_FIELD_LENGTH) {
+            throw new IllegalArgumentException("服务实例标签数超过 " + MAX_FIELD_LENGTH + ": " + instance.getTags().size());
+        }
+        for (String tag : instance.getTags()) {
+            checkLength("标签", tag);
+        }
+    }
+
+    private static void checkLength(String field, String value) {
+        // 每个字符最多编码为3字节，短字符串无需逐字符计算
+        if (value == null || value.length() <= MAX_FIELD_LENGTH / 3) {
+            return;
+        }
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            length += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+        }
+        if (length > MAX_FIELD_LENGTH) {
+            throw new IllegalArgumentException(field + "编码后超过 " + MAX_FIELD_LENGTH + " 字节: " + length);
+        }
+    }
+
+    /**
+     * 生成快照：先切换到新的日志代，再写出全量状态，最后删除旧日志
+     * 快照可能包含切换之后的部分事件，回放新日志时注册/注销均为幂等操作，结果一致
+     */
+    public void snapshot() throws IOException {
+        long snapshotGeneration;
+        synchronized (this) {
+            logChannel.force(false);
+            logChannel.close();
+            generation++;
+            logChannel = openLog(generation);
+            recordsSinceSnapshot = 0;
+            snapshotGeneration = generation;
+        }
+
+        Map<String, List<ServiceInstance>> state = stateSupplier.get();
+        Path tmp = dir.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 64 * 1024))) {
+            out.writeInt(SNAPSHOT_MAGIC_V2);
+            out.writeLong(snapshotGeneration);
+            out.writeInt(state.size());
+            for (Map.Entry<String, List<ServiceInstance>> entry : state.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (ServiceInstance instance : entry.getValue()) {
+                    out.writeUTF(instance.getUrl());
+                    out.writeInt(instance.getWeight());
+                    out.writeUTF(instance.getZone());
+                    out.writeUTF(instance.getVersion());
+                    out.writeShort(instance.getTags().size());
+                    for (String tag : instance.getTags()) {
+                        out.writeUTF(tag);
+                    }
+                }
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+        Files.move(tmp, dir.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        for (long gen : listLogGenerations()) {
+            if (gen < snapshotGeneration) {
+                Files.deleteIfExists(logPath(gen));
+            }
+        }
+    }
+
+    /**
+     * 停止写线程，写完剩余事件后关闭
+     */
+    @Override
+    public void close() throws IOException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        snapshotExecutor.shutdown();
+        queue.offer(STOP);
+        try {
+            writerThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            List<LogEvent> rest = new ArrayList<>();
+            queue.drainTo(rest);
+            rest.remove(STOP);
+            closed = true;
+            try {
+                commit(rest);
+                logChannel.force(false);
+            } finally {
+                logChannel.close();
+            }
+        }
+    }
+
+    /**
+     * 写线程主循环：阻塞等待第一个事件，再取走队列中所有事件，合并为一次写入
+     */
+    private void writeLoop() {
+        List<LogEvent> batch = new ArrayList<>(1024);
+        boolean stopped = false;
+        while (!stopped) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                stopped = batch.remove(STOP);
+                synchronized (this) {
+                    commit(batch);
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (IOException e) {
+                // commit 已让本批事件失败
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 写入一批事件并在落盘后完成它们的 future；失败时本批事件以异常结束，存储转为失败状态
+     * 调用方持有 this 锁
+     */
+    private void commit(List<LogEvent> batch) throws IOException {
+        IOException error = failure;
+        if (error == null) {
+            try {
+                writeBatch(batch);
+                for (LogEvent event : batch) {
+                    event.complete(null);
+                }
+                return;
+            } catch (IOException | RuntimeException e) {
+                error = e instanceof IOException ? (IOException) e : new IOException(e);
+                failure = error;
+                System.err.println("写入注册中心日志失败，之后的注册变更不再持久化: " + e);
+            }
+        }
+        for (LogEvent event : batch) {
+            event.completeExceptionally(error);
+        }
+        throw error;
+    }
+
+    private void writeBatch(List<LogEvent> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        writeBuffer.clear();
+        for (LogEvent event : batch) {
+            byte[] type = event.serviceType.getBytes(StandardCharsets.UTF_8);
+            byte[] url = event.instance == null ? new byte[0] : event.instance.getUrl().getBytes(StandardCharsets.UTF_8);
+            // 只有带元数据的注册事件才在记录末尾追加元数据，旧格式记录可以原样回放
+            byte[][] meta = event.op == OP_REGISTER && !event.instance.isBare() ? encodeMeta(event.instance) : null;
+            int bodyLength = 1 + 2 + type.length + 2 + url.length;
+            if (meta != null) {
+                bodyLength += 4 + 2;
+                for (byte[] field : meta) {
+                    bodyLength += 2 + field.length;
+                }
+            }
+            ensureCapacity(bodyLength + RECORD_OVERHEAD);
+
+            writeBuffer.putInt(bodyLength);
+            int bodyStart = writeBuffer.position();
+            writeBuffer.put(event.op);
+            writeBuffer.putShort((short) type.length).put(type);
+            writeBuffer.putShort((short) url.length).put(url);
+            if (meta != null) {
+                // [权重][可用区][版本][标签数][标签...]
+                writeBuffer.putInt(event.instance.getWeight());
+                writeBuffer.putShort((short) meta[0].length).put(meta[0]);
+                writeBuffer.putShort((short) meta[1].length).put(meta[1]);
+                writeBuffer.putShort((short) (meta.length - 2));
+                for (int i = 2; i < meta.length; i++) {
+                    writeBuffer.putShort((short) meta[i].length).put(meta[i]);
+                }
+            }
+            writeBuffer.putInt(checksum(writeBuffer, bodyStart, bodyLength));
+        }
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            logChannel.write(writeBuffer);
+        }
+        if (RpcConfig.isRegistryLogSyncEnabled()) {
+            logChannel.force(false);
+        }
+        recordsSinceSnapshot += batch.size();
+    }
+
+    private static byte[][] encodeMeta(ServiceInstance instance) {
+        byte[][] meta = new byte[2 + instance.getTags().size()][];
+        meta[0] = instance.getZone().getBytes(StandardCharsets.UTF_8);
+        meta[1] = instance.getVersion().getBytes(StandardCharsets.UTF_8);
+        int i = 2;
+        for (String tag : instance.getTags()) {
+            meta[i++] = tag.getBytes(StandardCharsets.UTF_8);
+        }
+        return meta;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (writeBuffer.remaining() >= needed) {
+            return;
+        }
+        // 扩容时保留已编码内容
+        ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(writeBuffer.capacity() * 2, writeBuffer.position() + needed));
+        writeBuffer.flip();
+        bigger.put(writeBuffer);
+        writeBuffer = bigger;
+    }
+
+    private int checksum(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer body = buffer.duplicate();
+        body.position(offset).limit(offset + length);
+        crc.reset();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * 读取快照
+     * @return 快照对应的起始日志代，无快照时返回0
+     */
+    private long readSnapshot(Map<String, LinkedHashMap<String, ServiceInstance>> state) throws IOException {
+        Path snapshot = dir.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(snapshot)) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(snapshot), 64 * 1024))) {
+            int magic = in.readInt();
+            if (magic != SNAPSHOT_MAGIC && magic != SNAPSHOT_MAGIC_V2) {
+                throw new IOException("注册中心快照文件格式错误: " + snapshot);
+            }
+            long snapshotGeneration = in.readLong();
+            int typeCount = in.readInt();
+            for (int i = 0; i < typeCount; i++) {
+                String serviceType = in.readUTF();
+                int urlCount = in.readInt();
+                LinkedHashMap<String, ServiceInstance> instances = new LinkedHashMap<>(Math.max(16, urlCount * 4 / 3 + 1));
+                for (int j = 0; j < urlCount; j++) {
+                    ServiceInstance instance;
+                    if (magic == SNAPSHOT_MAGIC) {
+                        instance = ServiceInstance.of(in.readUTF());
+                    } else {
+                        ServiceInstance.ServiceInstanceBuilder builder = ServiceInstance.builder()
+                                .url(in.readUTF())
+                                .weight(in.readInt())
+                                .zone(in.readUTF())
+                                .version(in.readUTF());
+                        int tagCount = in.readUnsignedShort();
+                        for (int k = 0; k < tagCount; k++) {
+                            builder.tag(in.readUTF());
+                        }
+                        instance = builder.build();
+                    }
+                    instances.put(instance.getUrl(), instance);
+                }
+                state.put(serviceType, instances);
+            }
+            return snapshotGeneration;
+        }
+    }
+
+    /**
+     * 通过内存映射回放日志，遇到不完整或校验失败的尾部记录时截断
+     * @return 回放的记录数
+     */
+    private int replayLog(Path log, Map<String, LinkedHashMap<String, ServiceInstance>> state) throws IOException {
+        int count = 0;
+        long size;
+        int validEnd = 0;
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            size = channel.size();
+            if (size == 0) {
+                return 0;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            while (buffer.remaining() >= RECORD_OVERHEAD) {
+                int bodyLength = buffer.getInt();
+                if (bodyLength <= 0 || bodyLength > buffer.remaining() - 4) {
+                    break;
+                }
+                int bodyStart = buffer.position();
+                if (checksum(buffer, bodyStart, bodyLength) != buffer.getInt(bodyStart + bodyLength)) {
+                    break;
+                }
+                byte op = buffer.get();
+                String serviceType = readString(buffer);
+                ServiceInstance instance = readInstance(buffer, bodyStart + bodyLength);
+                buffer.position(bodyStart + bodyLength + 4);
+                apply(state, op, serviceType, instance);
+                validEnd = buffer.position();
+                count++;
+            }
+        }
+        if (validEnd < size) {
+            truncate(log, validEnd);
+        }
+        return count;
+    }
+
+    /**
+     * 截断日志的损坏尾部，在映射读完之后通过单独的通道进行
+     * 映射要等 GC 才会真正解除，部分平台上截断仍被映射的文件会失败；
+     * 此时保留尾部也不影响正确性：新的写入总在新日志代上，回放在同样的位置停止
+     */
+    private static void truncate(Path log, long validEnd) {
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(validEnd);
+            System.err.println("注册中心日志尾部不完整，已截断: " + log + " @ " + validEnd);
+        } catch (IOException e) {
+            System.err.println("注册中心日志尾部不完整，截断失败（回放时会跳过）: " + log + " @ " + validEnd + ", " + e);
+        }
+    }
+
+    /**
+     * 读取URL及可选的元数据（记录体在URL之后还有剩余字节时）
+     */
+    private static ServiceInstance readInstance(ByteBuffer buffer, int bodyEnd) {
+        String url = readString(buffer);
+        if (buffer.position() >= bodyEnd) {
+            return ServiceInstance.of(url);
+        }
+        ServiceInstance.ServiceInstanceBuilder builder = ServiceInstance.builder()
+                .url(url)
+                .weight(buffer.getInt())
+                .zone(readString(buffer))
+                .version(readString(buffer));
+        int tagCount = buffer.getShort() & 0xFFFF;
+        for (int i = 0; i < tagCount; i++) {
+            builder.tag(readString(buffer));
+        }
+        return builder.build();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void apply(Map<String, LinkedHashMap<String, ServiceInstance>> state, byte op,
+                              String serviceType, ServiceInstance instance) {
+        switch (op) {
+            case OP_REGISTER:
+                state.computeIfAbsent(serviceType, k -> new LinkedHashMap<>()).put(instance.getUrl(), instance);
+                break;
+            case OP_UNREGISTER:
+                Map<String, ServiceInstance> instances = state.get(serviceType);
+                if (instances != null) {
+                    instances.remove(instance.getUrl());
+                }
+                break;
+            case OP_CLEAR:
+                // 服务类型为空表示清空全部，否则只清空该服务类型
+                if (serviceType.isEmpty()) {
+                    state.clear();
+                } else {
+                    state.remove(serviceType);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private FileChannel openLog(long gen) throws IOException {
+        return FileChannel.open(logPath(gen),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path logPath(long gen) {
+        return dir.resolve(String.format("%s%016d%s", LOG_PREFIX, gen, LOG_SUFFIX));
+    }
+
+    private List<Long> listLogGenerations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, LOG_PREFIX + "*" + LOG_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                generations.add(Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length())));
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    /**
+     * 待写入的日志事件，自身作为写入结果的 future
+     */
+    private static final class LogEvent extends CompletableFuture<Void> {
+        final byte op;
+        final String serviceType;
+        final ServiceInstance instance;
+
+        LogEvent(byte op, String serviceType, ServiceInstance instance) {
+            this.op = op;
+            this.serviceType = serviceType;
+            this.instance = instance;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.anon.anonrpc.registry;
+
+import com.anon.anonrpc.model.ServiceInstance;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个服务类型下的实例集合
+ * 成员集合支持无锁查询；修改按URL哈希分段加锁，同一URL的修改串行（保证日志和复制顺序），
+ * 不同URL的修改可以并行。读路径使用不可变视图（含按可用区、版本、标签的二级索引），
+ * 修改只推进版本号，下次读取时发现版本变化才重建一次，批量注册只产生一次视图更新
+ * 被标记为不健康（主动健康检查）或被剔除（被动离群检测）的实例仍保留在注册表中，但不进入路由候选集合
+ */
+final class ServiceGroup {
+    private static final int STRIPES = 16;
+    private static final View EMPTY_VIEW = new View(new ServiceInstance[0], new ServiceInstance[0]);
+
+    // 成员：URL -> 实例，修改需持有对应URL的分段锁
+    private final Map<String, ServiceInstance> members = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[STRIPES];
+    // 不健康实例的URL，修改同样需持有对应URL的分段锁
+    private final Set<String> unhealthy = ConcurrentHashMap.newKeySet();
+    // 被离群检测剔除的实例URL，与健康状态分开记录，两者互不覆盖
+    private final Set<String> ejected = ConcurrentHashMap.newKeySet();
+
+    // 修改版本号与读视图
+    private final AtomicLong version = new AtomicLong();
+    private volatile View view = EMPTY_VIEW;
+    private volatile long viewVersion;
+
+    // 已被清空移除的集合不再接受修改，持锁后发现已退役的写入方需重新获取新集合
+    volatile boolean retired;
+
+    ServiceGroup() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * 获取URL对应的分段锁，修改及其日志/复制回调需在该锁内完成
+     */
+    Object lockFor(String serviceUrl) {
+        int h = serviceUrl.hashCode();
+        return locks[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    boolean contains(String serviceUrl) {
+        return members.containsKey(serviceUrl);
+    }
+
+    ServiceInstance get(String serviceUrl) {
+        return members.get(serviceUrl);
+    }
+
+    /**
+     * 添加或更新实例（调用方需持有 lockFor(instance.getUrl())）
+     * @return 新增实例或元数据有变化时返回true
+     */
+    boolean add(ServiceInstance instance) {
+        ServiceInstance previous = members.put(instance.getUrl(), instance);
+        if (!instance.equals(previous)) {
+            version.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 移除实例（调用方需持有 lockFor(serviceUrl)）
+     */
+    boolean remove(String serviceUrl) {
+        if (members.remove(serviceUrl) != null) {
+            unhealthy.remove(serviceUrl);
+            ejected.remove(serviceUrl);
+            version.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 标记实例健康状态（调用方需持有 lockFor(serviceUrl)）
+     * @return 状态有变化时返回true
+     */
+    boolean setHealthy(String serviceUrl, boolean healthy) {
+        boolean changed;
+        if (healthy) {
+            changed = unhealthy.remove(serviceUrl);
+        } else {
+            changed = members.containsKey(serviceUrl) && unhealthy.add(serviceUrl);
+        }
+        if (changed) {
+            version.incrementAndGet();
+        }
+        return changed;
+    }
+
+    boolean isHealthy(String serviceUrl) {
+        return !unhealthy.contains(serviceUrl);
+    }
+
+    /**
+     * 标记实例是否被剔除（调用方需持有 lockFor(serviceUrl)）
+     * @return 状态有变化时返回true
+     */
+    boolean setEjected(String serviceUrl, boolean eject) {
+        boolean changed;
+        if (eject) {
+            changed = members.containsKey(serviceUrl) && ejected.add(serviceUrl);
+        } else {
+            changed = ejected.remove(serviceUrl);
+        }
+        if (changed) {
+            version.incrementAndGet();
+        }
+        return changed;
+    }
+
+    boolean isEjected(String serviceUrl) {
+        return ejected.contains(serviceUrl);
+    }
+
+    /**
+     * 获取当前只读视图
+     */
+    View view() {
+        if (version.get() != viewVersion) {
+            synchronized (this) {
+                // 先读版本再拷贝：拷贝之后的修改会使版本号大于记录值，下次读取时重建
+                long current = version.get();
+                if (current != viewVersion) {
+                    ServiceInstance[] registered = members.values().toArray(new ServiceInstance[0]);
+                    ServiceInstance[] routable = registered;
+                    if (!unhealthy.isEmpty() || !ejected.isEmpty()) {
+                        List<ServiceInstance> healthy = new ArrayList<>(registered.length);
+                        for (ServiceInstance instance : registered) {
+                            if (!unhealthy.contains(instance.getUrl()) && !ejected.contains(instance.getUrl())) {
+                                healthy.add(instance);
+                            }
+                        }
+                        // 全部不可路由时仍按全部实例路由，避免误判导致整个服务不可用
+                        if (!healthy.isEmpty()) {
+                            routable = healthy.toArray(new ServiceInstance[0]);
+                        }
+                    }
+                    view = new View(registered, routable);
+                    viewVersion = current;
+                }
+            }
+        }
+        return view;
+    }
+
+    /**
+     * 持有全部分段锁后将集合标记为退役，并在锁内执行回调（用于清空）
+     */
+    void retire(Runnable inLock) {
+        retire(0, inLock);
+    }
+
+    private void retire(int stripe, Runnable inLock) {
+        if (stripe == STRIPES) {
+            retired = true;
+            inLock.run();
+            return;
+        }
+        synchronized (locks[stripe]) {
+            retire(stripe + 1, inLock);
+        }
+    }
+
+    int size() {
+        return members.size();
+    }
+
+    /**
+     * 不可变视图：全部已注册实例，以及由可路由（健康）实例构成、
+     * 按可用区、版本、可用区+版本、标签划分的候选集合
+     */
+    static final class View {
+        final InstanceSet registered;
+        final InstanceSet all;
+        final String[] urls;
+        final Map<String, InstanceSet> byZone;
+        final Map<String, InstanceSet> byVersion;
+        final Map<String, InstanceSet> byZoneVersion;
+        final Map<String, InstanceSet> byTag;
+
+        View(ServiceInstance[] registered, ServiceInstance[] instances) {
+            this.all = new InstanceSet(instances);
+            this.registered = registered == instances ? all : new InstanceSet(registered);
+            this.urls = new String[registered.length];
+            for (int i = 0; i < registered.length; i++) {
+                urls[i] = registered[i].getUrl();
+            }
+            Map<String, List<ServiceInstance>> zones = new HashMap<>();
+            Map<String, List<ServiceInstance>> versions = new HashMap<>();
+            Map<String, List<ServiceInstance>> zoneVersions = new HashMap<>();
+            Map<String, List<ServiceInstance>> tags = new HashMap<>();
+            for (int i = 0; i < instances.length; i++) {
+                ServiceInstance instance = instances[i];
+                if (!instance.getZone().isEmpty()) {
+                    zones.computeIfAbsent(instance.getZone(), k -> new ArrayList<>()).add(instance);
+                }
+                if (!instance.getVersion().isEmpty()) {
+                    versions.computeIfAbsent(instance.getVersion(), k -> new ArrayList<>()).add(instance);
+                    if (!instance.getZone().isEmpty()) {
+                        zoneVersions.computeIfAbsent(zoneVersionKey(instance.getZone(), instance.getVersion()),
+                                k -> new ArrayList<>()).add(instance);
+                    }
+                }
+                for (String tag : instance.getTags()) {
+                    tags.computeIfAbsent(tag, k -> new ArrayList<>()).add(instance);
+                }
+            }
+            this.byZone = index(zones);
+            this.byVersion = index(versions);
+            this.byZoneVersion = index(zoneVersions);
+            this.byTag = index(tags);
+        }
+
+        InstanceSet zone(String zone) {
+            return byZone.getOrDefault(zone, InstanceSet.EMPTY);
+        }
+
+        InstanceSet version(String version) {
+            return byVersion.getOrDefault(version, InstanceSet.EMPTY);
+        }
+
+        InstanceSet zoneVersion(String zone, String version) {
+            return byZoneVersion.getOrDefault(zoneVersionKey(zone, version), InstanceSet.EMPTY);
+        }
+
+        InstanceSet tag(String tag) {
+            return byTag.getOrDefault(tag, InstanceSet.EMPTY);
+        }
+
+        private static String zoneVersionKey(String zone, String version) {
+            return zone + '\u0000' + version;
+        }
+
+        private static Map<String, InstanceSet> index(Map<String, List<ServiceInstance>> grouped) {
+            Map<String, InstanceSet> index = new HashMap<>(grouped.size() * 4 / 3 + 1);
+            for (Map.Entry<String, List<ServiceInstance>> entry : grouped.entrySet()) {
+                index.put(entry.getKey(), new InstanceSet(entry.getValue().toArray(new ServiceInstance[0])));
+            }
+            return index;
+        }
+    }
+}
@@ -1,90 +1,336 @@
 package com.anon.anonrpc.registry;
 
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.loadbalancer.LoadBalancer;
+import com.anon.anonrpc.loadbalancer.RoundRobinLoadBalancer;
+import com.anon.anonrpc.model.ServiceInstance;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
 
 /**
- * 服务注册中心 - 采用ConcurrentHashMap + 双重校验锁实现高并发
- * 支持每秒1000+高并发服务注册，确保数据一致性
+ * 服务注册中心 - 按服务类型哈希分片，分片内按URL分段加锁
+ * 不存在全局锁或全局共享的写计数器，不同服务、同一服务的不同实例都可以并行注册
  */
 public class ServiceRegistry {
-    // 使用ConcurrentHashMap存储服务列表，确保高并发读取性能
-    private static final Map<String, List<String>> SERVICE_MAP = new ConcurrentHashMap<>();
+    // 注册表分片，数量为2的幂，按服务类型哈希定位
+    private static final RegistryShard[] SHARDS = createShards(RpcConfig.getRegistryShardCount());
     
-    // 为每个服务类型创建独立的计数器，避免全局竞争
-    private static final Map<String, AtomicInteger> INDEX_MAP = new ConcurrentHashMap<>();
+    // 性能监控，LongAdder 在高并发下各线程累加到不同单元，不争用同一缓存行
+    private static final LongAdder TOTAL_REGISTRATIONS = new LongAdder();
+    private static final ThreadLocal<int[]> LOCAL_REGISTRATIONS = ThreadLocal.withInitial(() -> new int[1]);
+    private static long startTime = System.currentTimeMillis();
     
-    // 读写锁，支持并发读取但互斥写入
-    private static final ReadWriteLock GLOBAL_LOCK = new ReentrantReadWriteLock();
+    // 默认负载均衡策略
+    private static final LoadBalancer ROUND_ROBIN = new RoundRobinLoadBalancer();
     
-    // 注册锁对象，用于双重校验锁
-    private static final Map<String, Object> SERVICE_LOCKS = new ConcurrentHashMap<>();
+    // 持久化存储（可选），为null时为纯内存模式
+    private static volatile RegistryStore STORE;
+    // 本线程最近一次本地变更的日志写入结果，日志按顺序落盘，等待最后一次即覆盖之前的所有变更
+    private static final ThreadLocal<CompletableFuture<Void>> PENDING_WRITE = new ThreadLocal<>();
     
-    // 性能监控
-    private static long totalRegistrations = 0;
-    private static long startTime = System.currentTimeMillis();
+    // 变更监听器（可选），用于集群复制
+    private static volatile RegistryListener LISTENER;
+    
+    /**
+     * 设置变更监听器，只有本地发起的注册/注销会通知，复制过来的变更不会再次通知
+     * @param listener 监听器，传null取消
+     */
+    public static void setListener(RegistryListener listener) {
+        LISTENER = listener;
+    }
+    
+    /**
+     * 开启持久化：从数据目录中的快照和日志恢复注册信息，之后的注册/注销事件写入追加日志
+     * 应在对外提供注册服务之前调用
+     * @param dataDir 数据目录
+     */
+    public static synchronized void enablePersistence(String dataDir) throws IOException {
+        if (STORE != null) {
+            return;
+        }
+        RegistryStore store = new RegistryStore(Paths.get(dataDir), ServiceRegistry::snapshotState);
+        Map<String, LinkedHashMap<String, ServiceInstance>> recovered = store.recover();
+        for (Map.Entry<String, LinkedHashMap<String, ServiceInstance>> entry : recovered.entrySet()) {
+            String serviceType = entry.getKey();
+            for (ServiceInstance instance : entry.getValue().values()) {
+                // 恢复出的数据已在日志中，按复制变更处理，不重复通知监听器
+                mutate(serviceType, instance, true, () -> true);
+            }
+        }
+        store.start();
+        STORE = store;
+    }
+    
+    /**
+     * 关闭持久化，写完剩余日志
+     */
+    public static synchronized void disablePersistence() throws IOException {
+        RegistryStore store = STORE;
+        STORE = null;
+        if (store != null) {
+            store.close();
+        }
+    }
+    
+    /**
+     * 获取当前注册表的一致副本（用于生成快照）
+     */
+    static Map<String, List<ServiceInstance>> snapshotState() {
+        Map<String, List<ServiceInstance>> state = new HashMap<>();
+        for (RegistryShard shard : SHARDS) {
+            shard.snapshot(state);
+        }
+        return state;
+    }
+    
+    /**
+     * 记录变更到持久化日志并通知监听器（需在URL分段锁内调用，保证顺序与内存一致）
+     */
+    private static void onChanged(byte op, String serviceType, ServiceInstance instance, boolean local) {
+        RegistryStore store = STORE;
+        if (store != null) {
+            CompletableFuture<Void> written = store.append(op, serviceType, instance);
+            if (local) {
+                PENDING_WRITE.set(written);
+            }
+        }
+        RegistryListener listener = LISTENER;
+        if (local && listener != null && op != RegistryStore.OP_CLEAR) {
+            listener.onChange(serviceType, instance, op == RegistryStore.OP_REGISTER);
+        }
+    }
+    
+    /**
+     * 等待本线程此前的本地变更写入持久化日志（在锁外调用，同一批次的其他线程共享一次落盘）
+     * 复制过来的变更不等待，由来源节点保证持久化
+     * @throws UncheckedIOException 写入日志失败，内存中的变更已生效但重启后会丢失
+     */
+    private static void awaitDurable() {
+        CompletableFuture<Void> written = PENDING_WRITE.get();
+        if (written == null) {
+            return;
+        }
+        PENDING_WRITE.remove();
+        try {
+            written.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException
+                    ? new UncheckedIOException("注册信息写入持久化日志失败", (IOException) cause)
+                    : e;
+        }
+    }
+    
+    /**
+     * 应用从集群其他节点复制过来的变更，不再通知监听器
+     * 版本比较和变更在同一把URL分段锁内完成，与该URL的本地写入串行
+     * @param serviceType 服务类型
+     * @param instance 服务实例，注销时只使用URL
+     * @param registered true为注册，false为注销
+     * @param accept 版本比较，返回false时忽略该变更
+     */
+    static void applyReplicated(String serviceType, ServiceInstance instance, boolean registered, BooleanSupplier accept) {
+        mutate(serviceType, instance, registered, accept);
+    }
+    
+    /**
+     * 在URL分段锁内执行一次注册或注销
+     * @param accept 复制过来的变更需先通过版本比较；为null表示本地变更
+     * @return 注册表是否发生变化
+     * @throws IllegalArgumentException 注册的实例字段超出持久化格式的长度限制
+     */
+    private static boolean mutate(String serviceType, ServiceInstance instance, boolean register, BooleanSupplier accept) {
+        if (register) {
+            // 超长字段无法写入日志，在修改内存之前拒绝
+            RegistryStore.validate(serviceType, instance);
+        }
+        String serviceUrl = instance.getUrl();
+        RegistryShard shard = shard(serviceType);
+        for (;;) {
+            // 复制过来的注销也要在锁内记录版本，因此同样需要创建集合
+            ServiceGroup group = register || accept != null ? shard.group(serviceType) : shard.get(serviceType);
+            if (group == null) {
+                return false;
+            }
+            // 快速路径：本地重复注册（元数据相同）或注销不存在的实例，无需加锁
+            if (accept == null && (register ? instance.equals(group.get(serviceUrl)) : !group.contains(serviceUrl))) {
+                return false;
+            }
+            synchronized (group.lockFor(serviceUrl)) {
+                if (group.retired) {
+                    // 该集合已被清空移除，重新获取
+                    continue;
+                }
+                if (accept != null && !accept.getAsBoolean()) {
+                    return false;
+                }
+                boolean changed = register ? group.add(instance) : group.remove(serviceUrl);
+                if (changed) {
+                    shard.sequence.incrementAndGet();
+                    onChanged(register ? RegistryStore.OP_REGISTER : RegistryStore.OP_UNREGISTER,
+                            serviceType, instance, accept == null);
+                }
+                return changed;
+            }
+        }
+    }
+    
+    private static RegistryShard[] createShards(int count) {
+        if (count <= 0) {
+            count = Runtime.getRuntime().availableProcessors() * 2;
+        }
+        // 向上取整为2的幂，便于用位运算定位分片
+        int size = count <= 1 ? 1 : Integer.highestOneBit(count - 1) << 1;
+        RegistryShard[] shards = new RegistryShard[size];
+        for (int i = 0; i < size; i++) {
+            shards[i] = new RegistryShard();
+        }
+        return shards;
+    }
+    
+    private static RegistryShard shard(String serviceType) {
+        int h = serviceType.hashCode();
+        return SHARDS[(h ^ (h >>> 16)) & (SHARDS.length - 1)];
+    }
+    
+    private static String normalize(String serviceType) {
+        return serviceType == null || serviceType.isEmpty() ? "default" : serviceType;
+    }
     
     /**
      * 注册服务实例
-     * 使用双重校验锁确保线程安全性能
+     * 先无锁检查是否已存在，只在需要修改时获取该URL的分段锁
      * @param serviceType 服务类型（可选）
      * @param serviceUrl 服务URL
      */
     public static void register(String serviceType, String serviceUrl) {
-        if (serviceType == null || serviceType.isEmpty()) {
-            serviceType = "default";
+        register(serviceType, ServiceInstance.of(serviceUrl));
+    }
+    
+    /**
+     * 注册带元数据的服务实例，同一URL再次注册时以新的元数据覆盖
+     * 开启持久化时，返回前等待该变更所在的批次写入日志
+     * @param serviceType 服务类型（可选）
+     * @param instance 服务实例
+     */
+    public static void register(String serviceType, ServiceInstance instance) {
+        serviceType = normalize(serviceType);
+        if (!mutate(serviceType, instance, true, null)) {
+            return;
         }
+        awaitDurable();
         
-        // 提前检查是否已经包含，避免获取锁
-        List<String> existingList = SERVICE_MAP.get(serviceType);
-        if (existingList != null && existingList.contains(serviceUrl)) {
-            return; // 快速路径返回
+        recordRegistrations(1);
+        // System.out 内部有全局锁，高并发下逐条打印会让注册线程串行，默认关闭
+        if (RpcConfig.isRegistryVerboseLog()) {
+            System.out.println("服务 [" + serviceType + "] 注册成功: " + instance);
         }
-        
-        // 创建新列表的情况 - 使用putIfAbsent优化
-        if (existingList == null) {
-            List<String> newList = new ArrayList<>();
-            newList.add(serviceUrl);
-            List<String> oldList = SERVICE_MAP.putIfAbsent(serviceType, newList);
-            
-            if (oldList != null) {
-                // 如果同时有其他线程创建了列表，使用细粒度锁添加到已存在的列表
-                Object serviceLock = SERVICE_LOCKS.computeIfAbsent(serviceType, k -> new Object());
-                synchronized (serviceLock) {
-                    if (!oldList.contains(serviceUrl)) {
-                        oldList.add(serviceUrl);
-                    }
-                }
-            } else {
-                // 成功添加了新列表，还需创建计数器
-                INDEX_MAP.putIfAbsent(serviceType, new AtomicInteger(0));
+    }
+    
+    /**
+     * 批量注册同一服务类型的实例
+     * 整批只产生一次快照更新，不逐条打印日志，适用于大批量导入
+     * @param serviceType 服务类型（可选）
+     * @param serviceUrls 服务URL集合
+     * @return 新增的实例数
+     */
+    public static int registerBatch(String serviceType, Collection<String> serviceUrls) {
+        serviceType = normalize(serviceType);
+        int added = 0;
+        for (String serviceUrl : serviceUrls) {
+            if (serviceUrl != null && !serviceUrl.isEmpty() && mutate(serviceType, ServiceInstance.of(serviceUrl), true, null)) {
+                added++;
             }
-        } else {
-            // 只在必要时获取锁
-            Object serviceLock = SERVICE_LOCKS.computeIfAbsent(serviceType, k -> new Object());
-            synchronized (serviceLock) {
-                if (!existingList.contains(serviceUrl)) {
-                    existingList.add(serviceUrl);
-                }
+        }
+        awaitDurable();
+        recordRegistrations(added);
+        return added;
+    }
+    
+    /**
+     * 批量注册同一服务类型的带元数据实例
+     * @param serviceType 服务类型（可选）
+     * @param instances 服务实例集合
+     * @return 新增或元数据有变化的实例数
+     */
+    public static int registerInstances(String serviceType, Collection<ServiceInstance> instances) {
+        serviceType = normalize(serviceType);
+        int added = 0;
+        for (ServiceInstance instance : instances) {
+            if (instance != null && instance.getUrl() != null && !instance.getUrl().isEmpty()
+                    && mutate(serviceType, instance, true, null)) {
+                added++;
             }
         }
-        
-        // 递增计数器和记录性能（无需锁定）
-        long current = ++totalRegistrations;
-        long now = System.currentTimeMillis();
-        double timeRunning = (now - startTime) / 1000.0;
-        
-        if (current % 1000 == 0) {
+        awaitDurable();
+        recordRegistrations(added);
+        return added;
+    }
+    
+    /**
+     * 按服务类型分组批量注册带元数据实例
+     * @param services 服务类型 -> 服务实例集合
+     * @return 新增或元数据有变化的实例数
+     */
+    public static int registerInstances(Map<String, ? extends Collection<ServiceInstance>> services) {
+        int added = 0;
+        for (Map.Entry<String, ? extends Collection<ServiceInstance>> entry : services.entrySet()) {
+            added += registerInstances(entry.getKey(), entry.getValue());
+        }
+        return added;
+    }
+    
+    /**
+     * 按服务类型分组批量注册
+     * @param services 服务类型 -> 服务URL集合
+     * @return 新增的实例数
+     */
+    public static int registerBatch(Map<String, ? extends Collection<String>> services) {
+        int added = 0;
+        for (Map.Entry<String, ? extends Collection<String>> entry : services.entrySet()) {
+            added += registerBatch(entry.getKey(), entry.getValue());
+        }
+        return added;
+    }
+    
+    /**
+     * 递增计数器和记录性能（无需锁定）
+     * 只在本线程的累加跨过1000的整数倍时汇总一次总数，避免每次注册都读取全部计数单元
+     */
+    private static void recordRegistrations(int count) {
+        if (count <= 0) {
+            return;
+        }
+        TOTAL_REGISTRATIONS.add(count);
+        int[] local = LOCAL_REGISTRATIONS.get();
+        int previous = local[0];
+        local[0] += count;
+        if (local[0] / 1000 != previous / 1000) {
+            long current = TOTAL_REGISTRATIONS.sum();
+            double timeRunning = (System.currentTimeMillis() - startTime) / 1000.0;
             double rate = current / timeRunning;
             System.out.printf("服务注册性能: %.2f 注册/秒，总注册数: %d%n", rate, current);
         }
-        
-        System.out.println("服务 [" + serviceType + "] 注册成功: " + serviceUrl);
+    }
+    
+    /**
+     * 获取累计注册数
+     */
+    public static long getTotalRegistrations() {
+        return TOTAL_REGISTRATIONS.sum();
     }
     
     /**
@@ -96,20 +342,18 @@ public class ServiceRegistry {
     }
     
     /**
-     * 获取下一个服务实例（轮询负载均衡）
+     * 获取下一个服务实例（轮询负载均衡，优先本地可用区）
      * 读操作无需加锁，提高并发性能
      * @param serviceType 服务类型
      * @return 下一个可用的服务URL
      */
     public static String getNextServiceUrl(String serviceType) {
-        if (serviceType == null || serviceType.isEmpty()) {
-            serviceType = "default";
-        }
+        serviceType = normalize(serviceType);
         
-        List<String> serviceList = SERVICE_MAP.get(serviceType);
+        ServiceInstance instance = selectInstance(serviceType, RpcConfig.getLocalZone(), null, ROUND_ROBIN);
         
         // 如果没有注册服务，尝试使用默认配置
-        if (serviceList == null || serviceList.isEmpty()) {
+        if (instance == null) {
             if ("default".equals(serviceType)) {
                 // 从系统属性构建默认URL
                 String host = System.getProperty("rpc.server.address", "localhost");
@@ -123,12 +367,163 @@ public class ServiceRegistry {
             }
         }
         
-        // 获取该服务类型的计数器
-        AtomicInteger index = INDEX_MAP.computeIfAbsent(serviceType, k -> new AtomicInteger(0));
-        
-        // 原子操作实现轮询
-        int currentIndex = index.getAndUpdate(i -> (i + 1) % serviceList.size());
-        return serviceList.get(currentIndex);
+        return instance.getUrl();
+    }
+    
+    /**
+     * 按路由条件选择一个实例
+     * @param serviceType 服务类型
+     * @param zone 优先的可用区，为空表示不区分
+     * @param version 要求的版本，为空表示不限
+     * @param loadBalancer 负载均衡策略
+     * @return 选中的实例，没有候选实例时返回null
+     */
+    public static ServiceInstance selectInstance(String serviceType, String zone, String version, LoadBalancer loadBalancer) {
+        InstanceSet candidates = getCandidates(serviceType, zone, version);
+        return candidates.isEmpty() ? null : loadBalancer.select(candidates);
+    }
+    
+    /**
+     * 获取路由候选集合：同可用区实例数达到 zoneMinInstances 时只用同可用区，否则溢出到全部可用区
+     * 候选集合都是预先建好的索引，不需要扫描实例
+     * @param serviceType 服务类型
+     * @param zone 优先的可用区，为空表示不区分
+     * @param version 要求的版本，为空表示不限（可用于排除金丝雀版本）
+     */
+    public static InstanceSet getCandidates(String serviceType, String zone, String version) {
+        ServiceGroup.View view = view(serviceType);
+        if (view == null) {
+            return InstanceSet.EMPTY;
+        }
+        boolean anyVersion = version == null || version.isEmpty();
+        if (zone != null && !zone.isEmpty()) {
+            InstanceSet local = anyVersion ? view.zone(zone) : view.zoneVersion(zone, version);
+            if (!local.isEmpty() && local.size() >= RpcConfig.getZoneMinInstances()) {
+                return local;
+            }
+        }
+        return anyVersion ? view.all : view.version(version);
+    }
+    
+    /**
+     * 获取当前所有服务类型
+     */
+    public static List<String> getServiceTypes() {
+        List<String> types = new ArrayList<>();
+        for (RegistryShard shard : SHARDS) {
+            types.addAll(shard.types());
+        }
+        return types;
+    }
+    
+    /**
+     * 获取指定类型的所有已注册实例，包括不健康的实例（只读）
+     */
+    public static List<ServiceInstance> getInstances(String serviceType) {
+        ServiceGroup.View view = view(serviceType);
+        return view == null ? Collections.emptyList() : view.registered.asList();
+    }
+    
+    /**
+     * 标记实例健康状态，不健康的实例不参与路由，但仍保留在注册表中
+     * 健康状态只在本地生效，不写入持久化日志，也不复制到其他节点
+     * @param serviceType 服务类型
+     * @param serviceUrl 服务URL
+     * @param healthy 是否健康
+     * @return 状态有变化时返回true
+     */
+    public static boolean setHealthy(String serviceType, String serviceUrl, boolean healthy) {
+        serviceType = normalize(serviceType);
+        ServiceGroup group = shard(serviceType).get(serviceType);
+        if (group == null) {
+            return false;
+        }
+        synchronized (group.lockFor(serviceUrl)) {
+            return group.setHealthy(serviceUrl, healthy);
+        }
+    }
+    
+    /**
+     * 实例是否健康（未注册的实例视为健康）
+     */
+    public static boolean isHealthy(String serviceType, String serviceUrl) {
+        serviceType = normalize(serviceType);
+        ServiceGroup group = shard(serviceType).get(serviceType);
+        return group == null || group.isHealthy(serviceUrl);
+    }
+    
+    /**
+     * 标记实例被离群检测剔除，被剔除的实例不参与路由；与健康状态分开记录，健康检查恢复实例不会取消剔除
+     * 同样只在本地生效，不持久化也不复制
+     * @return 状态有变化时返回true
+     */
+    public static boolean setEjected(String serviceType, String serviceUrl, boolean ejected) {
+        serviceType = normalize(serviceType);
+        ServiceGroup group = shard(serviceType).get(serviceType);
+        if (group == null) {
+            return false;
+        }
+        synchronized (group.lockFor(serviceUrl)) {
+            return group.setEjected(serviceUrl, ejected);
+        }
+    }
+    
+    /**
+     * 实例是否被剔除
+     */
+    public static boolean isEjected(String serviceType, String serviceUrl) {
+        serviceType = normalize(serviceType);
+        ServiceGroup group = shard(serviceType).get(serviceType);
+        return group != null && group.isEjected(serviceUrl);
+    }
+    
+    /**
+     * 获取指定可用区的可路由实例（只读）
+     */
+    public static List<ServiceInstance> getInstancesByZone(String serviceType, String zone) {
+        ServiceGroup.View view = view(serviceType);
+        return view == null ? Collections.emptyList() : view.zone(zone).asList();
+    }
+    
+    /**
+     * 获取指定版本的可路由实例（只读）
+     */
+    public static List<ServiceInstance> getInstancesByVersion(String serviceType, String version) {
+        ServiceGroup.View view = view(serviceType);
+        return view == null ? Collections.emptyList() : view.version(version).asList();
+    }
+    
+    /**
+     * 获取带指定标签的可路由实例（只读）
+     */
+    public static List<ServiceInstance> getInstancesByTag(String serviceType, String tag) {
+        ServiceGroup.View view = view(serviceType);
+        return view == null ? Collections.emptyList() : view.tag(tag).asList();
+    }
+    
+    private static ServiceGroup.View view(String serviceType) {
+        serviceType = normalize(serviceType);
+        ServiceGroup group = shard(serviceType).get(serviceType);
+        return group == null ? null : group.view();
+    }
+    
+    /**
+     * 获取下一个服务实例，尽量避开已经尝试过的实例（用于重试）
+     * 同可用区的实例都已尝试过时扩展到全部可用区，全部尝试过时退回普通轮询
+     * @param serviceType 服务类型
+     * @param excluded 已尝试过的服务URL
+     * @return 下一个可用的服务URL
+     */
+    public static String getNextServiceUrl(String serviceType, Collection<String> excluded) {
+        if (excluded == null || excluded.isEmpty()) {
+            return getNextServiceUrl(serviceType);
+        }
+        serviceType = normalize(serviceType);
+        ServiceInstance instance = getCandidates(serviceType, RpcConfig.getLocalZone(), null).nextExcluding(excluded);
+        if (instance == null && !RpcConfig.getLocalZone().isEmpty()) {
+            instance = getCandidates(serviceType, null, null).nextExcluding(excluded);
+        }
+        return instance != null ? instance.getUrl() : getNextServiceUrl(serviceType);
     }
     
     /**
@@ -145,18 +540,16 @@ public class ServiceRegistry {
      * @return 服务URL列表
      */
     public static List<String> getAllServiceUrls(String serviceType) {
-        if (serviceType == null || serviceType.isEmpty()) {
-            serviceType = "default";
-        }
-        
-        List<String> serviceList = SERVICE_MAP.get(serviceType);
+        ServiceGroup.View view = view(serviceType);
         
-        if (serviceList == null || serviceList.isEmpty()) {
+        if (view == null) {
             return new ArrayList<>();
         }
         
         // 返回防御性副本，避免外部修改
-        return new ArrayList<>(serviceList);
+        List<String> urls = new ArrayList<>(view.urls.length);
+        Collections.addAll(urls, view.urls);
+        return urls;
     }
     
     /**
@@ -165,21 +558,13 @@ public class ServiceRegistry {
      * @param serviceUrl 服务URL
      */
     public static void unregister(String serviceType, String serviceUrl) {
-        if (serviceType == null || serviceType.isEmpty()) {
-            serviceType = "default";
+        serviceType = normalize(serviceType);
+        if (!mutate(serviceType, ServiceInstance.of(serviceUrl), false, null)) {
+            return;
         }
-        
-        Object serviceLock = SERVICE_LOCKS.get(serviceType);
-        if (serviceLock == null) {
-            return; // 该服务类型不存在
-        }
-        
-        synchronized (serviceLock) {
-            List<String> serviceList = SERVICE_MAP.get(serviceType);
-            if (serviceList != null) {
-                serviceList.remove(serviceUrl);
-                System.out.println("服务 [" + serviceType + "] 已移除: " + serviceUrl);
-            }
+        awaitDurable();
+        if (RpcConfig.isRegistryVerboseLog()) {
+            System.out.println("服务 [" + serviceType + "] 已移除: " + serviceUrl);
         }
     }
     
@@ -193,15 +578,13 @@ public class ServiceRegistry {
     
     /**
      * 清空所有注册信息（通常用于测试）
+     * 逐个分片、逐个服务类型清空，每次只锁住正在清空的那个服务类型，其他服务的读写不受影响
      */
     public static void clear() {
-        GLOBAL_LOCK.writeLock().lock();
-        try {
-            SERVICE_MAP.clear();
-            INDEX_MAP.clear();
-            System.out.println("服务注册中心已清空");
-        } finally {
-            GLOBAL_LOCK.writeLock().unlock();
+        for (RegistryShard shard : SHARDS) {
+            shard.clear(serviceType -> onChanged(RegistryStore.OP_CLEAR, serviceType, null, true));
         }
+        awaitDurable();
+        System.out.println("服务注册中心已清空");
     }
-} 
\ No newline at end of file
+}
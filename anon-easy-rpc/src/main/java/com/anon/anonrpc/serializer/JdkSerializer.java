@@ -1,5 +1,11 @@
 package com.anon.anonrpc.serializer;
 
+import com.anon.anonrpc.utils.BufferPool;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+
 import java.io.*;
 
 /**
@@ -17,11 +23,33 @@ public class JdkSerializer implements Serializer {
      */
     @Override
     public <T> byte[] serialize(T object) throws IOException {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
-        objectOutputStream.writeObject(object);
-        objectOutputStream.close();
-        return outputStream.toByteArray();
+        // 先写入池化缓冲区再一次复制出结果，避免 ByteArrayOutputStream 扩容时反复复制
+        ByteBuf buffer = serializeToBuffer(object);
+        try {
+            return ByteBufUtil.getBytes(buffer);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * 序列化到 BufferPool 中取出的缓冲区
+     *
+     * @param object
+     * @param <T>
+     * @return
+     * @throws IOException
+     */
+    @Override
+    public <T> ByteBuf serializeToBuffer(T object) throws IOException {
+        ByteBuf buffer = BufferPool.acquire();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(new ByteBufOutputStream(buffer))) {
+            objectOutputStream.writeObject(object);
+        } catch (IOException | RuntimeException e) {
+            buffer.release();
+            throw e;
+        }
+        return buffer;
     }
 
     /**
@@ -61,4 +89,22 @@ public class JdkSerializer implements Serializer {
             throw new RuntimeException("反序列化数据不完整或损坏", e);
         }
     }
+
+    /**
+     * 直接从缓冲区反序列化，不复制出 byte[]
+     */
+    @Override
+    public <T> T deserialize(ByteBuf buffer, Class<T> type) throws IOException {
+        if (!buffer.isReadable()) {
+            throw new RuntimeException("反序列化数据为空");
+        }
+
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteBufInputStream(buffer.duplicate()))) {
+            return (T) objectInputStream.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("类未找到", e);
+        } catch (EOFException e) {
+            throw new RuntimeException("反序列化数据不完整或损坏", e);
+        }
+    }
 }
@@ -1,5 +1,9 @@
 package com.anon.anonrpc.serializer;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
 import java.io.IOException;
 
 /**
@@ -27,4 +31,29 @@ public interface Serializer {
      * @throws IOException
      */
     <T> T deserialize(byte[] bytes, Class<T> type) throws IOException;
+
+    /**
+     * 序列化到缓冲区，调用方负责 release
+     *
+     * @param object
+     * @param <T>
+     * @return
+     * @throws IOException
+     */
+    default <T> ByteBuf serializeToBuffer(T object) throws IOException {
+        return Unpooled.wrappedBuffer(serialize(object));
+    }
+
+    /**
+     * 从缓冲区的可读部分反序列化，不改变读索引，也不 release
+     *
+     * @param buffer
+     * @param type
+     * @param <T>
+     * @return
+     * @throws IOException
+     */
+    default <T> T deserialize(ByteBuf buffer, Class<T> type) throws IOException {
+        return deserialize(ByteBufUtil.getBytes(buffer), type);
+    }
 }
@@ -1,20 +1,31 @@
 package com.anon.anonrpc.server;
 
+import com.anon.anonrpc.context.DeadlineExceededException;
+import com.anon.anonrpc.context.RpcContext;
+import com.anon.anonrpc.fault.ErrorCodec;
+import com.anon.anonrpc.health.HealthChecker;
+import com.anon.anonrpc.model.RpcError;
+import com.anon.anonrpc.model.RpcHeaders;
 import com.anon.anonrpc.model.RpcRequest;
 import com.anon.anonrpc.model.RpcResponse;
 import com.anon.anonrpc.registry.LocalRegistry;
 import com.anon.anonrpc.serializer.JdkSerializer;
 import com.anon.anonrpc.serializer.Serializer;
+import io.netty.buffer.ByteBuf;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.ReplyException;
 import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.http.HttpServerResponse;
 
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -33,8 +44,9 @@ public class AsyncHttpServerHandler implements Handler<HttpServerRequest> {
     // 序列化器缓存
     private static final ConcurrentHashMap<String, Serializer> SERIALIZER_CACHE = new ConcurrentHashMap<>();
     
-    // 服务实例缓存
-    private static final ConcurrentHashMap<String, Object> SERVICE_INSTANCE_CACHE = new ConcurrentHashMap<>();
+    // 事件总线消息中传递截止时间的头，以及截止时间已过的失败码
+    private static final String DEADLINE_HEADER = "rpc.deadline";
+    private static final int DEADLINE_EXCEEDED = 504;
     
     public AsyncHttpServerHandler(Vertx vertx) {
         this.eventBus = vertx.eventBus();
@@ -42,48 +54,73 @@ public class AsyncHttpServerHandler implements Handler<HttpServerRequest> {
         // 注册事件总线处理器，用于处理RPC请求
         eventBus.consumer("rpc.request", message -> {
             RpcRequest rpcRequest = (RpcRequest) message.body();
+            long deadline = parseDeadline(message.headers().get(DEADLINE_HEADER));
+            
+            // 进入线程池排队前检查截止时间
+            if (DeadlineGuard.isExpired(deadline)) {
+                message.fail(DEADLINE_EXCEEDED, "deadline exceeded");
+                return;
+            }
             
             // 异步执行RPC调用
-            CompletableFuture.supplyAsync(() -> {
+            CompletableFuture.<CompletableFuture<?>>supplyAsync(() -> {
+                // 排队结束、调用服务方法前再检查一次
+                if (DeadlineGuard.isExpired(deadline)) {
+                    throw new DeadlineExceededException("deadline exceeded");
+                }
+                RpcContext previous = deadline == DeadlineGuard.NO_DEADLINE ? null
+                        : RpcContext.attach(RpcContext.withDeadline(deadline));
                 try {
                     // 获取服务实现类
                     String serviceName = rpcRequest.getServiceName();
-                    Object serviceInstance = SERVICE_INSTANCE_CACHE.computeIfAbsent(
-                        serviceName,
-                        key -> {
-                            try {
-                                Class<?> implClass = LocalRegistry.get(key);
-                                return implClass.getDeclaredConstructor().newInstance();
-                            } catch (Exception e) {
-                                throw new RuntimeException("创建服务实例失败: " + key, e);
-                            }
-                        }
-                    );
+                    Object serviceInstance = LocalRegistry.getInstance(serviceName);
+                    if (serviceInstance == null) {
+                        return CompletableFuture.completedFuture(RpcResponse.builder()
+                            .error(ErrorCodec.error(RpcError.NOT_FOUND, "服务未注册: " + serviceName))
+                            .build());
+                    }
                     
                     // 获取方法
                     Class<?> serviceClass = serviceInstance.getClass();
                     Method method = serviceClass.getMethod(rpcRequest.getMethodName(), rpcRequest.getParameterTypes());
                     
-                    // 调用方法
-                    Object result = method.invoke(serviceInstance, rpcRequest.getArgs());
-                    
-                    // 构建响应
-                    return RpcResponse.builder()
-                        .data(result)
-                        .dataType(method.getReturnType())
-                        .message("success")
-                        .build();
+                    // 幂等方法相同参数的并发调用只执行一次，直接回复序列化后的响应字节
+                    if (InvocationCoalescer.isCoalescible(method)) {
+                        Serializer serializer = SERIALIZER_CACHE.computeIfAbsent("jdk", k -> new JdkSerializer());
+                        return InvocationCoalescer.execute(method, rpcRequest.getArgs(), () -> {
+                            RpcResponse response = invoke(serviceInstance, method, rpcRequest.getArgs());
+                            try {
+                                byte[] bytes = serializer.serialize(response);
+                                // 服务方法抛出的异常不缓存，下一次调用重新执行
+                                return response.getError() == null
+                                        ? InvocationCoalescer.Result.success(bytes)
+                                        : InvocationCoalescer.Result.failure(bytes);
+                            } catch (IOException e) {
+                                throw new RuntimeException("序列化响应失败", e);
+                            }
+                        });
+                    }
+                    return CompletableFuture.completedFuture(invoke(serviceInstance, method, rpcRequest.getArgs()));
+                } catch (NoSuchMethodException e) {
+                    return CompletableFuture.completedFuture(RpcResponse.builder()
+                        .error(ErrorCodec.error(RpcError.NOT_FOUND, "方法不存在: " + rpcRequest.getMethodName()))
+                        .build());
                 } catch (Exception e) {
-                    return RpcResponse.builder()
-                        .exception(e)
-                        .message("error: " + e.getMessage())
-                        .build();
+                    return CompletableFuture.completedFuture(RpcResponse.builder()
+                        .error(ErrorCodec.encode(RpcError.INTERNAL, e))
+                        .build());
+                } finally {
+                    if (deadline != DeadlineGuard.NO_DEADLINE) {
+                        RpcContext.detach(previous);
+                    }
                 }
-            }, EXECUTOR).whenComplete((response, error) -> {
-                if (error != null) {
+            }, EXECUTOR).thenCompose(future -> future).whenComplete((response, error) -> {
+                if (error != null && error.getCause() instanceof DeadlineExceededException) {
+                    message.fail(DEADLINE_EXCEEDED, "deadline exceeded");
+                } else if (error != null) {
                     message.reply(RpcResponse.builder()
-                        .message("处理请求时发生错误: " + error.getMessage())
-                        .exception(new Exception(error))
+                        .error(ErrorCodec.encode(RpcError.INTERNAL, error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error))
                         .build());
                 } else {
                     message.reply(response);
@@ -94,6 +131,12 @@ public class AsyncHttpServerHandler implements Handler<HttpServerRequest> {
 
     @Override
     public void handle(HttpServerRequest request) {
+        // 健康检查探测，直接返回空响应，不经过反序列化和页面渲染
+        if (HealthChecker.PING_PATH.equals(request.path())) {
+            request.response().setStatusCode(204).end();
+            return;
+        }
+        
         // 处理浏览器直接访问
         if (request.method() == io.vertx.core.http.HttpMethod.GET) {
             request.response()
@@ -106,44 +149,79 @@ public class AsyncHttpServerHandler implements Handler<HttpServerRequest> {
             return;
         }
         
+        // 限流检查在读取请求体之前进行，被拒绝的请求不做反序列化
+        if (RateLimitGuard.rejectByHeaders(request)) {
+            return;
+        }
+        
+        // 单向请求不经过事件总线，也不写回结果
+        if (OneWayGuard.isOneWay(request)) {
+            handleOneWay(request);
+            return;
+        }
+        
+        // 调用方的截止时间，过期的请求不再反序列化和执行
+        long deadline = DeadlineGuard.deadline(request);
+        
         // 异步处理HTTP请求体
         request.body().onSuccess(buffer -> {
+            // 反序列化前检查截止时间
+            if (DeadlineGuard.dropIfExpired(request, deadline)) {
+                return;
+            }
             try {
                 // 获取序列化器
                 Serializer serializer = SERIALIZER_CACHE.computeIfAbsent("jdk", k -> new JdkSerializer());
                 
-                // 反序列化请求
-                byte[] bytes = buffer.getBytes();
+                // 反序列化请求，直接读取请求体缓冲区，不复制出 byte[]
+                ByteBuf body = buffer.getByteBuf();
                 
                 // 如果请求为空，返回错误
-                if (bytes == null || bytes.length == 0) {
-                    doErrorResponse(request, "rpcRequest is null", serializer);
+                if (!body.isReadable()) {
+                    doErrorResponse(request, RpcError.BAD_REQUEST, "rpcRequest is null", serializer);
                     return;
                 }
                 
                 // 异步反序列化和处理
                 CompletableFuture.supplyAsync(() -> {
+                    if (DeadlineGuard.isExpired(deadline)) {
+                        throw new DeadlineExceededException("deadline exceeded");
+                    }
                     try {
-                        return serializer.deserialize(bytes, RpcRequest.class);
+                        return serializer.deserialize(body, RpcRequest.class);
                     } catch (IOException e) {
                         throw new RuntimeException("反序列化请求失败", e);
                     }
                 }, EXECUTOR).thenCompose(rpcRequest -> {
+                    CompletableFuture<Object> future = new CompletableFuture<>();
+                    if (RateLimitGuard.rejectByRequest(request, rpcRequest.getServiceName(), rpcRequest.getMethodName())) {
+                        return future; // 已返回429，不再写响应
+                    }
                     // 通过事件总线发送请求并等待响应
-                    CompletableFuture<RpcResponse> future = new CompletableFuture<>();
-                    eventBus.request("rpc.request", rpcRequest, reply -> {
+                    DeliveryOptions options = new DeliveryOptions();
+                    if (deadline != DeadlineGuard.NO_DEADLINE) {
+                        options.addHeader(DEADLINE_HEADER, Long.toString(deadline));
+                    }
+                    eventBus.request("rpc.request", rpcRequest, options, reply -> {
                         if (reply.succeeded()) {
-                            future.complete((RpcResponse) reply.result().body());
+                            future.complete(reply.result().body());
                         } else {
                             future.completeExceptionally(reply.cause());
                         }
                     });
                     return future;
                 }).whenComplete((response, throwable) -> {
-                    if (throwable != null) {
+                    if (throwable != null && isDeadlineExceeded(throwable)) {
+                        DeadlineGuard.drop(request);
+                    } else if (throwable != null) {
                         doErrorResponse(request, "处理请求失败: " + throwable.getMessage(), serializer);
+                    } else if (response instanceof byte[]) {
+                        // 合并执行或缓存命中的调用，响应已经序列化
+                        request.response()
+                               .putHeader("content-type", "application/json")
+                               .end(Buffer.buffer((byte[]) response));
                     } else {
-                        doResponse(request, response, serializer);
+                        doResponse(request, (RpcResponse) response, serializer);
                     }
                 });
             } catch (Exception e) {
@@ -154,9 +232,79 @@ public class AsyncHttpServerHandler implements Handler<HttpServerRequest> {
         });
     }
     
+    /**
+     * 处理单向请求：读完请求体后立即确认，在线程池中反序列化并执行服务方法，结果和异常只记录不写回
+     */
+    private void handleOneWay(HttpServerRequest request) {
+        String headerMethodName = request.getHeader(RpcHeaders.METHOD);
+        request.body().onSuccess(buffer -> {
+            if (!OneWayGuard.accept(request)) {
+                return;
+            }
+            ByteBuf body = buffer.getByteBuf();
+            EXECUTOR.execute(() -> {
+                String methodName = headerMethodName;
+                try {
+                    Serializer serializer = SERIALIZER_CACHE.computeIfAbsent("jdk", k -> new JdkSerializer());
+                    RpcRequest rpcRequest = serializer.deserialize(body, RpcRequest.class);
+                    methodName = rpcRequest.getMethodName();
+                    Object serviceInstance = LocalRegistry.getInstance(rpcRequest.getServiceName());
+                    if (serviceInstance == null) {
+                        throw new IllegalStateException("服务未注册: " + rpcRequest.getServiceName());
+                    }
+                    serviceInstance.getClass()
+                            .getMethod(methodName, rpcRequest.getParameterTypes())
+                            .invoke(serviceInstance, rpcRequest.getArgs());
+                } catch (InvocationTargetException e) {
+                    System.err.println("单向调用 " + methodName + " 出错: " + e.getCause());
+                } catch (Exception e) {
+                    System.err.println("处理单向请求 " + methodName + " 失败: " + e);
+                } finally {
+                    OneWayGuard.done();
+                }
+            });
+        }).onFailure(err -> OneWayGuard.reject(request, err));
+    }
+    
+    /**
+     * 调用服务方法并构建响应，方法抛出的异常只以错误码、类名和消息放在响应中
+     */
+    private static RpcResponse invoke(Object serviceInstance, Method method, Object[] args) {
+        try {
+            Object result = method.invoke(serviceInstance, args);
+            return RpcResponse.builder()
+                .data(result)
+                .dataType(method.getReturnType())
+                .message("success")
+                .build();
+        } catch (InvocationTargetException e) {
+            return RpcResponse.builder()
+                .error(ErrorCodec.encode(RpcError.SERVICE_ERROR, e.getCause()))
+                .build();
+        } catch (Exception e) {
+            return RpcResponse.builder()
+                .error(ErrorCodec.encode(RpcError.INTERNAL, e))
+                .build();
+        }
+    }
+    
+    private static long parseDeadline(String deadline) {
+        return deadline == null ? DeadlineGuard.NO_DEADLINE : Long.parseLong(deadline);
+    }
+    
+    private static boolean isDeadlineExceeded(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof DeadlineExceededException
+                || (cause instanceof ReplyException && ((ReplyException) cause).failureCode() == DEADLINE_EXCEEDED);
+    }
+    
     void doErrorResponse(HttpServerRequest request, String message, Serializer serializer) {
+        doErrorResponse(request, RpcError.INTERNAL, message, serializer);
+    }
+    
+    void doErrorResponse(HttpServerRequest request, int code, String message, Serializer serializer) {
         RpcResponse rpcResponse = RpcResponse.builder()
-                .message(message)
+                .error(ErrorCodec.error(code, message))
                 .build();
         doResponse(request, rpcResponse, serializer);
     }
@@ -165,10 +313,10 @@ public class AsyncHttpServerHandler implements Handler<HttpServerRequest> {
         HttpServerResponse httpServerResponse = request.response()
                 .putHeader("content-type", "application/json");
         try {
-            // 异步序列化
+            // 异步序列化到池化缓冲区
             CompletableFuture.supplyAsync(() -> {
                 try {
-                    return serializer.serialize(rpcResponse);
+                    return serializer.serializeToBuffer(rpcResponse);
                 } catch (IOException e) {
                     throw new RuntimeException("序列化响应失败", e);
                 }
@@ -180,7 +328,7 @@ public class AsyncHttpServerHandler implements Handler<HttpServerRequest> {
                     // 返回错误信息而不是空响应
                     try {
                         RpcResponse errorResponse = RpcResponse.builder()
-                            .message("服务器序列化错误: " + error.getMessage())
+                            .error(ErrorCodec.error(RpcError.INTERNAL, "服务器序列化错误: " + error.getMessage()))
                             .build();
                         byte[] errorBytes = serializer.serialize(errorResponse);
                         httpServerResponse.end(Buffer.buffer(errorBytes));
@@ -190,8 +338,8 @@ public class AsyncHttpServerHandler implements Handler<HttpServerRequest> {
                                         .end("服务器序列化错误");
                     }
                 } else {
-                    System.out.println("响应序列化成功，数据大小: " + serialized.length + " 字节");
-                    httpServerResponse.end(Buffer.buffer(serialized));
+                    System.out.println("响应序列化成功，数据大小: " + serialized.readableBytes() + " 字节");
+                    endAndRelease(httpServerResponse, serialized);
                 }
             });
         } catch (Exception e) {
@@ -200,4 +348,11 @@ public class AsyncHttpServerHandler implements Handler<HttpServerRequest> {
                              .end("服务器内部错误: " + e.getMessage());
         }
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 写出池化缓冲区中的响应，写出完成（或连接已关闭）后归还缓冲区
+     */
+    static void endAndRelease(HttpServerResponse response, ByteBuf buffer) {
+        response.end(Buffer.buffer(buffer)).onComplete(ar -> buffer.release());
+    }
+}
@@ -1,42 +1,49 @@
 package com.anon.anonrpc.server;
 
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.utils.ServiceAddress;
+import com.anon.anonrpc.utils.SharedVertx;
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Vertx;
-import io.vertx.core.VertxOptions;
+import io.vertx.core.net.SocketAddress;
 
 /**
  * 基于Vert.x的异步HTTP服务器
+ * 在 SharedVertx 上部署多个 RpcServerVerticle（默认每个事件循环一个），共用监听地址；
+ * Linux 上使用 epoll 原生传输和 SO_REUSEPORT，吞吐随核数增长
  */
 public class AsyncVertxHttpServer implements HttpServer {
     
-    private Vertx vertx;
-    
     /**
      * 启动异步服务器
      */
     @Override
     public void doStart(int port) {
-        // 配置Vert.x，优化事件循环和工作线程
-        VertxOptions options = new VertxOptions()
-            .setEventLoopPoolSize(Runtime.getRuntime().availableProcessors() * 2)
-            .setWorkerPoolSize(50)
-            .setInternalBlockingPoolSize(50);
-        
-        // 创建Vert.x实例
-        vertx = Vertx.vertx(options);
-        
-        // 创建HTTP服务器
-        io.vertx.core.http.HttpServer server = vertx.createHttpServer();
-        
-        // 设置异步请求处理器
-        server.requestHandler(new AsyncHttpServerHandler(vertx));
+        listen(SocketAddress.inetSocketAddress(port, "0.0.0.0"), "端口: " + port);
+    }
+    
+    /**
+     * 在 Unix 域套接字上启动异步服务器
+     */
+    @Override
+    public void doStartUnix(String socketPath) {
+        ServiceAddress.deleteStaleSocket(socketPath);
+        listen(SocketAddress.domainSocketAddress(socketPath), "Unix 域套接字: " + socketPath);
+    }
+    
+    private void listen(SocketAddress address, String description) {
+        Vertx vertx = SharedVertx.get();
+        if (!vertx.isNativeTransportEnabled()) {
+            System.out.println("原生传输不可用，使用 NIO: " + vertx.unavailableNativeTransportCause());
+        }
         
-        // 启动HTTP服务器
-        server.listen(port, result -> {
+        int instances = RpcConfig.getServerInstances() > 0 ? RpcConfig.getServerInstances() : SharedVertx.EVENT_LOOPS;
+        vertx.deployVerticle(() -> new RpcServerVerticle(address), new DeploymentOptions().setInstances(instances), result -> {
             if (result.succeeded()) {
-                System.out.println("异步RPC服务器已启动，监听端口: " + port);
+                System.out.println("异步RPC服务器已启动，监听" + description + "，实例数: " + instances);
             } else {
                 System.err.println("启动服务器失败: " + result.cause());
             }
         });
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,64 @@
+package com.anon.anonrpc.server;
+
+import com.anon.anonrpc.model.RpcHeaders;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+
+/**
+ * 服务端截止时间检查
+ * 请求到达时根据请求头中的剩余超时时间计算截止时间，在反序列化、进入线程池排队和调用服务方法之前分别检查，
+ * 已过期的请求调用方已经放弃等待，直接丢弃并返回 504，不再消耗CPU
+ */
+final class DeadlineGuard {
+
+    /**
+     * 请求没有携带超时时间
+     */
+    static final long NO_DEADLINE = Long.MIN_VALUE;
+
+    private static final Buffer DEADLINE_EXCEEDED = Buffer.buffer("deadline exceeded");
+
+    private DeadlineGuard() {
+    }
+
+    /**
+     * 按请求头计算截止时间（System.nanoTime 时间基准）
+     * @return 截止时间，没有携带或格式错误时返回 NO_DEADLINE
+     */
+    static long deadline(HttpServerRequest request) {
+        String timeout = request.getHeader(RpcHeaders.TIMEOUT);
+        if (timeout == null) {
+            return NO_DEADLINE;
+        }
+        try {
+            return System.nanoTime() + Long.parseLong(timeout) * 1_000_000L;
+        } catch (NumberFormatException e) {
+            return NO_DEADLINE;
+        }
+    }
+
+    static boolean isExpired(long deadlineNanos) {
+        return deadlineNanos != NO_DEADLINE && deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * 已过期时丢弃请求
+     * @return true表示已过期并写回504，调用方应直接返回
+     */
+    static boolean dropIfExpired(HttpServerRequest request, long deadlineNanos) {
+        if (!isExpired(deadlineNanos)) {
+            return false;
+        }
+        drop(request);
+        return true;
+    }
+
+    /**
+     * 丢弃请求：返回504（调用方多半已断开，响应只是为了及时结束本次请求）
+     */
+    static void drop(HttpServerRequest request) {
+        if (!request.response().ended()) {
+            request.response().setStatusCode(504).end(DEADLINE_EXCEEDED);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.anon.anonrpc.server;
+
+import com.anon.anonrpc.config.RpcConfig;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpConnection;
+
+import java.lang.reflect.Method;
+
+/**
+ * 响应写出合并 - 每个响应 end() 都会触发一次 flush（一次 write 系统调用），
+ * 在连接的 pipeline 中 Vert.x 处理器之前加入 FlushConsolidationHandler：
+ * 同一连接上相近时间完成的响应先进入出站缓冲，在事件循环处理完当前任务后一次写出，
+ * 累积 serverMaxPendingFlushes 次后立即写出，少量并发时不增加延迟。
+ * Vert.x 没有公开 pipeline，这里通过内部的 ConnectionBase.channelHandlerContext() 获取；
+ * 该方法按名称反射解析，只在 Vert.x 4.x 上启用，找不到或调用失败时打印一次警告并退回逐次 flush
+ */
+final class FlushCoalescing {
+
+    private static final String HANDLER_NAME = "rpcFlushConsolidation";
+
+    private static final String CONNECTION_CLASS = "io.vertx.core.net.impl.ConnectionBase";
+
+    // ConnectionBase.channelHandlerContext()，当前 Vert.x 不支持时为 null
+    private static final Method CHANNEL_CONTEXT = resolve();
+
+    private static volatile boolean disabled = CHANNEL_CONTEXT == null;
+
+    private FlushCoalescing() {
+    }
+
+    /**
+     * 作为 HttpServer 的 connectionHandler 使用
+     */
+    static void install(HttpConnection connection) {
+        if (!RpcConfig.isServerFlushCoalescingEnabled() || disabled
+                || !CHANNEL_CONTEXT.getDeclaringClass().isInstance(connection)) {
+            return;
+        }
+        try {
+            ChannelHandlerContext ctx = (ChannelHandlerContext) CHANNEL_CONTEXT.invoke(connection);
+            if (ctx.pipeline().get(HANDLER_NAME) == null) {
+                // 第二个参数为 true：读循环之外（工作线程完成调用后）的 flush 也合并
+                ctx.pipeline().addBefore(ctx.name(), HANDLER_NAME,
+                        new FlushConsolidationHandler(RpcConfig.getServerMaxPendingFlushes(), true));
+            }
+        } catch (Exception | LinkageError e) {
+            disable("加入 FlushConsolidationHandler 失败: " + e);
+        }
+    }
+
+    /**
+     * 连接的 pipeline 中是否已加入合并处理器
+     */
+    static boolean isInstalled(HttpConnection connection) {
+        if (CHANNEL_CONTEXT == null || !CHANNEL_CONTEXT.getDeclaringClass().isInstance(connection)) {
+            return false;
+        }
+        try {
+            return ((ChannelHandlerContext) CHANNEL_CONTEXT.invoke(connection)).pipeline().get(HANDLER_NAME) != null;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 当前 Vert.x 上是否可以合并 flush
+     */
+    static boolean isSupported() {
+        return !disabled;
+    }
+
+    private static Method resolve() {
+        // 实现版本为空（例如重新打包过的依赖）时不做判断，交给下面按名称查找
+        String version = Vertx.class.getPackage().getImplementationVersion();
+        if (version != null && !version.startsWith("4.")) {
+            System.err.println("Vert.x " + version + " 未验证内部连接接口，不合并响应 flush");
+            return null;
+        }
+        try {
+            Method method = Class.forName(CONNECTION_CLASS).getMethod("channelHandlerContext");
+            if (!ChannelHandlerContext.class.isAssignableFrom(method.getReturnType())) {
+                System.err.println("Vert.x 内部连接接口已变化，不合并响应 flush");
+                return null;
+            }
+            return method;
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            System.err.println("Vert.x 内部连接接口已变化，不合并响应 flush: " + e);
+            return null;
+        }
+    }
+
+    private static void disable(String reason) {
+        if (!disabled) {
+            disabled = true;
+            System.err.println(reason + "，之后不再合并响应 flush");
+        }
+    }
+}
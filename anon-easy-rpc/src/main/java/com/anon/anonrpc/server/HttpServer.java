@@ -10,4 +10,13 @@ public interface HttpServer {
      * @param port
      */
     void doStart(int port);
+
+    /**
+     * 在 Unix 域套接字上启动服务器，供同一主机上的调用方使用（注册地址为 unix:// 加套接字路径）
+     * 需要 Vert.x 原生传输（Linux 上为 epoll）
+     *
+     * @param socketPath 套接字文件路径，上次进程残留的套接字文件会被删除
+     * @throws IllegalStateException 路径上是普通文件，或另一个进程仍在该套接字上监听
+     */
+    void doStartUnix(String socketPath);
 }
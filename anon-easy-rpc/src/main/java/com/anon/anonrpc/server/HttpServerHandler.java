@@ -1,16 +1,22 @@
 package com.anon.anonrpc.server;
 
+import com.anon.anonrpc.context.RpcContext;
+import com.anon.anonrpc.fault.ErrorCodec;
+import com.anon.anonrpc.health.HealthChecker;
+import com.anon.anonrpc.model.RpcError;
 import com.anon.anonrpc.model.RpcRequest;
 import com.anon.anonrpc.model.RpcResponse;
 import com.anon.anonrpc.registry.LocalRegistry;
 import com.anon.anonrpc.serializer.JdkSerializer;
 import com.anon.anonrpc.serializer.Serializer;
+import io.netty.buffer.ByteBuf;
 import io.vertx.core.Handler;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.http.HttpServerResponse;
 
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
 /**
@@ -23,6 +29,12 @@ public class HttpServerHandler implements Handler<HttpServerRequest> {
     //    4.对返回结果进行封装和序列化，并写入到响应中。
     @Override
     public void handle(HttpServerRequest request) {
+        // 健康检查探测，直接返回空响应，不经过反序列化和页面渲染
+        if (HealthChecker.PING_PATH.equals(request.path())) {
+            request.response().setStatusCode(204).end();
+            return;
+        }
+        
         // 检查是否是浏览器直接访问
         if (request.method() == io.vertx.core.http.HttpMethod.GET) {
             // 返回友好的HTML页面，指定UTF-8编码
@@ -36,6 +48,14 @@ public class HttpServerHandler implements Handler<HttpServerRequest> {
             return;
         }
         
+        // 限流检查在读取请求体之前进行，被拒绝的请求不做反序列化
+        if (RateLimitGuard.rejectByHeaders(request)) {
+            return;
+        }
+        
+        // 调用方的截止时间，过期的请求不再反序列化和执行
+        final long deadline = DeadlineGuard.deadline(request);
+        
         // 指定序列化器
         final Serializer serializer = new JdkSerializer();
 
@@ -44,10 +64,12 @@ public class HttpServerHandler implements Handler<HttpServerRequest> {
 
         // 异步处理HTTP请求
         request.bodyHandler(body -> {
-            byte[] bytes = body.getBytes();
+            if (DeadlineGuard.dropIfExpired(request, deadline)) {
+                return;
+            }
             RpcRequest rpcRequest = null;
             try {
-                rpcRequest = serializer.deserialize(bytes, RpcRequest.class);
+                rpcRequest = serializer.deserialize(body.getByteBuf(), RpcRequest.class);
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -56,10 +78,24 @@ public class HttpServerHandler implements Handler<HttpServerRequest> {
             RpcResponse rpcResponse = new RpcResponse();
             // 如果请求为null，直接返回
             if (rpcRequest == null) {
-                rpcResponse.setMessage("rpcRequest is null");
+                rpcResponse.setError(ErrorCodec.error(RpcError.BAD_REQUEST, "rpcRequest is null"));
                 doResponse(request, rpcResponse, serializer);
                 return;
             }
+            if (RateLimitGuard.rejectByRequest(request, rpcRequest.getServiceName(), rpcRequest.getMethodName())) {
+                return;
+            }
+            // 单向请求先确认再执行，不写回结果
+            boolean oneWay = OneWayGuard.isOneWay(request);
+            if (oneWay && !OneWayGuard.accept(request)) {
+                return;
+            }
+            if (DeadlineGuard.dropIfExpired(request, deadline)) {
+                return;
+            }
+            // 服务方法执行期间可以通过 RpcContext 查询剩余时间
+            RpcContext previous = deadline == DeadlineGuard.NO_DEADLINE ? null
+                    : RpcContext.attach(RpcContext.withDeadline(deadline));
             try {
                 // 获取要调用的服务实现类，通过反射调用
                 Class<?> implClass = LocalRegistry.get(rpcRequest.getServiceName());
@@ -69,10 +105,25 @@ public class HttpServerHandler implements Handler<HttpServerRequest> {
                 rpcResponse.setData(result);
                 rpcResponse.setDataType(method.getReturnType());
                 rpcResponse.setMessage("ok");
+            } catch (InvocationTargetException e) {
+                // 服务方法抛出的异常只传类名和消息
+                rpcResponse.setError(ErrorCodec.encode(RpcError.SERVICE_ERROR, e.getCause()));
+            } catch (NoSuchMethodException e) {
+                rpcResponse.setError(ErrorCodec.error(RpcError.NOT_FOUND, "方法不存在: " + rpcRequest.getMethodName()));
             } catch (Exception e) {
                 e.printStackTrace();
-                rpcResponse.setMessage(e.getMessage());
-                rpcResponse.setException(e);
+                rpcResponse.setError(ErrorCodec.encode(RpcError.INTERNAL, e));
+            } finally {
+                if (deadline != DeadlineGuard.NO_DEADLINE) {
+                    RpcContext.detach(previous);
+                }
+            }
+            if (oneWay) {
+                OneWayGuard.done();
+                if (rpcResponse.getError() != null) {
+                    System.err.println("单向调用 " + rpcRequest.getMethodName() + " 出错: " + rpcResponse.getError().getMessage());
+                }
+                return;
             }
             // 响应
             doResponse(request, rpcResponse, serializer);
@@ -89,17 +140,17 @@ public class HttpServerHandler implements Handler<HttpServerRequest> {
         HttpServerResponse httpServerResponse = request.response()
                 .putHeader("content-type", "application/json");
         try {
-            // 序列化
-            byte[] serialized = serializer.serialize(rpcResponse);
-            System.out.println("响应序列化成功，数据大小: " + serialized.length + " 字节");
-            httpServerResponse.end(Buffer.buffer(serialized));
+            // 序列化到池化缓冲区，写出后归还
+            ByteBuf serialized = serializer.serializeToBuffer(rpcResponse);
+            System.out.println("响应序列化成功，数据大小: " + serialized.readableBytes() + " 字节");
+            AsyncHttpServerHandler.endAndRelease(httpServerResponse, serialized);
         } catch (IOException e) {
             System.err.println("序列化响应时出错: " + e.getMessage());
             e.printStackTrace();
             
             // 返回错误信息而不是空响应
             RpcResponse errorResponse = new RpcResponse();
-            errorResponse.setMessage("服务器序列化错误: " + e.getMessage());
+            errorResponse.setError(ErrorCodec.error(RpcError.INTERNAL, "服务器序列化错误: " + e.getMessage()));
             
             try {
                 // 尝试序列化错误响应
@@ -0,0 +1,168 @@
+package com.anon.anonrpc.server;
+
+import com.anon.anonrpc.annotation.Cacheable;
+import com.anon.anonrpc.annotation.Idempotent;
+import com.anon.anonrpc.cache.ResponseCache;
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.model.CallKey;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 服务端调用合并 - 同一个幂等方法以相同参数并发调用时只执行一次，所有等待的请求共用结果
+ * 合并的结果是序列化后的响应字节，等待者不再各自序列化；
+ * 标注了 @Cacheable 的方法还会把成功的响应字节缓存 ttlMs，命中时跳过调用和序列化；
+ * 失败的响应只与同时等待的请求共用，不写入缓存。
+ * 注解可以标在服务实现类或服务接口的方法上
+ */
+public final class InvocationCoalescer {
+
+    // 不合并
+    private static final long NONE = -1;
+    // 只合并，不缓存
+    private static final long NO_CACHE = 0;
+
+    // 实现类方法 -> 缓存时间（毫秒），或 NONE / NO_CACHE
+    private static final Map<Method, Long> POLICIES = new ConcurrentHashMap<>();
+    // 正在执行的调用
+    private static final Map<CallKey, CompletableFuture<byte[]>> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    private static final LongAdder COALESCED = new LongAdder();
+
+    private static volatile ResponseCache<CallKey, byte[]> cache;
+
+    private InvocationCoalescer() {
+    }
+
+    /**
+     * 方法的调用是否可以合并（幂等或可缓存）
+     */
+    static boolean isCoalescible(Method method) {
+        return RpcConfig.isProviderCoalescingEnabled() && policy(method) != NONE;
+    }
+
+    /**
+     * 合并执行一次调用
+     * @param method 服务实现类的方法
+     * @param args 参数
+     * @param invocation 执行调用并返回序列化后的响应及调用是否成功，只在没有缓存和正在执行的相同调用时执行
+     * @return 序列化后的响应
+     */
+    static CompletableFuture<byte[]> execute(Method method, Object[] args, Supplier<Result> invocation) {
+        CallKey key = new CallKey(method, args);
+        long ttlMs = policy(method);
+        if (ttlMs > NO_CACHE) {
+            Object cached = getCache().get(key, null);
+            if (cached != ResponseCache.MISS) {
+                return CompletableFuture.completedFuture((byte[]) cached);
+            }
+        }
+        CompletableFuture<byte[]> flight = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = IN_FLIGHT.putIfAbsent(key, flight);
+        if (existing != null) {
+            COALESCED.increment();
+            return existing;
+        }
+        try {
+            Result result = invocation.get();
+            // 先写缓存再移出执行表，之后到达的相同请求不会再次执行
+            if (ttlMs > NO_CACHE && result.success && result.response != null) {
+                getCache().put(key, result.response, ttlMs);
+            }
+            flight.complete(result.response);
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+        } finally {
+            IN_FLIGHT.remove(key, flight);
+        }
+        return flight;
+    }
+
+    /**
+     * 一次调用的结果：序列化后的响应，以及调用是否成功（只有成功的响应可以缓存）
+     */
+    static final class Result {
+        final byte[] response;
+        final boolean success;
+
+        private Result(byte[] response, boolean success) {
+            this.response = response;
+            this.success = success;
+        }
+
+        static Result success(byte[] response) {
+            return new Result(response, true);
+        }
+
+        static Result failure(byte[] response) {
+            return new Result(response, false);
+        }
+    }
+
+    /**
+     * 与正在执行的相同调用合并的请求数
+     */
+    public static long getCoalescedCount() {
+        return COALESCED.sum();
+    }
+
+    /**
+     * 获取响应字节缓存（含命中率等统计），第一次使用时按 RpcConfig 创建
+     */
+    public static ResponseCache<CallKey, byte[]> getCache() {
+        ResponseCache<CallKey, byte[]> current = cache;
+        if (current == null) {
+            synchronized (InvocationCoalescer.class) {
+                current = cache;
+                if (current == null) {
+                    current = new ResponseCache<>(RpcConfig.getProviderCacheMaxSize(), 0);
+                    cache = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static long policy(Method method) {
+        Long policy = POLICIES.get(method);
+        if (policy == null) {
+            policy = POLICIES.computeIfAbsent(method, InvocationCoalescer::resolve);
+        }
+        return policy;
+    }
+
+    private static long resolve(Method method) {
+        Cacheable cacheable = findAnnotation(method, Cacheable.class);
+        if (cacheable != null) {
+            return Math.max(NO_CACHE, cacheable.ttlMs());
+        }
+        return findAnnotation(method, Idempotent.class) != null ? NO_CACHE : NONE;
+    }
+
+    /**
+     * 依次在实现类方法和各接口的同名方法上查找注解
+     */
+    private static <A extends Annotation> A findAnnotation(Method method, Class<A> type) {
+        A annotation = method.getAnnotation(type);
+        if (annotation != null) {
+            return annotation;
+        }
+        for (Class<?> iface : method.getDeclaringClass().getInterfaces()) {
+            try {
+                annotation = iface.getMethod(method.getName(), method.getParameterTypes()).getAnnotation(type);
+                if (annotation != null) {
+                    return annotation;
+                }
+            } catch (NoSuchMethodException e) {
+                // 不是该接口的方法
+            }
+        }
+        return null;
+    }
+}
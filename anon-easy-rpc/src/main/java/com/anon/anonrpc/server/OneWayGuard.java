@@ -0,0 +1,60 @@
+package com.anon.anonrpc.server;
+
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.model.RpcHeaders;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单向请求的确认和背压
+ * 读完请求体后立即以 202 空响应确认，之后执行服务方法，不再写回任何内容；
+ * 已确认未执行完的请求超过 providerOneWayMaxPending 时以 503 拒绝，调用方据此计入熔断并减速
+ */
+final class OneWayGuard {
+
+    private static final Buffer OVERLOADED = Buffer.buffer("one-way queue full");
+
+    private static final AtomicInteger PENDING = new AtomicInteger();
+
+    private OneWayGuard() {
+    }
+
+    static boolean isOneWay(HttpServerRequest request) {
+        return "1".equals(request.getHeader(RpcHeaders.ONE_WAY));
+    }
+
+    /**
+     * 确认收到单向请求
+     * @return false表示已拒绝并写回503，调用方应直接返回；true时执行结束后必须调用 done
+     */
+    static boolean accept(HttpServerRequest request) {
+        if (PENDING.incrementAndGet() > RpcConfig.getProviderOneWayMaxPending()) {
+            PENDING.decrementAndGet();
+            request.response().setStatusCode(503).end(OVERLOADED);
+            return false;
+        }
+        request.response().setStatusCode(202).end();
+        return true;
+    }
+
+    /**
+     * 请求体读取失败，没有确认：回复 400，调用方立即得到失败而不是等到超时
+     */
+    static void reject(HttpServerRequest request, Throwable error) {
+        System.err.println("读取单向请求体失败: " + error);
+        HttpServerResponse response = request.response();
+        if (!response.ended() && !response.closed()) {
+            response.setStatusCode(400).end("failed to read request body");
+        }
+    }
+
+    /**
+     * 一个已确认的单向请求执行结束
+     */
+    static void done() {
+        PENDING.decrementAndGet();
+    }
+}
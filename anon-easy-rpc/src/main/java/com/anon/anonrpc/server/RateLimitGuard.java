@@ -0,0 +1,50 @@
+package com.anon.anonrpc.server;
+
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.model.RpcHeaders;
+import com.anon.anonrpc.ratelimit.RateLimiter;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+
+/**
+ * 服务端限流检查
+ * 优先按请求头中的服务名和方法名检查，不需要读取和反序列化请求体；
+ * 被拒绝时返回 429 和预先分配好的响应体
+ */
+final class RateLimitGuard {
+
+    private static final Buffer TOO_MANY_REQUESTS = Buffer.buffer("rate limited");
+
+    private RateLimitGuard() {
+    }
+
+    /**
+     * 按请求头检查限流
+     * @return true表示已拒绝并写回响应，调用方应直接返回
+     */
+    static boolean rejectByHeaders(HttpServerRequest request) {
+        if (!RpcConfig.isRateLimitEnabled()) {
+            return false;
+        }
+        return reject(request, request.getHeader(RpcHeaders.SERVICE), request.getHeader(RpcHeaders.METHOD));
+    }
+
+    /**
+     * 请求头中没有服务名时（旧版本客户端），反序列化之后再按请求体中的服务名检查
+     * @return true表示已拒绝并写回响应
+     */
+    static boolean rejectByRequest(HttpServerRequest request, String serviceName, String methodName) {
+        if (!RpcConfig.isRateLimitEnabled() || request.getHeader(RpcHeaders.SERVICE) != null) {
+            return false;
+        }
+        return reject(request, serviceName, methodName);
+    }
+
+    private static boolean reject(HttpServerRequest request, String serviceName, String methodName) {
+        if (RateLimiter.PROVIDER.tryAcquire(serviceName, methodName)) {
+            return false;
+        }
+        request.response().setStatusCode(429).end(TOO_MANY_REQUESTS);
+        return true;
+    }
+}
@@ -0,0 +1,29 @@
+package com.anon.anonrpc.server;
+
+import com.anon.anonrpc.utils.HttpTransportOptions;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.core.net.SocketAddress;
+
+/**
+ * 异步RPC服务器的一个实例 - 部署多个实例时各自绑定到一个事件循环，共用同一个监听地址，
+ * 连接在实例之间分配，请求处理不再集中在一个事件循环上
+ */
+class RpcServerVerticle extends AbstractVerticle {
+
+    private final SocketAddress address;
+
+    RpcServerVerticle(SocketAddress address) {
+        this.address = address;
+    }
+
+    @Override
+    public void start(Promise<Void> startPromise) {
+        vertx.createHttpServer(HttpTransportOptions.server(vertx))
+                .connectionHandler(FlushCoalescing::install)
+                .requestHandler(new AsyncHttpServerHandler(vertx))
+                .listen(address)
+                .<Void>mapEmpty()
+                .onComplete(startPromise);
+    }
+}
@@ -1,6 +1,10 @@
 package com.anon.anonrpc.server;
 
+import com.anon.anonrpc.utils.HttpTransportOptions;
+import com.anon.anonrpc.utils.ServiceAddress;
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.net.SocketAddress;
 
 /**
  * Vertx HTTP 服务器
@@ -14,19 +18,36 @@ public class VertxHttpServer implements HttpServer{
      * @param port
      */
     public void doStart(int port) {
-        // 创建Vert.x实例
-        Vertx vertx = Vertx.vertx();
+        listen(SocketAddress.inetSocketAddress(port, "0.0.0.0"), "port " + port);
+    }
+
+    /**
+     * 在 Unix 域套接字上启动服务器
+     *
+     * @param socketPath
+     */
+    public void doStartUnix(String socketPath) {
+        ServiceAddress.deleteStaleSocket(socketPath);
+        listen(SocketAddress.domainSocketAddress(socketPath), "unix socket " + socketPath);
+    }
+
+    private void listen(SocketAddress address, String description) {
+        // 创建Vert.x实例，优先使用原生传输
+        Vertx vertx = Vertx.vertx(new VertxOptions().setPreferNativeTransport(true));
 
         // 创建HTTP服务器
-        io.vertx.core.http.HttpServer server = vertx.createHttpServer();
+        io.vertx.core.http.HttpServer server = vertx.createHttpServer(HttpTransportOptions.server(vertx));
 
         // 监听端口并处理请求
         server.requestHandler(new HttpServerHandler());
 
-        // 启动HTTP服务器并监听指定端口
-        server.listen(port, result -> {
+        // 合并同一连接上相近时间完成的响应写出
+        server.connectionHandler(FlushCoalescing::install);
+
+        // 启动HTTP服务器并监听指定地址
+        server.listen(address, result -> {
             if (result.succeeded()) {
-                System.out.println("Server is now listening on port " + port);
+                System.out.println("Server is now listening on " + description);
             } else {
                 System.err.println("Failed to start server: " + result.cause());
             }
@@ -0,0 +1,38 @@
+package com.anon.anonrpc.utils;
+
+import com.anon.anonrpc.config.RpcConfig;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+
+/**
+ * 编解码用的缓冲区池 - 基于 Netty 的 PooledByteBufAllocator：按大小分级的内存块、每个线程一份缓存，
+ * 请求和响应序列化时从池中取直接内存缓冲区，写出完成后 release 归还，不再每次分配并丢弃 byte[]。
+ * 取出的缓冲区必须且只能 release 一次；测试中开启 -Dio.netty.leakDetection.level=paranoid 检测泄漏
+ */
+public final class BufferPool {
+
+    // 大多数请求和响应在这个大小以内，超出时按分级自动扩容
+    private static final int INITIAL_CAPACITY = 512;
+
+    private static final PooledByteBufAllocator ALLOCATOR = PooledByteBufAllocator.DEFAULT;
+
+    private BufferPool() {
+    }
+
+    /**
+     * 取一个可扩容的缓冲区；关闭 pooledBuffersEnabled 时返回普通堆缓冲区
+     */
+    public static ByteBuf acquire() {
+        return RpcConfig.isPooledBuffersEnabled()
+                ? ALLOCATOR.directBuffer(INITIAL_CAPACITY)
+                : Unpooled.buffer(INITIAL_CAPACITY);
+    }
+
+    /**
+     * 池中已分配的直接内存（字节）
+     */
+    public static long getUsedDirectMemory() {
+        return ALLOCATOR.metric().usedDirectMemory();
+    }
+}
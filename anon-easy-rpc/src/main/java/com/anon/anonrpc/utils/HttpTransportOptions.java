@@ -0,0 +1,77 @@
+package com.anon.anonrpc.utils;
+
+import com.anon.anonrpc.config.RpcConfig;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.Http2Settings;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.net.PemKeyCertOptions;
+import io.vertx.core.net.PemTrustOptions;
+
+import java.util.Arrays;
+
+/**
+ * RPC 服务端和客户端的 HTTP 传输配置（HTTP/2 流控、TLS），按 RpcConfig 生成
+ * HTTP/2 下并发调用作为同一连接上的多个流发送，请求头经 HPACK 压缩，不再一个请求占用一个连接
+ */
+public final class HttpTransportOptions {
+
+    private HttpTransportOptions() {
+    }
+
+    /**
+     * 服务端配置：明文端口同时接受 HTTP/1.1 和 h2c（先验知识或 Upgrade），配置了证书时启用 TLS 并通过 ALPN 协商
+     * @param vertx 创建服务器的 Vert.x 实例，用于判断是否启用了原生传输
+     */
+    public static HttpServerOptions server(Vertx vertx) {
+        HttpServerOptions options = new HttpServerOptions()
+                .setTcpNoDelay(true)
+                // 原生传输下每个服务器实例各自 accept，连接直接分散到各事件循环；
+                // NIO 下 SO_REUSEPORT 没有这个效果，只会让另一个进程也能绑定同一端口
+                .setReusePort(RpcConfig.isServerReusePort() && vertx.isNativeTransportEnabled())
+                .setAcceptBacklog(RpcConfig.getServerAcceptBacklog())
+                .setInitialSettings(http2Settings())
+                .setHttp2ConnectionWindowSize(RpcConfig.getHttp2ConnectionWindowSize());
+        if (RpcConfig.getTlsCertPath() != null && RpcConfig.getTlsKeyPath() != null) {
+            options.setSsl(true)
+                    .setUseAlpn(true)
+                    .setAlpnVersions(Arrays.asList(HttpVersion.HTTP_2, HttpVersion.HTTP_1_1))
+                    .setKeyCertOptions(new PemKeyCertOptions()
+                            .setCertPath(RpcConfig.getTlsCertPath())
+                            .setKeyPath(RpcConfig.getTlsKeyPath()));
+        }
+        return options;
+    }
+
+    /**
+     * 客户端配置
+     * @param maxPoolSize HTTP/1.1 下每个服务端的最大连接数；HTTP/2 下每个服务端只用一个连接
+     */
+    public static HttpClientOptions client(int maxPoolSize) {
+        HttpClientOptions options = new HttpClientOptions()
+                .setKeepAlive(true)
+                .setTcpNoDelay(true)
+                .setMaxPoolSize(maxPoolSize);
+        if (RpcConfig.getTlsTrustCertPath() != null) {
+            options.setTrustOptions(new PemTrustOptions().addCertPath(RpcConfig.getTlsTrustCertPath()));
+        }
+        if (RpcConfig.isHttp2Enabled()) {
+            // 明文连接直接发送 HTTP/2 前言（h2c 先验知识），省去一次 Upgrade 往返
+            options.setProtocolVersion(HttpVersion.HTTP_2)
+                    .setHttp2ClearTextUpgrade(false)
+                    .setUseAlpn(true)
+                    .setHttp2MaxPoolSize(1)
+                    .setHttp2MultiplexingLimit(RpcConfig.getHttp2MaxConcurrentStreams())
+                    .setHttp2ConnectionWindowSize(RpcConfig.getHttp2ConnectionWindowSize())
+                    .setInitialSettings(http2Settings());
+        }
+        return options;
+    }
+
+    private static Http2Settings http2Settings() {
+        return new Http2Settings()
+                .setMaxConcurrentStreams(RpcConfig.getHttp2MaxConcurrentStreams())
+                .setInitialWindowSize(RpcConfig.getHttp2InitialWindowSize());
+    }
+}
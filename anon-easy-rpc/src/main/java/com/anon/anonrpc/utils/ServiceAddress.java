@@ -0,0 +1,125 @@
+package com.anon.anonrpc.utils;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.core.net.NetClient;
+import io.vertx.core.net.NetClientOptions;
+import io.vertx.core.net.NetSocket;
+import io.vertx.core.net.SocketAddress;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 服务URL解析 - 除 http:// 外还支持 unix:// 形式的 Unix 域套接字地址，
+ * 例如 unix:///var/run/anon-rpc.sock，同一主机上的调用不经过 TCP/IP 协议栈
+ */
+public final class ServiceAddress {
+
+    /**
+     * Unix 域套接字URL前缀
+     */
+    public static final String UNIX_SCHEME = "unix://";
+
+    // 判断残留套接字时的连接超时（毫秒）
+    private static final int STALE_PROBE_TIMEOUT_MS = 1000;
+
+    private ServiceAddress() {
+    }
+
+    public static boolean isUnix(String serviceUrl) {
+        return serviceUrl.startsWith(UNIX_SCHEME);
+    }
+
+    /**
+     * 获取 unix:// URL 中的套接字文件路径
+     */
+    public static String socketPath(String serviceUrl) {
+        return serviceUrl.substring(UNIX_SCHEME.length());
+    }
+
+    /**
+     * 删除上次进程退出后残留的套接字文件，否则监听会因地址已被占用而失败
+     * 只删除确实是套接字、且连接失败（已经没有进程在监听）的文件；路径上是其他文件，
+     * 或仍有进程在该套接字上监听时抛出 IllegalStateException，不覆盖别人的文件或地址
+     */
+    public static void deleteStaleSocket(String socketPath) {
+        Path path = Paths.get(socketPath);
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException e) {
+            throw new IllegalStateException("无法读取套接字路径 " + socketPath + ": " + e, e);
+        }
+        // 套接字不是普通文件、目录或符号链接
+        if (!attributes.isOther()) {
+            throw new IllegalStateException(socketPath + " 不是套接字文件，拒绝删除");
+        }
+        if (isListening(socketPath)) {
+            throw new IllegalStateException("另一个进程正在 " + socketPath + " 上监听");
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new IllegalStateException("无法删除残留的套接字文件 " + socketPath + ": " + e, e);
+        }
+    }
+
+    /**
+     * 尝试连接套接字，判断是否仍有进程在监听
+     * 没有原生传输时无法连接 Unix 域套接字，按仍在监听处理，不删除文件
+     */
+    private static boolean isListening(String socketPath) {
+        Vertx vertx = SharedVertx.get();
+        if (!vertx.isNativeTransportEnabled()) {
+            return true;
+        }
+        NetClient client = vertx.createNetClient(new NetClientOptions().setConnectTimeout(STALE_PROBE_TIMEOUT_MS));
+        try {
+            NetSocket socket = client.connect(SocketAddress.domainSocketAddress(socketPath))
+                    .toCompletionStage().toCompletableFuture()
+                    .get(STALE_PROBE_TIMEOUT_MS * 2, TimeUnit.MILLISECONDS);
+            socket.close();
+            return true;
+        } catch (ExecutionException e) {
+            // 连接被拒绝：文件是上次进程留下的
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
+        } catch (TimeoutException e) {
+            // 监听方没有及时 accept，同样说明套接字还在使用
+            return true;
+        } finally {
+            client.close();
+        }
+    }
+
+    /**
+     * 把请求目标设置为服务URL下的指定路径
+     * @param path 请求路径，以 / 开头；为null时直接请求服务URL
+     */
+    public static RequestOptions target(RequestOptions options, String serviceUrl, String path) {
+        if (isUnix(serviceUrl)) {
+            // Host 头没有实际意义，按 HTTP/1.1 要求填一个
+            return options.setServer(SocketAddress.domainSocketAddress(socketPath(serviceUrl)))
+                    .setHost("localhost")
+                    .setURI(path == null ? "/" : path);
+        }
+        if (path == null) {
+            return options.setAbsoluteURI(serviceUrl);
+        }
+        String base = serviceUrl.endsWith("/") ? serviceUrl.substring(0, serviceUrl.length() - 1) : serviceUrl;
+        return options.setAbsoluteURI(base + path);
+    }
+}
@@ -0,0 +1,49 @@
+package com.anon.anonrpc.utils;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+
+/**
+ * 框架内部共享的 Vert.x 实例 - 健康检查、客户端等组件共用同一组事件循环线程，
+ * 避免每个组件各自创建 Vertx 带来的线程和内存开销
+ */
+public class SharedVertx {
+
+    /**
+     * 事件循环线程数
+     */
+    public static final int EVENT_LOOPS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private static volatile Vertx VERTX;
+
+    /**
+     * 获取共享实例，首次调用时创建
+     */
+    public static Vertx get() {
+        Vertx vertx = VERTX;
+        if (vertx == null) {
+            synchronized (SharedVertx.class) {
+                vertx = VERTX;
+                if (vertx == null) {
+                    // 优先使用原生传输（Linux 上为 epoll），Unix 域套接字需要原生传输；不可用时回退到 NIO
+                    vertx = Vertx.vertx(new VertxOptions()
+                            .setEventLoopPoolSize(EVENT_LOOPS)
+                            .setPreferNativeTransport(true));
+                    VERTX = vertx;
+                }
+            }
+        }
+        return vertx;
+    }
+
+    /**
+     * 关闭共享实例（事件循环线程为非守护线程，进程退出前需调用）
+     */
+    public static synchronized void close() {
+        Vertx vertx = VERTX;
+        VERTX = null;
+        if (vertx != null) {
+            vertx.close();
+        }
+    }
+}
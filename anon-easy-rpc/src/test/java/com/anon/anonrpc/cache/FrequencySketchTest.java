@@ -0,0 +1,45 @@
+package com.anon.anonrpc.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 频率估计：计数到15封顶，记录次数达到样本数后所有计数器减半
+ */
+class FrequencySketchTest {
+
+    @Test
+    void countsUpToFifteen() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        assertEquals(0, sketch.frequency("key"));
+        for (int i = 1; i <= 15; i++) {
+            sketch.increment("key");
+            assertEquals(i, sketch.frequency("key"));
+        }
+        sketch.increment("key");
+        assertEquals(15, sketch.frequency("key"));
+    }
+
+    @Test
+    void countersAreHalvedAfterSampleSize() {
+        // 容量16，样本数160
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 15; i++) {
+            sketch.increment("hot");
+        }
+        // 计数器已饱和的访问不计入样本数
+        for (int i = 0; i < 100; i++) {
+            sketch.increment("hot");
+        }
+        assertEquals(15, sketch.frequency("hot"));
+
+        int recorded = 15;
+        while (sketch.frequency("hot") == 15) {
+            sketch.increment("other" + recorded++);
+            assertTrue(recorded <= 160, "记录达到样本数后应当减半");
+        }
+        assertEquals(7, sketch.frequency("hot"));
+    }
+}
@@ -0,0 +1,177 @@
+package com.anon.anonrpc.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * W-TinyLFU 淘汰和存活时间：
+ * 容量为3时窗口区1个、保护段1个，其余在试用段，每一步各条目所在的区段可以直接推出
+ */
+class ResponseCacheTest {
+
+    private static final long LONG_TTL = 60_000;
+
+    @Test
+    void frequentVictimRejectsNewcomer() {
+        ResponseCache<String, String> cache = new ResponseCache<>(3, 0);
+        cache.put("a", "a", LONG_TTL);
+        // a 还在窗口区，访问只累积频率
+        touch(cache, "a", 4);
+        cache.put("b", "b", LONG_TTL);
+        cache.put("c", "c", LONG_TTL);
+        // c 被挤出窗口后与试用段最久未访问的 a 比较，频率更低被淘汰
+        cache.put("d", "d", LONG_TTL);
+
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertSame(ResponseCache.MISS, cache.get("c", null));
+        assertEquals("a", cache.get("a", null));
+        assertEquals("b", cache.get("b", null));
+        assertEquals("d", cache.get("d", null));
+    }
+
+    @Test
+    void frequentNewcomerReplacesColdVictim() {
+        ResponseCache<String, String> cache = new ResponseCache<>(3, 0);
+        cache.put("a", "a", LONG_TTL);
+        cache.put("b", "b", LONG_TTL);
+        cache.put("c", "c", LONG_TTL);
+        touch(cache, "c", 4);
+        // c 进入试用段，频率高于最久未访问的 a
+        cache.put("d", "d", LONG_TTL);
+
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertSame(ResponseCache.MISS, cache.get("a", null));
+        assertEquals("c", cache.get("c", null));
+    }
+
+    @Test
+    void protectedEntrySurvivesScan() {
+        ResponseCache<String, String> cache = new ResponseCache<>(3, 0);
+        cache.put("a", "a", LONG_TTL);
+        cache.put("b", "b", LONG_TTL);
+        cache.put("c", "c", LONG_TTL);
+        // 试用段中再次访问的 b 升入保护段，只在试用段为空时才会被淘汰
+        touch(cache, "b", 1);
+        for (int i = 0; i < 200; i++) {
+            // 扫描的条目在窗口区被多读两次，频率高于 b，b 留在试用段时会被挤掉
+            cache.put("scan" + i, "scan", LONG_TTL);
+            touch(cache, "scan" + i, 2);
+        }
+
+        assertEquals(3, cache.size());
+        assertEquals(200, cache.getEvictions());
+        assertEquals("b", cache.get("b", null));
+    }
+
+    @Test
+    void protectedOverflowIsDemotedToProbation() {
+        ResponseCache<String, String> cache = new ResponseCache<>(3, 0);
+        cache.put("a", "a", LONG_TTL);
+        cache.put("b", "b", LONG_TTL);
+        cache.put("c", "c", LONG_TTL);
+        touch(cache, "a", 1);
+        // 保护段只能放一个：b 升入时 a 降回试用段
+        touch(cache, "b", 1);
+        cache.put("d", "d", LONG_TTL);
+        touch(cache, "d", 4);
+        // d 进入试用段时 a 是最久未访问的条目，频率更低被淘汰；留在保护段的 b 不参与比较
+        cache.put("e", "e", LONG_TTL);
+
+        assertSame(ResponseCache.MISS, cache.get("a", null));
+        assertEquals("b", cache.get("b", null));
+        assertEquals("d", cache.get("d", null));
+        assertEquals("e", cache.get("e", null));
+    }
+
+    @Test
+    void expiredEntryIsMissAndRemoved() throws InterruptedException {
+        ResponseCache<String, String> cache = new ResponseCache<>(10, 0);
+        cache.put("k", "v", 100);
+        cache.put("null", null, LONG_TTL);
+        assertEquals("v", cache.get("k", null));
+        // 缓存的 null 结果与没有命中区分开
+        assertNotSame(ResponseCache.MISS, cache.get("null", null));
+
+        Thread.sleep(150);
+        assertSame(ResponseCache.MISS, cache.get("k", null));
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // 重新写入后重新计算存活时间
+        cache.put("k", "v2", LONG_TTL);
+        assertEquals("v2", cache.get("k", null));
+    }
+
+    @Test
+    void hotEntryIsRefreshedAheadOnce() throws InterruptedException {
+        ResponseCache<String, String> cache = new ResponseCache<>(10, 50);
+        cache.put("k", "v1", 600);
+        touch(cache, "k", 3);
+        Thread.sleep(350);
+
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> refreshed = new CompletableFuture<>();
+        // 刷新进行中时读取方继续拿到当前结果，也不会重复发起刷新
+        assertEquals("v1", cache.get("k", () -> {
+            calls.incrementAndGet();
+            return refreshed;
+        }));
+        assertEquals("v1", cache.get("k", () -> {
+            calls.incrementAndGet();
+            return refreshed;
+        }));
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.getRefreshes());
+
+        refreshed.complete("v2");
+        assertEquals("v2", cache.get("k", null));
+        // 刷新结果重新计算存活时间，原来的到期时间之后仍然命中
+        Thread.sleep(350);
+        assertEquals("v2", cache.get("k", null));
+    }
+
+    @Test
+    void failedRefreshIsRetriedOnNextRead() throws InterruptedException {
+        ResponseCache<String, String> cache = new ResponseCache<>(10, 50);
+        cache.put("k", "v1", 600);
+        touch(cache, "k", 3);
+        Thread.sleep(350);
+
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("refresh failed"));
+        assertEquals("v1", cache.get("k", () -> failed));
+        assertEquals("v1", cache.get("k", () -> CompletableFuture.completedFuture("v2")));
+        assertEquals(2, cache.getRefreshes());
+        assertEquals("v2", cache.get("k", null));
+    }
+
+    @Test
+    void coldEntryIsNotRefreshedAhead() throws InterruptedException {
+        ResponseCache<String, String> cache = new ResponseCache<>(10, 50);
+        cache.put("k", "v1", 300);
+        Thread.sleep(200);
+
+        AtomicInteger calls = new AtomicInteger();
+        assertEquals("v1", cache.get("k", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("v2");
+        }));
+        assertEquals(0, calls.get());
+        assertEquals(0, cache.getRefreshes());
+    }
+
+    private static void touch(ResponseCache<String, String> cache, String key, int times) {
+        for (int i = 0; i < times; i++) {
+            cache.get(key, null);
+        }
+    }
+}
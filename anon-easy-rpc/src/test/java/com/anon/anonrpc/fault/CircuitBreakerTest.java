@@ -0,0 +1,127 @@
+package com.anon.anonrpc.fault;
+
+import com.anon.anonrpc.config.RpcConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 熔断器半开状态的名额和超时
+ */
+class CircuitBreakerTest {
+
+    private static final AtomicInteger SEQ = new AtomicInteger();
+
+    private int threshold;
+    private long recoveryMs;
+    private int permits;
+    private long halfOpenTimeoutMs;
+
+    @BeforeEach
+    void setUp() {
+        threshold = RpcConfig.getCircuitBreakerThreshold();
+        recoveryMs = RpcConfig.getCircuitBreakerRecoveryMs();
+        permits = RpcConfig.getCircuitBreakerHalfOpenPermits();
+        halfOpenTimeoutMs = RpcConfig.getCircuitBreakerHalfOpenTimeoutMs();
+        RpcConfig.setCircuitBreakerThreshold(2);
+        RpcConfig.setCircuitBreakerRecoveryMs(50);
+        RpcConfig.setCircuitBreakerHalfOpenPermits(2);
+        RpcConfig.setCircuitBreakerHalfOpenTimeoutMs(100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RpcConfig.setCircuitBreakerThreshold(threshold);
+        RpcConfig.setCircuitBreakerRecoveryMs(recoveryMs);
+        RpcConfig.setCircuitBreakerHalfOpenPermits(permits);
+        RpcConfig.setCircuitBreakerHalfOpenTimeoutMs(halfOpenTimeoutMs);
+    }
+
+    @Test
+    void halfOpenWithoutOutcomesReopensAfterTimeout() throws InterruptedException {
+        String url = halfOpen();
+        // 两个探测名额都被拿走，但调用始终没有记录结果
+        assertTrue(CircuitBreaker.isAvailable(url));
+        assertTrue(CircuitBreaker.isAvailable(url));
+        assertFalse(CircuitBreaker.isAvailable(url));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, CircuitBreaker.getState(url));
+
+        Thread.sleep(RpcConfig.getCircuitBreakerHalfOpenTimeoutMs() + 20);
+        assertFalse(CircuitBreaker.isAvailable(url));
+        assertEquals(CircuitBreaker.State.OPEN, CircuitBreaker.getState(url));
+
+        // 恢复时间后重新进入半开，名额重新发放，探测成功后关闭
+        Thread.sleep(RpcConfig.getCircuitBreakerRecoveryMs() + 20);
+        assertTrue(CircuitBreaker.isAvailable(url));
+        assertTrue(CircuitBreaker.isAvailable(url));
+        CircuitBreaker.recordSuccess(url);
+        CircuitBreaker.recordSuccess(url);
+        assertEquals(CircuitBreaker.State.CLOSED, CircuitBreaker.getState(url));
+    }
+
+    @Test
+    void releasedPermitCanBeTakenAgain() throws InterruptedException {
+        String url = halfOpen();
+        assertTrue(CircuitBreaker.isAvailable(url));
+        assertTrue(CircuitBreaker.isAvailable(url));
+        assertFalse(CircuitBreaker.isAvailable(url));
+
+        CircuitBreaker.releasePermit(url);
+        assertTrue(CircuitBreaker.isAvailable(url));
+        assertFalse(CircuitBreaker.isAvailable(url));
+
+        CircuitBreaker.recordSuccess(url);
+        CircuitBreaker.recordSuccess(url);
+        assertEquals(CircuitBreaker.State.CLOSED, CircuitBreaker.getState(url));
+    }
+
+    @Test
+    void releaseNeverExceedsUnrecordedSlots() throws InterruptedException {
+        String url = halfOpen();
+        // 没有拿过名额时归还不会多出名额
+        CircuitBreaker.releasePermit(url);
+        CircuitBreaker.releasePermit(url);
+        assertTrue(CircuitBreaker.isAvailable(url));
+        assertTrue(CircuitBreaker.isAvailable(url));
+        assertFalse(CircuitBreaker.isAvailable(url));
+
+        // 第一个探测失败，第二个探测没有发出并归还名额，窗口中只剩一个槽位
+        CircuitBreaker.recordFailure(url);
+        CircuitBreaker.releasePermit(url);
+        CircuitBreaker.releasePermit(url);
+        assertTrue(CircuitBreaker.isAvailable(url));
+        assertFalse(CircuitBreaker.isAvailable(url));
+        CircuitBreaker.recordFailure(url);
+        assertEquals(CircuitBreaker.State.OPEN, CircuitBreaker.getState(url));
+    }
+
+    @Test
+    void releaseOutsideHalfOpenIsIgnored() {
+        String url = "http://cb-test-" + SEQ.incrementAndGet();
+        CircuitBreaker.releasePermit(url);
+        assertTrue(CircuitBreaker.isAvailable(url));
+        CircuitBreaker.recordSuccess(url);
+        CircuitBreaker.releasePermit(url);
+        assertEquals(CircuitBreaker.State.CLOSED, CircuitBreaker.getState(url));
+    }
+
+    /**
+     * 熔断一个新的URL并等到恢复时间过去，下一次 isAvailable 会进入半开状态
+     */
+    private static String halfOpen() throws InterruptedException {
+        String url = "http://cb-test-" + SEQ.incrementAndGet();
+        for (int i = 0; i < RpcConfig.getCircuitBreakerThreshold(); i++) {
+            CircuitBreaker.recordFailure(url);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, CircuitBreaker.getState(url));
+        assertFalse(CircuitBreaker.isAvailable(url));
+        Thread.sleep(RpcConfig.getCircuitBreakerRecoveryMs() + 20);
+        return url;
+    }
+}
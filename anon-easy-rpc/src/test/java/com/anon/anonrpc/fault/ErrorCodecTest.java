@@ -0,0 +1,199 @@
+package com.anon.anonrpc.fault;
+
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.model.RpcError;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 异常编码：类名、消息和按比例采样的截断堆栈；
+ * 解码：只还原可信的异常类型，Error 和不可信的类型以 RemoteServiceException 代替，且不初始化不可信的类
+ */
+class ErrorCodecTest {
+
+    public interface Account {
+        void withdraw(long amount);
+
+        void export() throws IOException;
+
+        void transfer() throws DeclaredException;
+    }
+
+    public static class InsufficientBalanceException extends StacklessException {
+        public InsufficientBalanceException(String message) {
+            super(message);
+        }
+    }
+
+    public static class DeclaredException extends RuntimeException {
+        public DeclaredException(String message) {
+            super(message);
+        }
+    }
+
+    // 放在外层类中，读取时不会触发 UntrustedException 的初始化
+    static volatile boolean untrustedInitialized;
+
+    public static class UntrustedException extends RuntimeException {
+        static {
+            untrustedInitialized = true;
+        }
+
+        public UntrustedException(String message) {
+            super(message);
+        }
+    }
+
+    public static class NoMessageConstructorException extends StacklessException {
+        public NoMessageConstructorException() {
+            super("fixed");
+        }
+    }
+
+    private int samplePercent;
+    private int maxFrames;
+
+    @BeforeEach
+    void setUp() {
+        samplePercent = RpcConfig.getErrorStackSamplePercent();
+        maxFrames = RpcConfig.getErrorStackMaxFrames();
+    }
+
+    @AfterEach
+    void tearDown() {
+        RpcConfig.setErrorStackSamplePercent(samplePercent);
+        RpcConfig.setErrorStackMaxFrames(maxFrames);
+    }
+
+    @Test
+    void encodeKeepsClassAndMessageWithoutStackByDefault() {
+        RpcConfig.setErrorStackSamplePercent(0);
+
+        RpcError error = ErrorCodec.encode(RpcError.SERVICE_ERROR, new IllegalStateException("closed"));
+
+        assertEquals(RpcError.SERVICE_ERROR, error.getCode());
+        assertEquals(IllegalStateException.class.getName(), error.getExceptionClass());
+        assertEquals("closed", error.getMessage());
+        assertNull(error.getStack());
+    }
+
+    @Test
+    void sampledStackIsTruncated() {
+        RpcConfig.setErrorStackSamplePercent(100);
+        RpcConfig.setErrorStackMaxFrames(2);
+        Exception exception = new IllegalStateException("sampled");
+        int frames = exception.getStackTrace().length;
+
+        String stack = ErrorCodec.encode(RpcError.SERVICE_ERROR, exception).getStack();
+
+        assertEquals(3, stack.split("\n").length);
+        assertTrue(stack.startsWith("\tat "), stack);
+        assertTrue(stack.endsWith("\t... " + (frames - 2) + " more\n"), stack);
+        // 不记录堆栈的异常即使抽中也不附带
+        assertNull(ErrorCodec.encode(RpcError.SERVICE_ERROR, new InsufficientBalanceException("x")).getStack());
+    }
+
+    @Test
+    void trustedTypesAreRebuilt() throws Exception {
+        assertRebuilt(IllegalArgumentException.class, method("withdraw"));
+        assertRebuilt(InsufficientBalanceException.class, method("withdraw"));
+        // 方法声明的受检异常和非受检异常
+        assertRebuilt(IOException.class, method("export"));
+        assertRebuilt(DeclaredException.class, method("transfer"));
+    }
+
+    @Test
+    void sampledStackIsAttachedAsSuppressed() throws Exception {
+        RpcError error = error(IllegalStateException.class, "remote");
+        error.setStack("\tat com.example.Server.run(Server.java:1)\n");
+
+        Throwable decoded = ErrorCodec.decode(error, method("withdraw"));
+
+        assertInstanceOf(IllegalStateException.class, decoded);
+        assertEquals(1, decoded.getSuppressed().length);
+        assertTrue(decoded.getSuppressed()[0].getMessage().contains("Server.java:1"));
+    }
+
+    @Test
+    void errorsAreNotRethrownAsErrors() throws Exception {
+        for (Class<? extends Throwable> type : new Class[]{OutOfMemoryError.class, StackOverflowError.class}) {
+            Throwable decoded = ErrorCodec.decode(error(type, "remote"), method("withdraw"));
+
+            assertInstanceOf(RemoteServiceException.class, decoded);
+            assertTrue(decoded.getMessage().startsWith(type.getName() + ": remote"), decoded.getMessage());
+        }
+    }
+
+    @Test
+    void untrustedTypesFallBackWithoutInitialization() throws Exception {
+        // 按名字引用，不在测试中触发类的初始化
+        RpcError error = RpcError.builder()
+                .code(RpcError.SERVICE_ERROR)
+                .exceptionClass(ErrorCodecTest.class.getName() + "$UntrustedException")
+                .message("remote")
+                .build();
+
+        Throwable decoded = ErrorCodec.decode(error, method("withdraw"));
+
+        assertInstanceOf(RemoteServiceException.class, decoded);
+        assertSame(error, ((RemoteServiceException) decoded).getError());
+        assertFalse(untrustedInitialized);
+    }
+
+    @Test
+    void undeclaredCheckedExceptionFallsBack() throws Exception {
+        assertInstanceOf(RemoteServiceException.class,
+                ErrorCodec.decode(error(IOException.class, "remote"), method("withdraw")));
+    }
+
+    @Test
+    void unknownOrUnconstructibleTypesFallBack() throws Exception {
+        RpcError unknown = RpcError.builder()
+                .code(RpcError.SERVICE_ERROR)
+                .exceptionClass("com.example.missing.GoneException")
+                .message("remote")
+                .build();
+        assertInstanceOf(RemoteServiceException.class, ErrorCodec.decode(unknown, method("withdraw")));
+        assertInstanceOf(RemoteServiceException.class,
+                ErrorCodec.decode(error(NoMessageConstructorException.class, "remote"), method("withdraw")));
+
+        // 框架错误没有异常类型
+        Throwable framework = ErrorCodec.decode(ErrorCodec.error(RpcError.NOT_FOUND, "服务未注册"), method("withdraw"));
+        assertEquals(RpcError.NOT_FOUND, ((RemoteServiceException) framework).getCode());
+    }
+
+    private static void assertRebuilt(Class<? extends Throwable> type, Method method) {
+        Throwable decoded = ErrorCodec.decode(error(type, "remote"), method);
+
+        assertSame(type, decoded.getClass());
+        assertEquals("remote", decoded.getMessage());
+    }
+
+    private static RpcError error(Class<? extends Throwable> type, String message) {
+        return RpcError.builder()
+                .code(RpcError.SERVICE_ERROR)
+                .exceptionClass(type.getName())
+                .message(message)
+                .build();
+    }
+
+    private static Method method(String name) throws NoSuchMethodException {
+        for (Method method : Account.class.getMethods()) {
+            if (method.getName().equals(name)) {
+                return method;
+            }
+        }
+        throw new NoSuchMethodException(name);
+    }
+}
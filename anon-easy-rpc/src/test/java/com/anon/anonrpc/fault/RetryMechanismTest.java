@@ -0,0 +1,257 @@
+package com.anon.anonrpc.fault;
+
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.context.DeadlineExceededException;
+import com.anon.anonrpc.ratelimit.RateLimitExceededException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 重试机制的对冲请求：选择实例、竞速、取消落败请求、对冲预算；
+ * 以及没有发出的请求（被取消、被并发限制拒绝、已过截止时间）不占用半开探测名额，服务端限流拒绝不计入熔断也不重试
+ */
+class RetryMechanismTest {
+
+    private static final AtomicInteger SEQ = new AtomicInteger();
+
+    private int hedgeBudgetPercent;
+    private long hedgeDefaultDelayMs;
+    private int threshold;
+    private long recoveryMs;
+    private int permits;
+    private int limitInitial;
+    private int limitQueueSize;
+
+    @BeforeEach
+    void setUp() {
+        hedgeBudgetPercent = RpcConfig.getHedgeBudgetPercent();
+        hedgeDefaultDelayMs = RpcConfig.getHedgeDefaultDelayMs();
+        threshold = RpcConfig.getCircuitBreakerThreshold();
+        recoveryMs = RpcConfig.getCircuitBreakerRecoveryMs();
+        permits = RpcConfig.getCircuitBreakerHalfOpenPermits();
+        limitInitial = RpcConfig.getConcurrencyLimitInitial();
+        limitQueueSize = RpcConfig.getConcurrencyLimitQueueSize();
+        // 每次调用存入一个对冲令牌
+        RpcConfig.setHedgeBudgetPercent(100);
+        RpcConfig.setHedgeDefaultDelayMs(20);
+        RpcConfig.setCircuitBreakerThreshold(2);
+        RpcConfig.setCircuitBreakerRecoveryMs(50);
+        RpcConfig.setCircuitBreakerHalfOpenPermits(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RpcConfig.setHedgeBudgetPercent(hedgeBudgetPercent);
+        RpcConfig.setHedgeDefaultDelayMs(hedgeDefaultDelayMs);
+        RpcConfig.setCircuitBreakerThreshold(threshold);
+        RpcConfig.setCircuitBreakerRecoveryMs(recoveryMs);
+        RpcConfig.setCircuitBreakerHalfOpenPermits(permits);
+        RpcConfig.setConcurrencyLimitInitial(limitInitial);
+        RpcConfig.setConcurrencyLimitQueueSize(limitQueueSize);
+    }
+
+    @Test
+    void hedgeGoesToAnotherInstanceAndCancelsLoser() throws Exception {
+        String slow = url();
+        String fast = url();
+        Calls calls = new Calls(slow);
+
+        String result = execute(calls, selector(slow, fast), tracker()).get(5, TimeUnit.SECONDS);
+
+        assertEquals(fast, result);
+        assertEquals(1, calls.count(slow));
+        assertEquals(1, calls.count(fast));
+        assertTrue(calls.pending.get(slow).isCancelled());
+    }
+
+    @Test
+    void noHedgeWithoutBudget() throws Exception {
+        String slow = url();
+        String fast = url();
+        RpcConfig.setHedgeBudgetPercent(0);
+        while (RetryMechanism.getHedgeBudget().tryWithdraw()) {
+            // 取光对冲预算
+        }
+        Calls calls = new Calls(slow);
+
+        CompletableFuture<String> result = execute(calls, selector(slow, fast), tracker());
+        Thread.sleep(RpcConfig.getHedgeDefaultDelayMs() * 5);
+
+        assertFalse(result.isDone());
+        assertEquals(0, calls.count(fast));
+        calls.pending.get(slow).complete(slow);
+        assertEquals(slow, result.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void noHedgeWithoutLatencyTracker() throws Exception {
+        String slow = url();
+        String fast = url();
+        Calls calls = new Calls(slow);
+
+        CompletableFuture<String> result = execute(calls, selector(slow, fast), null);
+        Thread.sleep(RpcConfig.getHedgeDefaultDelayMs() * 5);
+
+        assertEquals(0, calls.count(fast));
+        calls.pending.get(slow).complete(slow);
+        assertEquals(slow, result.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void cancelledLoserReturnsHalfOpenPermit() throws Exception {
+        String slow = url();
+        String fast = url();
+        openAndWaitForRecovery(slow);
+        Calls calls = new Calls(slow);
+
+        // 主请求拿走 slow 唯一的探测名额，对冲请求在 fast 上先返回
+        String result = execute(calls, selector(slow, fast), tracker()).get(5, TimeUnit.SECONDS);
+
+        assertEquals(fast, result);
+        assertTrue(calls.pending.get(slow).isCancelled());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, CircuitBreaker.getState(slow));
+        // 被取消的探测归还了名额，slow 还能被探测并恢复
+        assertTrue(CircuitBreaker.isAvailable(slow));
+        CircuitBreaker.recordSuccess(slow);
+        assertEquals(CircuitBreaker.State.CLOSED, CircuitBreaker.getState(slow));
+    }
+
+    @Test
+    void concurrencyLimitRejectionReturnsHalfOpenPermit() throws Exception {
+        String slow = url();
+        RpcConfig.setCircuitBreakerHalfOpenPermits(2);
+        // 新URL的限制器只允许一个在途请求，且不排队
+        RpcConfig.setConcurrencyLimitInitial(1);
+        RpcConfig.setConcurrencyLimitQueueSize(0);
+        openAndWaitForRecovery(slow);
+        Calls calls = new Calls(slow);
+
+        CompletableFuture<String> first = execute(calls, selector(slow), null);
+        CompletableFuture<String> second = execute(calls, selector(slow), null);
+        ExecutionException rejected = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(ConcurrencyLimitExceededException.class, rejected.getCause().getCause());
+        assertEquals(1, calls.count(slow));
+        // 被拒绝的调用没有计入熔断统计，并归还了第二个探测名额
+        assertEquals(CircuitBreaker.State.HALF_OPEN, CircuitBreaker.getState(slow));
+        assertTrue(CircuitBreaker.isAvailable(slow));
+        calls.pending.get(slow).complete(slow);
+        assertEquals(slow, first.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void expiredDeadlineFailsBeforeTakingPermit() throws Exception {
+        String slow = url();
+        openAndWaitForRecovery(slow);
+        Calls calls = new Calls(slow);
+
+        CompletableFuture<String> result = RetryMechanism.executeWithRetry(calls, selector(slow), 3, null,
+                System.nanoTime() - 1);
+        ExecutionException expired = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(DeadlineExceededException.class, expired.getCause());
+        assertEquals(0, calls.count(slow));
+        // 没有选择实例，熔断器仍处于熔断状态，恢复时间已过，下一次探测可以拿到名额
+        assertEquals(CircuitBreaker.State.OPEN, CircuitBreaker.getState(slow));
+        assertTrue(CircuitBreaker.isAvailable(slow));
+    }
+
+    @Test
+    void providerRateLimitIsNeitherCountedNorRetried() throws Exception {
+        String limited = url();
+        String other = url();
+        AtomicInteger calls = new AtomicInteger();
+
+        for (int i = 0; i < RpcConfig.getCircuitBreakerThreshold(); i++) {
+            CompletableFuture<String> result = RetryMechanism.executeWithRetry(url -> {
+                calls.incrementAndGet();
+                CompletableFuture<String> future = new CompletableFuture<>();
+                future.completeExceptionally(RateLimitExceededException.PROVIDER);
+                return future;
+            }, selector(limited, other), 3, null);
+            ExecutionException rejected = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertSame(RateLimitExceededException.PROVIDER, rejected.getCause());
+        }
+
+        // 每次调用只发给第一个实例一次，没有换实例重试
+        assertEquals(RpcConfig.getCircuitBreakerThreshold(), calls.get());
+        assertEquals(CircuitBreaker.State.CLOSED, CircuitBreaker.getState(limited));
+    }
+
+    private static CompletableFuture<String> execute(Calls calls, Function<Collection<String>, String> selector,
+                                                     LatencyTracker latency) {
+        return RetryMechanism.executeWithRetry(calls, selector, 0, latency);
+    }
+
+    private static String url() {
+        return "http://retry-test-" + SEQ.incrementAndGet();
+    }
+
+    private static LatencyTracker tracker() {
+        return LatencyTracker.of("retry-test-" + SEQ.incrementAndGet());
+    }
+
+    /**
+     * 按顺序返回第一个没有尝试过的URL，都尝试过时返回第一个
+     */
+    private static Function<Collection<String>, String> selector(String... urls) {
+        List<String> list = Arrays.asList(urls);
+        return tried -> list.stream().filter(url -> !tried.contains(url)).findFirst().orElse(list.get(0));
+    }
+
+    private static void openAndWaitForRecovery(String url) throws InterruptedException {
+        for (int i = 0; i < RpcConfig.getCircuitBreakerThreshold(); i++) {
+            CircuitBreaker.recordFailure(url);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, CircuitBreaker.getState(url));
+        Thread.sleep(RpcConfig.getCircuitBreakerRecoveryMs() + 20);
+    }
+
+    /**
+     * 模拟的调用：slow 上的调用一直挂起，其他URL立即返回自身
+     */
+    private static final class Calls implements Function<String, CompletableFuture<String>> {
+        final String slow;
+        final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+        final Map<String, CompletableFuture<String>> pending = new ConcurrentHashMap<>();
+
+        Calls(String slow) {
+            this.slow = slow;
+        }
+
+        @Override
+        public CompletableFuture<String> apply(String url) {
+            counts.computeIfAbsent(url, k -> new AtomicInteger()).incrementAndGet();
+            if (url.equals(slow)) {
+                CompletableFuture<String> future = new CompletableFuture<>();
+                pending.put(url, future);
+                return future;
+            }
+            return CompletableFuture.completedFuture(url);
+        }
+
+        int count(String url) {
+            AtomicInteger count = counts.get(url);
+            return count == null ? 0 : count.get();
+        }
+    }
+}
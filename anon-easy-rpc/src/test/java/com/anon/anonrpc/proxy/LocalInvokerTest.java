@@ -0,0 +1,164 @@
+package com.anon.anonrpc.proxy;
+
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.fault.CircuitBreaker;
+import com.anon.anonrpc.fault.ConcurrencyLimiter;
+import com.anon.anonrpc.ratelimit.RateLimitExceededException;
+import com.anon.anonrpc.ratelimit.RateLimiter;
+import com.anon.anonrpc.registry.LocalRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 本JVM内的直接调用：同步方法在调用线程上执行，异步方法转到工作线程；调用经过并发限制和熔断统计，
+ * 服务端限流与客户端限流报告为不同的异常
+ */
+class LocalInvokerTest {
+
+    public interface Clock {
+        String now();
+
+        CompletableFuture<String> later();
+    }
+
+    public static class ClockImpl implements Clock {
+        static final AtomicReference<Thread> THREAD = new AtomicReference<>();
+        static volatile CompletableFuture<String> pending = new CompletableFuture<>();
+
+        @Override
+        public String now() {
+            THREAD.set(Thread.currentThread());
+            return "now";
+        }
+
+        @Override
+        public CompletableFuture<String> later() {
+            THREAD.set(Thread.currentThread());
+            return pending;
+        }
+    }
+
+    public interface Mirror {
+        String echo(Object value);
+    }
+
+    public static class MirrorImpl implements Mirror {
+        @Override
+        public String echo(Object value) {
+            return String.valueOf(value);
+        }
+    }
+
+    private static final String LOCAL_URL = LocalInvoker.LOCAL_URL_PREFIX + Clock.class.getName();
+
+    private boolean localShortCircuit;
+    private boolean defensiveCopy;
+    private int threshold;
+    private boolean rateLimit;
+    private boolean clientRateLimit;
+
+    @BeforeEach
+    void setUp() {
+        localShortCircuit = RpcConfig.isLocalShortCircuitEnabled();
+        defensiveCopy = RpcConfig.isLocalDefensiveCopy();
+        threshold = RpcConfig.getCircuitBreakerThreshold();
+        rateLimit = RpcConfig.isRateLimitEnabled();
+        clientRateLimit = RpcConfig.isClientRateLimitEnabled();
+        RpcConfig.setLocalShortCircuitEnabled(true);
+        LocalRegistry.register(Clock.class.getName(), ClockImpl.class);
+        LocalRegistry.register(Mirror.class.getName(), MirrorImpl.class);
+        ClockImpl.THREAD.set(null);
+        ClockImpl.pending = new CompletableFuture<>();
+    }
+
+    @AfterEach
+    void tearDown() {
+        RpcConfig.setLocalShortCircuitEnabled(localShortCircuit);
+        RpcConfig.setLocalDefensiveCopy(defensiveCopy);
+        RpcConfig.setCircuitBreakerThreshold(threshold);
+        RpcConfig.setRateLimitEnabled(rateLimit);
+        RpcConfig.setClientRateLimitEnabled(clientRateLimit);
+        RateLimiter.PROVIDER.removeLimits(Clock.class.getName());
+        RateLimiter.CONSUMER.removeLimits(Clock.class.getName());
+        ClockImpl.pending.complete("done");
+        LocalRegistry.remove(Clock.class.getName());
+        LocalRegistry.remove(Mirror.class.getName());
+    }
+
+    @Test
+    void syncMethodRunsOnCallerThread() {
+        Clock clock = AsyncServiceProxyFactory.getProxy(Clock.class);
+
+        assertEquals("now", clock.now());
+        assertSame(Thread.currentThread(), ClockImpl.THREAD.get());
+    }
+
+    @Test
+    void asyncMethodRunsOffCallerThreadAndHoldsConcurrencySlot() throws Exception {
+        Clock clock = AsyncServiceProxyFactory.getProxy(Clock.class);
+
+        CompletableFuture<String> result = clock.later();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (ClockImpl.THREAD.get() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertNotNull(ClockImpl.THREAD.get());
+        assertNotSame(Thread.currentThread(), ClockImpl.THREAD.get());
+        // 服务方法返回的future完成之前占用一个并发名额
+        assertEquals(1, ConcurrencyLimiter.getInFlight(LOCAL_URL));
+        ClockImpl.pending.complete("later");
+        assertEquals("later", result.get(5, TimeUnit.SECONDS));
+        // 名额在同一次完成的回调中归还，可能晚于调用结果
+        while (ConcurrencyLimiter.getInFlight(LOCAL_URL) != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, ConcurrencyLimiter.getInFlight(LOCAL_URL));
+    }
+
+    @Test
+    void providerAndConsumerLimitsAreReportedApart() {
+        Clock clock = AsyncServiceProxyFactory.getProxy(Clock.class);
+        RpcConfig.setRateLimitEnabled(true);
+        RateLimiter.PROVIDER.setMethodLimit(Clock.class.getName(), "later", 0.001, 1);
+        clock.later();
+
+        CompletionException provider = assertThrows(CompletionException.class, () -> clock.later().join());
+        assertSame(RateLimitExceededException.PROVIDER, provider.getCause());
+
+        RpcConfig.setClientRateLimitEnabled(true);
+        RateLimiter.CONSUMER.setMethodLimit(Clock.class.getName(), "later", 0.001, 1);
+        clock.later();
+        CompletionException consumer = assertThrows(CompletionException.class, () -> clock.later().join());
+        assertSame(RateLimitExceededException.INSTANCE, consumer.getCause());
+    }
+
+    @Test
+    void failedLocalCallsOpenCircuitBreaker() {
+        // 开启防御性复制后，不可序列化的参数在调用服务方法之前就失败
+        RpcConfig.setLocalDefensiveCopy(true);
+        RpcConfig.setCircuitBreakerThreshold(3);
+        Mirror mirror = ServiceProxyFactory.getProxy(Mirror.class);
+
+        for (int i = 0; i < 3; i++) {
+            // 调用失败且没有降级时返回 null
+            assertNull(mirror.echo(new Object()));
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN,
+                CircuitBreaker.getState(LocalInvoker.LOCAL_URL_PREFIX + Mirror.class.getName()));
+    }
+}
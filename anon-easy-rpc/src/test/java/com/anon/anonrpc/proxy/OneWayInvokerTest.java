@@ -0,0 +1,215 @@
+package com.anon.anonrpc.proxy;
+
+import com.anon.anonrpc.annotation.OneWay;
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.model.RpcRequest;
+import com.anon.anonrpc.ratelimit.RateLimiter;
+import com.anon.anonrpc.registry.LocalRegistry;
+import com.anon.anonrpc.registry.ServiceRegistry;
+import com.anon.anonrpc.serializer.JdkSerializer;
+import com.anon.anonrpc.server.AsyncVertxHttpServer;
+import io.netty.buffer.ByteBuf;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 单向调用：服务端读完请求体后以 202 确认再执行，已确认未执行完的请求过多时以 503 拒绝；
+ * 调用方对被拒绝、被限流的调用计入丢弃数
+ */
+class OneWayInvokerTest {
+
+    @OneWay
+    public interface Audit {
+        void record(String event);
+
+        void hold(String event);
+    }
+
+    public static class AuditImpl implements Audit {
+        static final AtomicInteger RECORDED = new AtomicInteger();
+        static volatile CountDownLatch release = new CountDownLatch(0);
+
+        @Override
+        public void record(String event) {
+            RECORDED.incrementAndGet();
+        }
+
+        @Override
+        public void hold(String event) {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final JdkSerializer SERIALIZER = new JdkSerializer();
+
+    private static boolean localShortCircuit;
+    private static String serviceUrl;
+
+    private int providerMaxPending;
+    private boolean clientRateLimit;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        localShortCircuit = RpcConfig.isLocalShortCircuitEnabled();
+        // 服务实现注册在本JVM中，关闭直接调用才会经过网络
+        RpcConfig.setLocalShortCircuitEnabled(false);
+        LocalRegistry.register(Audit.class.getName(), AuditImpl.class);
+        int port = freePort();
+        new AsyncVertxHttpServer().doStart(port);
+        awaitListening(port);
+        serviceUrl = "http://localhost:" + port;
+        ServiceRegistry.register(serviceUrl);
+    }
+
+    @AfterAll
+    static void restore() {
+        ServiceRegistry.unregister(serviceUrl);
+        LocalRegistry.remove(Audit.class.getName());
+        RpcConfig.setLocalShortCircuitEnabled(localShortCircuit);
+    }
+
+    @BeforeEach
+    void setUp() {
+        providerMaxPending = RpcConfig.getProviderOneWayMaxPending();
+        clientRateLimit = RpcConfig.isClientRateLimitEnabled();
+    }
+
+    @AfterEach
+    void tearDown() {
+        AuditImpl.release.countDown();
+        RpcConfig.setProviderOneWayMaxPending(providerMaxPending);
+        RpcConfig.setClientRateLimitEnabled(clientRateLimit);
+        RateLimiter.CONSUMER.removeLimits(Audit.class.getName());
+    }
+
+    @Test
+    void requestIsAcknowledgedThenExecuted() throws Exception {
+        int recorded = AuditImpl.RECORDED.get();
+        ByteBuf body = SERIALIZER.serializeToBuffer(request("record"));
+        try {
+            // 202 确认没有响应体，确认以 null 完成
+            assertNull(RpcHttpClient.postOneWay(serviceUrl, Audit.class.getName(), "record", body, 3000)
+                    .get(5, TimeUnit.SECONDS));
+        } finally {
+            body.release();
+        }
+        await(() -> AuditImpl.RECORDED.get() - recorded, 1);
+    }
+
+    @Test
+    void proxyCallReturnsBeforeExecution() throws Exception {
+        long sent = OneWayInvoker.getSentCount();
+        long dropped = OneWayInvoker.getDroppedCount();
+        AuditImpl.release = new CountDownLatch(1);
+        Audit audit = AsyncServiceProxyFactory.getProxy(Audit.class);
+
+        // 服务方法阻塞，调用仍然立即返回
+        audit.hold("login");
+
+        assertEquals(sent + 1, OneWayInvoker.getSentCount());
+        await(OneWayInvoker::getPendingCount, 0);
+        assertEquals(dropped, OneWayInvoker.getDroppedCount());
+    }
+
+    @Test
+    void providerRejectsWhenTooManyPending() throws Exception {
+        RpcConfig.setProviderOneWayMaxPending(1);
+        AuditImpl.release = new CountDownLatch(1);
+        ByteBuf body = SERIALIZER.serializeToBuffer(request("hold"));
+        try {
+            // 第一个请求被确认后一直在执行，占满服务端的名额
+            RpcHttpClient.postOneWay(serviceUrl, Audit.class.getName(), "hold", body, 3000).get(5, TimeUnit.SECONDS);
+
+            ExecutionException rejected = assertThrows(ExecutionException.class,
+                    () -> RpcHttpClient.postOneWay(serviceUrl, Audit.class.getName(), "hold", body, 3000)
+                            .get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, rejected.getCause());
+            assertTrue(rejected.getCause().getMessage().contains("503"), rejected.getCause().getMessage());
+
+            // 经过代理发送时，被拒绝的调用计入丢弃数
+            long dropped = OneWayInvoker.getDroppedCount();
+            AsyncServiceProxyFactory.getProxy(Audit.class).hold("rejected");
+            await(() -> OneWayInvoker.getDroppedCount() - dropped, 1);
+        } finally {
+            body.release();
+            AuditImpl.release.countDown();
+        }
+    }
+
+    @Test
+    void clientRateLimitDropsWithoutSending() {
+        RpcConfig.setClientRateLimitEnabled(true);
+        RateLimiter.CONSUMER.setMethodLimit(Audit.class.getName(), "record", 0.001, 1);
+        long sent = OneWayInvoker.getSentCount();
+        long dropped = OneWayInvoker.getDroppedCount();
+        Audit audit = AsyncServiceProxyFactory.getProxy(Audit.class);
+
+        audit.record("first");
+        audit.record("limited");
+
+        assertEquals(sent + 1, OneWayInvoker.getSentCount());
+        assertEquals(dropped + 1, OneWayInvoker.getDroppedCount());
+    }
+
+    private static RpcRequest request(String methodName) {
+        return RpcRequest.builder()
+                .serviceName(Audit.class.getName())
+                .methodName(methodName)
+                .parameterTypes(new Class<?>[]{String.class})
+                .args(new Object[]{"event"})
+                .build();
+    }
+
+    /**
+     * 确认和执行都是异步的，等待计数到达期望值
+     */
+    private static void await(LongSupplier value, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (value.getAsLong() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, value.getAsLong());
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void awaitListening(int port) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (System.currentTimeMillis() < deadline) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("localhost", port), 200);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        throw new IllegalStateException("服务器没有在端口 " + port + " 上启动");
+    }
+}
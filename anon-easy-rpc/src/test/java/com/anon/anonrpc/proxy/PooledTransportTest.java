@@ -0,0 +1,272 @@
+package com.anon.anonrpc.proxy;
+
+import com.anon.anonrpc.config.RpcConfig;
+import com.anon.anonrpc.model.RpcRequest;
+import com.anon.anonrpc.model.RpcResponse;
+import com.anon.anonrpc.ratelimit.RateLimitExceededException;
+import com.anon.anonrpc.ratelimit.RateLimiter;
+import com.anon.anonrpc.registry.LocalRegistry;
+import com.anon.anonrpc.registry.ServiceRegistry;
+import com.anon.anonrpc.serializer.JdkSerializer;
+import com.anon.anonrpc.server.AsyncVertxHttpServer;
+import com.anon.anonrpc.utils.LeakReports;
+import com.anon.anonrpc.utils.SharedVertx;
+import io.netty.buffer.ByteBuf;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 请求和响应经池化缓冲区在客户端和异步服务端之间往返，所有缓冲区都被归还：
+ * RpcHttpClient 每次发送持有的引用（包括连接就绪前被取消的请求）、服务端 endAndRelease 写出的响应、
+ * AsyncServiceProxy 在调用结束后释放的请求体
+ */
+class PooledTransportTest {
+
+    public interface Echo {
+        String echo(String value);
+
+        String fail(String message);
+    }
+
+    public static class EchoImpl implements Echo {
+        static final AtomicInteger CALLS = new AtomicInteger();
+
+        @Override
+        public String echo(String value) {
+            CALLS.incrementAndGet();
+            return value;
+        }
+
+        @Override
+        public String fail(String message) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    private static final JdkSerializer SERIALIZER = new JdkSerializer();
+
+    private static boolean localShortCircuit;
+    private static String serviceUrl;
+
+    private LeakReports leaks;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        localShortCircuit = RpcConfig.isLocalShortCircuitEnabled();
+        // 服务实现注册在本JVM中，关闭直接调用才会经过网络
+        RpcConfig.setLocalShortCircuitEnabled(false);
+        LocalRegistry.register(Echo.class.getName(), EchoImpl.class);
+        int port = freePort();
+        new AsyncVertxHttpServer().doStart(port);
+        awaitListening(port);
+        serviceUrl = "http://localhost:" + port;
+        ServiceRegistry.register(serviceUrl);
+    }
+
+    @AfterAll
+    static void restore() {
+        ServiceRegistry.unregister(serviceUrl);
+        RpcConfig.setLocalShortCircuitEnabled(localShortCircuit);
+    }
+
+    @BeforeEach
+    void setUp() {
+        leaks = LeakReports.install();
+    }
+
+    @AfterEach
+    void tearDown() {
+        leaks.uninstall();
+    }
+
+    @Test
+    void clientReleasesEachSendAndServerReleasesResponses() throws Exception {
+        ByteBuf body = SERIALIZER.serializeToBuffer(request("echo", "pooled"));
+        try {
+            // 同一个请求体多次发送，与重试和对冲的用法相同
+            for (int i = 0; i < 200; i++) {
+                byte[] response = RpcHttpClient.post(serviceUrl, Echo.class.getName(), "echo", body, 3000)
+                        .get(5, TimeUnit.SECONDS);
+                assertEquals("pooled", SERIALIZER.deserialize(response, RpcResponse.class).getData());
+            }
+            awaitRefCnt(body, 1);
+        } finally {
+            body.release();
+        }
+        assertEquals(0, body.refCnt());
+        assertEquals(0, leaks.collect().size());
+    }
+
+    @Test
+    void cancelBeforeConnectReleasesPayload() throws Exception {
+        int callsBefore = EchoImpl.CALLS.get();
+        ByteBuf body = SERIALIZER.serializeToBuffer(request("echo", "cancelled"));
+        try {
+            List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+            // 连接池已有空闲连接时，事件循环可能在调用方取消之前就写出请求；占住事件循环保证取消在前
+            CountDownLatch release = holdEventLoops();
+            try {
+                for (int i = 0; i < 50; i++) {
+                    CompletableFuture<byte[]> future = RpcHttpClient.post(serviceUrl, Echo.class.getName(), "echo", body, 3000);
+                    // 连接在事件循环上异步获取，此时请求还没有创建
+                    future.cancel(true);
+                    futures.add(future);
+                }
+            } finally {
+                release.countDown();
+            }
+            assertTrue(futures.stream().allMatch(CompletableFuture::isCancelled));
+            awaitRefCnt(body, 1);
+        } finally {
+            body.release();
+        }
+        assertEquals(0, body.refCnt());
+        // 请求在写出前被放弃，服务方法没有执行
+        assertEquals(callsBefore, EchoImpl.CALLS.get());
+        assertEquals(0, leaks.collect().size());
+    }
+
+    @Test
+    void providerRateLimitIsReportedAsRateLimit() throws Exception {
+        boolean rateLimitEnabled = RpcConfig.isRateLimitEnabled();
+        RpcConfig.setRateLimitEnabled(true);
+        RateLimiter.PROVIDER.setMethodLimit(Echo.class.getName(), "fail", 0.001, 1);
+        ByteBuf body = SERIALIZER.serializeToBuffer(request("fail", "limited"));
+        try {
+            // 令牌用完后服务端以 429 拒绝，客户端得到限流异常而不是普通的请求失败
+            RpcHttpClient.post(serviceUrl, Echo.class.getName(), "fail", body, 3000).get(5, TimeUnit.SECONDS);
+            ExecutionException rejected = assertThrows(ExecutionException.class,
+                    () -> RpcHttpClient.post(serviceUrl, Echo.class.getName(), "fail", body, 3000).get(5, TimeUnit.SECONDS));
+            assertSame(RateLimitExceededException.PROVIDER, rejected.getCause());
+            awaitRefCnt(body, 1);
+        } finally {
+            body.release();
+            RateLimiter.PROVIDER.removeLimits(Echo.class.getName());
+            RpcConfig.setRateLimitEnabled(rateLimitEnabled);
+        }
+        assertEquals(0, leaks.collect().size());
+    }
+
+    @Test
+    void asyncProxyReleasesRequestBodies() throws Exception {
+        Echo echo = AsyncServiceProxyFactory.getProxy(Echo.class);
+        for (int i = 0; i < 200; i++) {
+            assertEquals("v" + i, echo.echo("v" + i));
+        }
+        for (int i = 0; i < 20; i++) {
+            // 服务方法抛出的异常原样抛给调用方
+            assertThrows(IllegalStateException.class, () -> echo.fail("boom"));
+        }
+        assertEquals(0, leaks.collect().size());
+    }
+
+    @Test
+    void asyncProxyReleasesRequestBodyWhenAllAttemptsFail() throws Exception {
+        // 只注册一个没有监听的地址，每次尝试都连接失败
+        String deadUrl = "http://localhost:" + freePort();
+        ServiceRegistry.unregister(serviceUrl);
+        ServiceRegistry.register(deadUrl);
+        try {
+            Echo echo = AsyncServiceProxyFactory.getProxy(Echo.class);
+            for (int i = 0; i < 5; i++) {
+                // 调用失败且没有降级时返回 null
+                assertNull(echo.echo("lost"));
+            }
+        } finally {
+            ServiceRegistry.unregister(deadUrl);
+            ServiceRegistry.register(serviceUrl);
+        }
+        assertEquals(0, leaks.collect().size());
+    }
+
+    private static RpcRequest request(String methodName, String value) {
+        return RpcRequest.builder()
+                .serviceName(Echo.class.getName())
+                .methodName(methodName)
+                .parameterTypes(new Class<?>[]{String.class})
+                .args(new Object[]{value})
+                .build();
+    }
+
+    /**
+     * 在共享 Vert.x 的每个事件循环上阻塞，直到返回的 latch 被释放
+     * 非 Vert.x 线程的 getOrCreateContext 固定返回该线程第一次得到的上下文，所以每次从新线程提交，
+     * 新线程依次分配到下一个事件循环，反复提交直到每个事件循环线程都被占住
+     */
+    private static CountDownLatch holdEventLoops() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Set<Thread> held = ConcurrentHashMap.newKeySet();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (held.size() < SharedVertx.EVENT_LOOPS) {
+            if (System.currentTimeMillis() > deadline) {
+                release.countDown();
+                throw new IllegalStateException("没有占住所有事件循环");
+            }
+            Thread submitter = new Thread(() -> SharedVertx.get().getOrCreateContext().runOnContext(v -> {
+                held.add(Thread.currentThread());
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            submitter.start();
+            submitter.join();
+            Thread.sleep(1);
+        }
+        return release;
+    }
+
+    /**
+     * 写出完成的回调可能晚于响应到达
+     */
+    private static void awaitRefCnt(ByteBuf buffer, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (buffer.refCnt() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, buffer.refCnt());
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void awaitListening(int port) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (System.currentTimeMillis() < deadline) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("localhost", port), 200);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        throw new IllegalStateException("服务器没有在端口 " + port + " 上启动");
+    }
+}
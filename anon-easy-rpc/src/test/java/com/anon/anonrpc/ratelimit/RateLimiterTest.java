@@ -0,0 +1,45 @@
+package com.anon.anonrpc.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 两级令牌桶：服务级拒绝的调用不消耗方法级令牌
+ */
+class RateLimiterTest {
+
+    // 测试期间几乎不补充令牌
+    private static final double SLOW = 0.001;
+
+    @Test
+    void serviceRejectionReturnsMethodToken() {
+        RateLimiter limiter = new RateLimiter();
+        limiter.setMethodLimit("svc", "m", SLOW, 2);
+        limiter.setServiceLimit("svc", SLOW, 1);
+
+        assertTrue(limiter.tryAcquire("svc", "m"));
+        for (int i = 0; i < 5; i++) {
+            assertFalse(limiter.tryAcquire("svc", "m"));
+        }
+
+        // 服务级限制放开后，方法级的第二个令牌仍在
+        limiter.setServiceLimit("svc", SLOW, 10);
+        assertTrue(limiter.tryAcquire("svc", "m"));
+        assertFalse(limiter.tryAcquire("svc", "m"));
+    }
+
+    @Test
+    void methodRejectionDoesNotTakeServiceToken() {
+        RateLimiter limiter = new RateLimiter();
+        limiter.setMethodLimit("svc", "m", SLOW, 1);
+        limiter.setServiceLimit("svc", SLOW, 2);
+
+        assertTrue(limiter.tryAcquire("svc", "m"));
+        assertFalse(limiter.tryAcquire("svc", "m"));
+        // 其他方法只受服务级限制，还剩一个令牌
+        assertTrue(limiter.tryAcquire("svc", "other"));
+        assertFalse(limiter.tryAcquire("svc", "other"));
+    }
+}
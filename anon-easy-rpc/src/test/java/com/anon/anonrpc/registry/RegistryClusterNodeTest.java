@@ -0,0 +1,219 @@
+package com.anon.anonrpc.registry;
+
+import com.anon.anonrpc.config.RpcConfig;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 集群节点的同步接口：格式错误的请求得到 400 而不是挂起，合法请求正常返回差量；
+ * 注销产生的墓碑在所有对端确认之后回收
+ */
+class RegistryClusterNodeTest {
+
+    private static final AtomicInteger SEQ = new AtomicInteger();
+
+    private final String serviceType = "cluster-test-" + SEQ.incrementAndGet();
+
+    private long tombstoneGraceMs;
+    private Vertx vertx;
+    private int port;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        tombstoneGraceMs = RpcConfig.getRegistryTombstoneGraceMs();
+        vertx = Vertx.vertx();
+        port = freePort();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        RpcConfig.setRegistryTombstoneGraceMs(tombstoneGraceMs);
+        vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        for (String url : ServiceRegistry.getAllServiceUrls(serviceType)) {
+            ServiceRegistry.unregister(serviceType, url);
+        }
+    }
+
+    @Test
+    void malformedBodyIsRejected() throws Exception {
+        deploy();
+        assertEquals(400, post("/cluster/sync", "not json").status);
+        assertEquals(400, post("/cluster/sync", "[1, 2]").status);
+        assertEquals(400, post("/cluster/push", "{\"vv\":").status);
+    }
+
+    @Test
+    void syncWithoutVersionVectorIsRejected() throws Exception {
+        deploy();
+        assertEquals(400, post("/cluster/sync", "{}").status);
+        assertEquals(400, post("/cluster/sync", "{\"vv\":{\"localhost:1\":\"x\"}}").status);
+        // 出错之后节点仍能处理正常请求
+        assertEquals(200, post("/cluster/sync", "{\"vv\":{}}").status);
+    }
+
+    @Test
+    void malformedPushAppliesNothing() throws Exception {
+        deploy();
+        String url = "http://10.1.0.1:8080/" + serviceType;
+        JsonArray valid = new JsonArray().add(serviceType).add(url).add(true).add(1L).add("localhost:1").add(1L);
+        JsonObject push = new JsonObject()
+                .put("vv", new JsonObject().put("localhost:1", 2L))
+                .put("entries", new JsonArray().add(valid).add(new JsonArray().add(serviceType)));
+
+        assertEquals(400, post("/cluster/push", push.encode()).status);
+        assertTrue(ServiceRegistry.getAllServiceUrls(serviceType).isEmpty());
+
+        push.put("entries", new JsonArray().add(valid));
+        assertEquals(200, post("/cluster/push", push.encode()).status);
+        assertEquals(Collections.singletonList(url), ServiceRegistry.getAllServiceUrls(serviceType));
+    }
+
+    @Test
+    void syncReturnsLocalWrites() throws Exception {
+        deploy();
+        String url = "http://10.1.0.2:8080/" + serviceType;
+        ServiceRegistry.register(serviceType, url);
+
+        assertTrue(replicated(url));
+    }
+
+    @Test
+    void tombstoneKeptUntilEveryPeerHasSeenIt() throws Exception {
+        RpcConfig.setRegistryTombstoneGraceMs(0);
+        AtomicLong peerKnows = new AtomicLong();
+        deploy(fakePeer(peerKnows));
+        String url = "http://10.1.0.3:8080/" + serviceType;
+        ServiceRegistry.register(serviceType, url);
+        ServiceRegistry.unregister(serviceType, url);
+
+        // 对端还没有确认本节点的任何条目，墓碑不能回收
+        Thread.sleep(RpcConfig.getRegistryGossipIntervalMs() * 5);
+        assertTrue(replicated(url));
+
+        peerKnows.set(Long.MAX_VALUE);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (replicated(url) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(RpcConfig.getRegistryGossipIntervalMs());
+        }
+        assertFalse(replicated(url));
+    }
+
+    @Test
+    void tombstoneKeptDuringGracePeriod() throws Exception {
+        RpcConfig.setRegistryTombstoneGraceMs(60000);
+        deploy(fakePeer(new AtomicLong(Long.MAX_VALUE)));
+        String url = "http://10.1.0.4:8080/" + serviceType;
+        ServiceRegistry.register(serviceType, url);
+        ServiceRegistry.unregister(serviceType, url);
+
+        Thread.sleep(RpcConfig.getRegistryGossipIntervalMs() * 5);
+        assertTrue(replicated(url));
+    }
+
+    private void deploy(String... peers) throws Exception {
+        vertx.deployVerticle(new RegistryClusterNode("localhost", port, Arrays.asList(peers)))
+                .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 模拟的对端：没有自己的条目，声称已收到本节点序号不超过 known 的所有条目；
+     * 拒绝推送，确认只能来自它报告的版本向量
+     */
+    private String fakePeer(AtomicLong known) throws Exception {
+        int peerPort = freePort();
+        vertx.createHttpServer()
+                .requestHandler(request -> request.body().onSuccess(body -> {
+                    if (!request.path().equals("/cluster/sync")) {
+                        request.response().setStatusCode(503).end();
+                        return;
+                    }
+                    JsonObject reply = new JsonObject()
+                            .put("vv", new JsonObject())
+                            .put("entries", new JsonArray())
+                            .put("peerVv", new JsonObject().put("localhost:" + port, known.get()));
+                    request.response().end(reply.toBuffer());
+                }))
+                .listen(peerPort)
+                .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        return "localhost:" + peerPort;
+    }
+
+    /**
+     * 节点是否还会把该URL的条目（注册或墓碑）同步给一个新加入的对端
+     */
+    private boolean replicated(String url) throws IOException {
+        Reply reply = post("/cluster/sync", "{\"vv\":{}}");
+        assertEquals(200, reply.status);
+        JsonArray entries = new JsonObject(reply.body).getJsonArray("entries");
+        for (int i = 0; i < entries.size(); i++) {
+            if (url.equals(entries.getJsonArray(i).getString(1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Reply post(String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(5000);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            return new Reply(status, in == null ? "" : read(in));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int n; (n = in.read(buffer)) > 0; ) {
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static final class Reply {
+        final int status;
+        final String body;
+
+        Reply(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
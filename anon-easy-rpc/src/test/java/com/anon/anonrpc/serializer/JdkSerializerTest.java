@@ -0,0 +1,125 @@
+package com.anon.anonrpc.serializer;
+
+import com.anon.anonrpc.fault.ErrorCodec;
+import com.anon.anonrpc.model.RpcError;
+import com.anon.anonrpc.model.RpcRequest;
+import com.anon.anonrpc.model.RpcResponse;
+import com.anon.anonrpc.utils.BufferPool;
+import com.anon.anonrpc.utils.LeakReports;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JDK 序列化器经池化缓冲区的编解码，以及缓冲区的归还
+ */
+class JdkSerializerTest {
+
+    private final JdkSerializer serializer = new JdkSerializer();
+
+    private LeakReports leaks;
+
+    @BeforeEach
+    void setUp() {
+        leaks = LeakReports.install();
+    }
+
+    @AfterEach
+    void tearDown() {
+        leaks.uninstall();
+    }
+
+    @Test
+    void requestRoundTripThroughPooledBuffer() throws Exception {
+        RpcRequest request = RpcRequest.builder()
+                .serviceName("com.example.UserService")
+                .methodName("getUser")
+                .parameterTypes(new Class<?>[]{String.class, int.class})
+                .args(new Object[]{"anon", 7})
+                .build();
+
+        ByteBuf buffer = serializer.serializeToBuffer(request);
+        try {
+            assertTrue(buffer.isDirect());
+            int readable = buffer.readableBytes();
+            RpcRequest decoded = serializer.deserialize(buffer, RpcRequest.class);
+            // 反序列化不移动读位置，同一个缓冲区可以再次读取
+            assertEquals(readable, buffer.readableBytes());
+            assertEquals(1, buffer.refCnt());
+            assertEquals(request.getServiceName(), decoded.getServiceName());
+            assertEquals(request.getMethodName(), decoded.getMethodName());
+            assertArrayEquals(request.getParameterTypes(), decoded.getParameterTypes());
+            assertArrayEquals(request.getArgs(), decoded.getArgs());
+        } finally {
+            assertTrue(buffer.release());
+        }
+        assertEquals(0, buffer.refCnt());
+        assertEquals(0, leaks.collect().size());
+    }
+
+    @Test
+    void responseRoundTripThroughPooledBuffer() throws Exception {
+        RpcResponse response = RpcResponse.builder()
+                .error(ErrorCodec.error(RpcError.NOT_FOUND, "方法不存在"))
+                .build();
+
+        ByteBuf buffer = serializer.serializeToBuffer(response);
+        RpcResponse decoded;
+        try {
+            decoded = serializer.deserialize(buffer, RpcResponse.class);
+        } finally {
+            buffer.release();
+        }
+        assertEquals(0, buffer.refCnt());
+        assertEquals(RpcError.NOT_FOUND, decoded.getError().getCode());
+        assertEquals("方法不存在", decoded.getError().getMessage());
+        assertEquals(0, leaks.collect().size());
+    }
+
+    @Test
+    void byteArrayAndBufferEncodingsMatch() throws Exception {
+        RpcResponse response = RpcResponse.builder().data("ok").dataType(String.class).message("success").build();
+
+        byte[] bytes = serializer.serialize(response);
+        ByteBuf buffer = serializer.serializeToBuffer(response);
+        try {
+            assertArrayEquals(bytes, ByteBufUtil.getBytes(buffer));
+        } finally {
+            buffer.release();
+        }
+        assertEquals("ok", serializer.deserialize(bytes, RpcResponse.class).getData());
+        assertEquals(0, leaks.collect().size());
+    }
+
+    @Test
+    void failedSerializationReleasesBuffer() throws Exception {
+        RpcResponse response = RpcResponse.builder().data(new Object()).build();
+
+        for (int i = 0; i < 100; i++) {
+            assertThrows(IOException.class, () -> serializer.serializeToBuffer(response));
+        }
+        assertEquals(0, leaks.collect().size());
+    }
+
+    @Test
+    void leakReportsDetectUnreleasedBuffer() throws Exception {
+        leak();
+        List<String> reports = leaks.collect();
+        assertFalse(reports.isEmpty(), "未归还的缓冲区应被报告，否则其他测试的泄漏检查没有意义");
+    }
+
+    private static void leak() {
+        BufferPool.acquire().writeInt(42);
+    }
+}
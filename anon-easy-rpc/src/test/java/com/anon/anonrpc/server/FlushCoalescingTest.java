@@ -0,0 +1,83 @@
+package com.anon.anonrpc.server;
+
+import com.anon.anonrpc.config.RpcConfig;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 合并写出依赖 Vert.x 内部的连接接口：升级 Vert.x 后该接口失效时这里会失败，而不是静默退回逐次 flush
+ */
+class FlushCoalescingTest {
+
+    private boolean enabled;
+    private Vertx vertx;
+
+    @BeforeEach
+    void setUp() {
+        enabled = RpcConfig.isServerFlushCoalescingEnabled();
+        vertx = Vertx.vertx();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        RpcConfig.setServerFlushCoalescingEnabled(enabled);
+        vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void handlerIsInstalledOnServerConnections() throws Exception {
+        RpcConfig.setServerFlushCoalescingEnabled(true);
+
+        assertTrue(FlushCoalescing.isSupported());
+        assertTrue(connect());
+    }
+
+    @Test
+    void handlerIsSkippedWhenDisabled() throws Exception {
+        RpcConfig.setServerFlushCoalescingEnabled(false);
+
+        assertFalse(connect());
+    }
+
+    /**
+     * 启动一个以 FlushCoalescing 为 connectionHandler 的服务端并请求一次，返回该连接上是否加入了合并处理器
+     */
+    private boolean connect() throws Exception {
+        CompletableFuture<Boolean> installed = new CompletableFuture<>();
+        HttpServer server = vertx.createHttpServer()
+                .connectionHandler(connection -> {
+                    FlushCoalescing.install(connection);
+                    installed.complete(FlushCoalescing.isInstalled(connection));
+                })
+                .requestHandler(request -> request.response().end("ok"));
+        int port = server.listen(0).toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS).actualPort();
+
+        // 加入处理器之后响应仍能正常写出
+        assertEquals(200, get(port));
+        return installed.get(5, TimeUnit.SECONDS);
+    }
+
+    private static int get(int port) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/").openConnection();
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(5000);
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.anon.anonrpc.server;
+
+import com.anon.anonrpc.annotation.Cacheable;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 可缓存方法只缓存成功的响应，失败的响应下一次调用重新执行
+ */
+class InvocationCoalescerTest {
+
+    private static final AtomicInteger SEQ = new AtomicInteger();
+
+    public static class Catalog {
+        @Cacheable(ttlMs = 60000)
+        public String find(String id) {
+            return id;
+        }
+    }
+
+    @Test
+    void successfulResponseIsCached() throws Exception {
+        Object[] args = {"ok-" + SEQ.incrementAndGet()};
+        AtomicInteger calls = new AtomicInteger();
+
+        byte[] first = InvocationCoalescer.execute(find(), args, () -> {
+            calls.incrementAndGet();
+            return InvocationCoalescer.Result.success(new byte[]{1});
+        }).get();
+        byte[] second = InvocationCoalescer.execute(find(), args, () -> {
+            calls.incrementAndGet();
+            return InvocationCoalescer.Result.success(new byte[]{2});
+        }).get();
+
+        assertEquals(1, calls.get());
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    void failedResponseIsNotCached() throws Exception {
+        Object[] args = {"error-" + SEQ.incrementAndGet()};
+        AtomicInteger calls = new AtomicInteger();
+
+        byte[] failed = InvocationCoalescer.execute(find(), args, () -> {
+            calls.incrementAndGet();
+            return InvocationCoalescer.Result.failure(new byte[]{9});
+        }).get();
+        byte[] retried = InvocationCoalescer.execute(find(), args, () -> {
+            calls.incrementAndGet();
+            return InvocationCoalescer.Result.success(new byte[]{1});
+        }).get();
+
+        assertEquals(2, calls.get());
+        assertArrayEquals(new byte[]{9}, failed);
+        assertArrayEquals(new byte[]{1}, retried);
+    }
+
+    private static Method find() throws NoSuchMethodException {
+        return Catalog.class.getMethod("find", String.class);
+    }
+}
@@ -0,0 +1,61 @@
+package com.anon.anonrpc.utils;
+
+import com.anon.anonrpc.config.RpcConfig;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * SO_REUSEPORT 只在启用原生传输时打开，并且可以通过配置关闭
+ */
+class HttpTransportOptionsTest {
+
+    private boolean reusePort;
+
+    @BeforeEach
+    void setUp() {
+        reusePort = RpcConfig.isServerReusePort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        RpcConfig.setServerReusePort(reusePort);
+    }
+
+    @Test
+    void reusePortOffWithNio() throws Exception {
+        RpcConfig.setServerReusePort(true);
+        Vertx vertx = Vertx.vertx(new VertxOptions().setPreferNativeTransport(false));
+        try {
+            assertFalse(HttpTransportOptions.server(vertx).isReusePort());
+        } finally {
+            close(vertx);
+        }
+    }
+
+    @Test
+    void reusePortFollowsNativeTransportAndConfig() throws Exception {
+        Vertx vertx = Vertx.vertx(new VertxOptions().setPreferNativeTransport(true));
+        try {
+            RpcConfig.setServerReusePort(true);
+            // 当前平台没有原生传输时同样不打开
+            assertEquals(vertx.isNativeTransportEnabled(), HttpTransportOptions.server(vertx).isReusePort());
+
+            RpcConfig.setServerReusePort(false);
+            assertFalse(HttpTransportOptions.server(vertx).isReusePort());
+        } finally {
+            close(vertx);
+        }
+    }
+
+    private static void close(Vertx vertx) throws Exception {
+        vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+}
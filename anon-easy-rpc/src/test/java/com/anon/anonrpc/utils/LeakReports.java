@@ -0,0 +1,68 @@
+package com.anon.anonrpc.utils;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ResourceLeakDetector;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 收集 Netty 的缓冲区泄漏报告（测试以 -Dio.netty.leakDetection.level=paranoid 运行，每个缓冲区都被跟踪）
+ * 泄漏的缓冲区被 GC 回收后，要等到之后有缓冲区分配时才会报告，所以 collect 会先触发 GC 再分配一批缓冲区
+ */
+public final class LeakReports extends AppenderBase<ILoggingEvent> {
+
+    private final List<String> reports = new CopyOnWriteArrayList<>();
+
+    private LeakReports() {
+    }
+
+    /**
+     * 开始收集泄漏报告
+     */
+    public static LeakReports install() {
+        LeakReports appender = new LeakReports();
+        appender.start();
+        logger().addAppender(appender);
+        return appender;
+    }
+
+    /**
+     * 停止收集
+     */
+    public void uninstall() {
+        logger().detachAppender(this);
+        stop();
+    }
+
+    /**
+     * 回收已不可达的缓冲区并返回此前产生的泄漏报告
+     */
+    public List<String> collect() throws InterruptedException {
+        for (int round = 0; round < 3; round++) {
+            System.gc();
+            Thread.sleep(50);
+            for (int i = 0; i < 64; i++) {
+                ByteBuf buffer = BufferPool.acquire();
+                buffer.release();
+            }
+        }
+        return new ArrayList<>(reports);
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        if (event.getFormattedMessage().contains("LEAK")) {
+            reports.add(event.getFormattedMessage());
+        }
+    }
+
+    private static Logger logger() {
+        return (Logger) LoggerFactory.getLogger(ResourceLeakDetector.class);
+    }
+}
@@ -0,0 +1,84 @@
+package com.anon.anonrpc.utils;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.net.NetServer;
+import io.vertx.core.net.SocketAddress;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 启动前清理 Unix 域套接字：只删除没有进程监听的残留套接字，不删除普通文件，也不接管仍在使用的套接字
+ */
+class ServiceAddressTest {
+
+    @TempDir
+    Path dir;
+
+    private Vertx vertx;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx(new VertxOptions().setPreferNativeTransport(true));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void missingPathIsIgnored() {
+        ServiceAddress.deleteStaleSocket(dir.resolve("missing.sock").toString());
+    }
+
+    @Test
+    void regularFileIsKept() throws Exception {
+        Path file = Files.write(dir.resolve("data.sock"), new byte[]{1});
+
+        assertThrows(IllegalStateException.class, () -> ServiceAddress.deleteStaleSocket(file.toString()));
+        assertTrue(Files.exists(file));
+    }
+
+    @Test
+    void liveSocketIsKept() throws Exception {
+        assumeTrue(vertx.isNativeTransportEnabled(), "Unix 域套接字需要原生传输");
+        Path socket = dir.resolve("live.sock");
+        listen(socket);
+
+        assertThrows(IllegalStateException.class, () -> ServiceAddress.deleteStaleSocket(socket.toString()));
+        assertTrue(Files.exists(socket));
+    }
+
+    @Test
+    void staleSocketIsDeleted() throws Exception {
+        assumeTrue(vertx.isNativeTransportEnabled(), "Unix 域套接字需要原生传输");
+        Path live = dir.resolve("live.sock");
+        Path socket = dir.resolve("stale.sock");
+        NetServer server = listen(live);
+        // 关闭监听时 Vert.x 会删除套接字文件；先建一个硬链接，关闭后留下没有进程监听的套接字，与进程异常退出后相同
+        Files.createLink(socket, live);
+        server.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+        ServiceAddress.deleteStaleSocket(socket.toString());
+        assertFalse(Files.exists(socket));
+    }
+
+    private NetServer listen(Path socket) throws Exception {
+        return vertx.createNetServer()
+                .connectHandler(connection -> connection.close())
+                .listen(SocketAddress.domainSocketAddress(socket.toString()))
+                .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+}
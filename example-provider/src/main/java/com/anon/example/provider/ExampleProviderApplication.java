@@ -4,9 +4,9 @@ import com.anon.anonrpc.registry.LocalRegistry;
 import com.anon.anonrpc.registry.ServiceRegistry;
 import com.anon.anonrpc.server.AsyncVertxHttpServer;
 import com.anon.anonrpc.server.HttpServer;
+import com.anon.anonrpc.utils.SharedVertx;
 import com.anon.example.common.service.UserService;
 import com.anon.example.provider.controller.HighPerfRegistryEndpoint;
-import io.vertx.core.Vertx;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
@@ -18,9 +18,15 @@ import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 @EnableWebMvc
 public class ExampleProviderApplication {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
         SpringApplication.run(ExampleProviderApplication.class, args);
         
+        // 开启注册中心持久化（可选），重启后从快照和日志恢复，避免所有实例集中重新注册
+        String registryDataDir = System.getProperty("rpc.registry.dataDir");
+        if (registryDataDir != null) {
+            ServiceRegistry.enablePersistence(registryDataDir);
+        }
+        
         // 注册服务
         String serviceUrl = "http://localhost:8080";
         ServiceRegistry.register(serviceUrl);
@@ -30,7 +36,7 @@ public class ExampleProviderApplication {
         HttpServer httpServer = new AsyncVertxHttpServer();
         httpServer.doStart(8090); // 改为8090端口
         
-        // 部署高性能测试端点
-        Vertx.vertx().deployVerticle(new HighPerfRegistryEndpoint());
+        // 部署高性能测试端点，与RPC服务器共用同一个 Vert.x 实例
+        SharedVertx.get().deployVerticle(new HighPerfRegistryEndpoint());
     }
 }
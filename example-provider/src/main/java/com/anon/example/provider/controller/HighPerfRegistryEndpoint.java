@@ -1,19 +1,48 @@
 package com.anon.example.provider.controller;
 
+import com.anon.anonrpc.model.ServiceInstance;
+import com.anon.anonrpc.registry.RegistryClusterNode;
 import com.anon.anonrpc.registry.ServiceRegistry;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Handler;
 import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.parsetools.RecordParser;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.BodyHandler;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 public class HighPerfRegistryEndpoint extends AbstractVerticle {
     
     // 批处理大小
     private static final int BATCH_SIZE = 100;
     
+    // 流式导入时每批应用到注册中心的条目数
+    private static final int STREAM_CHUNK_SIZE = 4096;
+    
+    // 监听端口
+    private final int port;
+    
+    public HighPerfRegistryEndpoint() {
+        this(8081);
+    }
+    
+    public HighPerfRegistryEndpoint(int port) {
+        this.port = port;
+    }
+    
     @Override
     public void start(Promise<Void> startPromise) {
         // 配置更多的事件循环线程
@@ -25,9 +54,9 @@ public class HighPerfRegistryEndpoint extends AbstractVerticle {
                     .setTcpQuickAck(true)
         )
         .requestHandler(configureRouter())
-        .listen(8081, ar -> {
+        .listen(port, ar -> {
             if (ar.succeeded()) {
-                System.out.println("高性能测试端点已启动，监听端口: 8081");
+                System.out.println("高性能测试端点已启动，监听端口: " + port);
                 startPromise.complete();
             } else {
                 startPromise.fail(ar.cause());
@@ -37,17 +66,35 @@ public class HighPerfRegistryEndpoint extends AbstractVerticle {
     
     private Router configureRouter() {
         Router router = Router.router(vertx);
+        
+        // 流式批量导入 - 不经过BodyHandler，边接收边解析，按块批量写入注册中心
+        // 支持 NDJSON（每行 {"type":"...","url":"..."}，可带 weight/zone/version/tags）和二进制帧（Content-Type: application/octet-stream）
+        router.route(HttpMethod.POST, "/api/registry/stream").handler(ctx -> handleStream(ctx.request()));
+        
         router.route().handler(BodyHandler.create());
         
         // 单一服务注册 - 优化版本
         router.route(HttpMethod.POST, "/api/registry/highperf").handler(ctx -> {
-            String serviceType = ctx.request().getParam("serviceType");
-            String serviceUrl = ctx.request().getParam("serviceUrl");
+            HttpServerRequest request = ctx.request();
+            String serviceType = request.getParam("serviceType");
+            ServiceInstance.ServiceInstanceBuilder builder = ServiceInstance.builder()
+                    .url(request.getParam("serviceUrl"))
+                    .zone(request.getParam("zone", ""))
+                    .version(request.getParam("version", ""));
+            String weight = request.getParam("weight");
+            if (weight != null) {
+                builder.weight(Integer.parseInt(weight));
+            }
+            String tags = request.getParam("tags");
+            if (tags != null && !tags.isEmpty()) {
+                builder.tags(Arrays.asList(tags.split(",")));
+            }
+            ServiceInstance instance = builder.build();
             
             // 使用非阻塞的worker线程执行，提高并发性
             vertx.executeBlocking(promise -> {
                 try {
-                    ServiceRegistry.register(serviceType, serviceUrl);
+                    ServiceRegistry.register(serviceType, instance);
                     promise.complete();
                 } catch (Exception e) {
                     promise.fail(e);
@@ -79,17 +126,19 @@ public class HighPerfRegistryEndpoint extends AbstractVerticle {
                     return;
                 }
                 
-                // 使用单个异步任务处理整批注册请求
+                // 使用单个异步任务处理整批注册请求，按服务类型分组后批量写入
                 vertx.executeBlocking(promise -> {
                     try {
+                        Map<String, List<ServiceInstance>> grouped = new HashMap<>();
                         for (int i = 0; i < services.size(); i++) {
                             io.vertx.core.json.JsonObject service = services.getJsonObject(i);
                             String type = service.getString("type", "default");
                             String url = service.getString("url");
                             if (url != null && !url.isEmpty()) {
-                                ServiceRegistry.register(type, url);
+                                grouped.computeIfAbsent(type, k -> new ArrayList<>()).add(toInstance(url, service));
                             }
                         }
+                        ServiceRegistry.registerInstances(grouped);
                         promise.complete(services.size());
                     } catch (Exception e) {
                         promise.fail(e);
@@ -116,7 +165,230 @@ public class HighPerfRegistryEndpoint extends AbstractVerticle {
         return router;
     }
     
+    /**
+     * 从JSON中读取可选的实例元数据，没有元数据时返回只有URL的实例
+     */
+    private static ServiceInstance toInstance(String url, JsonObject json) {
+        if (!json.containsKey("weight") && !json.containsKey("zone")
+                && !json.containsKey("version") && !json.containsKey("tags")) {
+            return ServiceInstance.of(url);
+        }
+        ServiceInstance.ServiceInstanceBuilder builder = ServiceInstance.builder()
+                .url(url)
+                .weight(json.getInteger("weight", ServiceInstance.DEFAULT_WEIGHT))
+                .zone(json.getString("zone", ""))
+                .version(json.getString("version", ""));
+        JsonArray tags = json.getJsonArray("tags");
+        if (tags != null) {
+            for (int i = 0; i < tags.size(); i++) {
+                builder.tag(tags.getString(i));
+            }
+        }
+        return builder.build();
+    }
+    
+    /**
+     * 流式导入：解析出的条目先在事件循环上累积，满一块后暂停读取，
+     * 在工作线程上整块写入注册中心（每个服务类型一次快照更新），完成后恢复读取
+     */
+    private void handleStream(HttpServerRequest request) {
+        String contentType = request.getHeader("content-type");
+        boolean binary = contentType != null && contentType.startsWith("application/octet-stream");
+        StreamIngest ingest = new StreamIngest(request);
+        RecordParser parser;
+        if (binary) {
+            parser = RecordParser.newFixed(2, request);
+            parser.handler(new BinaryFrameDecoder(parser, ingest));
+        } else {
+            parser = RecordParser.newDelimited("\n", request);
+            parser.handler(line -> ingest.acceptLine(line));
+        }
+        ingest.parser = parser;
+        parser.exceptionHandler(err -> ingest.fail(new IllegalArgumentException(err.getMessage(), err)));
+        parser.endHandler(v -> ingest.finish());
+    }
+    
+    /**
+     * 单个流式导入请求的状态，只在事件循环线程上访问
+     */
+    private class StreamIngest {
+        private final HttpServerRequest request;
+        private RecordParser parser;
+        private Map<String, List<ServiceInstance>> pending = new HashMap<>();
+        private int pendingCount;
+        private long received;
+        private long skipped;
+        private long added;
+        private boolean failed;
+        
+        StreamIngest(HttpServerRequest request) {
+            this.request = request;
+        }
+        
+        void acceptLine(Buffer line) {
+            if (line.length() == 0 || (line.length() == 1 && line.getByte(0) == '\r')) {
+                return;
+            }
+            try {
+                JsonObject json = new JsonObject(line);
+                String url = json.getString("url");
+                accept(json.getString("type", "default"), url == null || url.isEmpty() ? null : toInstance(url, json));
+            } catch (Exception e) {
+                skipped++;
+            }
+        }
+        
+        void accept(String type, ServiceInstance instance) {
+            if (instance == null) {
+                skipped++;
+                return;
+            }
+            received++;
+            pending.computeIfAbsent(type, k -> new ArrayList<>()).add(instance);
+            if (++pendingCount >= STREAM_CHUNK_SIZE) {
+                parser.pause();
+                flush().onComplete(ar -> {
+                    // 写入失败的块不能跳过：停止解析，不再恢复读取
+                    if (ar.failed()) {
+                        fail(ar.cause());
+                    } else if (!failed) {
+                        parser.resume();
+                    }
+                });
+            }
+        }
+        
+        io.vertx.core.Future<Void> flush() {
+            Map<String, List<ServiceInstance>> chunk = pending;
+            pending = new HashMap<>();
+            pendingCount = 0;
+            if (chunk.isEmpty()) {
+                return io.vertx.core.Future.succeededFuture();
+            }
+            // ordered=true 保证各块按接收顺序写入
+            return vertx.<Integer>executeBlocking(promise -> promise.complete(ServiceRegistry.registerInstances(chunk)), true)
+                    .map(count -> {
+                        added += count;
+                        return null;
+                    });
+        }
+        
+        void finish() {
+            flush().onComplete(ar -> {
+                if (failed) {
+                    return;
+                }
+                if (ar.failed()) {
+                    fail(ar.cause());
+                    return;
+                }
+                request.response()
+                       .putHeader("content-type", "application/json")
+                       .end("{\"status\":\"success\",\"count\":" + received
+                            + ",\"added\":" + added + ",\"skipped\":" + skipped + "}");
+            });
+        }
+        
+        /**
+         * 以错误结束导入：请求内容有误（IllegalArgumentException）返回 400，写入注册中心失败返回 500；
+         * 之后的数据不再解析，响应写出后关闭连接，不再读取剩余的请求体
+         */
+        void fail(Throwable err) {
+            if (failed) {
+                return;
+            }
+            failed = true;
+            parser.pause();
+            parser.handler(null);
+            parser.endHandler(null);
+            boolean badRequest = err instanceof IllegalArgumentException;
+            JsonObject body = new JsonObject()
+                    .put("status", "error")
+                    .put("message", String.valueOf(err.getMessage()))
+                    .put("count", received)
+                    .put("added", added);
+            request.response()
+                   .setStatusCode(badRequest ? 400 : 500)
+                   .putHeader("content-type", "application/json")
+                   .end(body.encode())
+                   .onComplete(v -> {
+                       if (!request.isEnded()) {
+                           request.connection().close();
+                       }
+                   });
+        }
+    }
+    
+    /**
+     * 二进制帧解码：[u16 类型长度][类型UTF-8][u16 URL长度][URL UTF-8]，重复直到流结束
+     */
+    private static class BinaryFrameDecoder implements Handler<Buffer> {
+        private final RecordParser parser;
+        private final StreamIngest ingest;
+        // 0: 读类型长度 1: 读类型 2: 读URL长度 3: 读URL
+        private int state;
+        private String type;
+        
+        BinaryFrameDecoder(RecordParser parser, StreamIngest ingest) {
+            this.parser = parser;
+            this.ingest = ingest;
+        }
+        
+        @Override
+        public void handle(Buffer buffer) {
+            switch (state) {
+                case 0:
+                    int typeLength = buffer.getUnsignedShort(0);
+                    if (typeLength == 0) {
+                        type = "default";
+                        state = 2;
+                    } else {
+                        parser.fixedSizeMode(typeLength);
+                        state = 1;
+                    }
+                    break;
+                case 1:
+                    type = buffer.toString(StandardCharsets.UTF_8);
+                    parser.fixedSizeMode(2);
+                    state = 2;
+                    break;
+                case 2:
+                    int urlLength = buffer.getUnsignedShort(0);
+                    if (urlLength == 0) {
+                        ingest.accept(type, null);
+                        state = 0;
+                    } else {
+                        parser.fixedSizeMode(urlLength);
+                        state = 3;
+                    }
+                    break;
+                default:
+                    ingest.accept(type, ServiceInstance.of(buffer.toString(StandardCharsets.UTF_8)));
+                    parser.fixedSizeMode(2);
+                    state = 0;
+                    break;
+            }
+        }
+    }
+    
+    /**
+     * 启动注册中心节点
+     * 用法: HighPerfRegistryEndpoint [httpPort] [clusterPort] [peer1:port,peer2:port...]
+     * 例如在同一台机器上启动三个节点:
+     *   8081 9001 localhost:9002,localhost:9003
+     *   8082 9002 localhost:9001,localhost:9003
+     *   8083 9003 localhost:9001,localhost:9002
+     */
     public static void main(String[] args) {
-        io.vertx.core.Vertx.vertx().deployVerticle(new HighPerfRegistryEndpoint());
+        io.vertx.core.Vertx vertx = io.vertx.core.Vertx.vertx();
+        int httpPort = args.length > 0 ? Integer.parseInt(args[0]) : 8081;
+        vertx.deployVerticle(new HighPerfRegistryEndpoint(httpPort));
+        
+        // 指定集群端口时以多节点复制模式运行
+        if (args.length > 1) {
+            int clusterPort = Integer.parseInt(args[1]);
+            String[] peers = args.length > 2 ? args[2].split(",") : new String[0];
+            vertx.deployVerticle(new RegistryClusterNode("localhost", clusterPort, Arrays.asList(peers)));
+        }
     }
 } 
\ No newline at end of file
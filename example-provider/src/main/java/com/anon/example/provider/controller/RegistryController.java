@@ -1,8 +1,10 @@
 package com.anon.example.provider.controller;
 
+import com.anon.anonrpc.model.ServiceInstance;
 import com.anon.anonrpc.registry.ServiceRegistry;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -13,9 +15,21 @@ public class RegistryController {
     @PostMapping("/register")
     public Map<String, String> registerService(
             @RequestParam String serviceType,
-            @RequestParam String serviceUrl) {
+            @RequestParam String serviceUrl,
+            @RequestParam(defaultValue = "" + ServiceInstance.DEFAULT_WEIGHT) int weight,
+            @RequestParam(defaultValue = "") String zone,
+            @RequestParam(defaultValue = "") String version,
+            @RequestParam(required = false) String tags) {
         
-        ServiceRegistry.register(serviceType, serviceUrl);
+        ServiceInstance.ServiceInstanceBuilder builder = ServiceInstance.builder()
+                .url(serviceUrl)
+                .weight(weight)
+                .zone(zone)
+                .version(version);
+        if (tags != null && !tags.isEmpty()) {
+            builder.tags(Arrays.asList(tags.split(",")));
+        }
+        ServiceRegistry.register(serviceType, builder.build());
         
         return Map.of(
             "status", "success",
@@ -30,6 +44,28 @@ public class RegistryController {
         return ServiceRegistry.getAllServiceUrls(serviceType != null ? serviceType : "default");
     }
     
+    /**
+     * 按可用区/版本/标签查询实例（只使用第一个给出的条件）
+     */
+    @GetMapping("/instances")
+    public List<ServiceInstance> getInstances(
+            @RequestParam(required = false) String serviceType,
+            @RequestParam(required = false) String zone,
+            @RequestParam(required = false) String version,
+            @RequestParam(required = false) String tag) {
+        
+        if (zone != null) {
+            return ServiceRegistry.getInstancesByZone(serviceType, zone);
+        }
+        if (version != null) {
+            return ServiceRegistry.getInstancesByVersion(serviceType, version);
+        }
+        if (tag != null) {
+            return ServiceRegistry.getInstancesByTag(serviceType, tag);
+        }
+        return ServiceRegistry.getInstances(serviceType);
+    }
+    
     @DeleteMapping("/unregister")
     public Map<String, String> unregisterService(
             @RequestParam String serviceType,
@@ -0,0 +1,297 @@
+package com.anon.example.provider;
+
+import com.anon.anonrpc.model.ServiceInstance;
+import com.anon.anonrpc.registry.RegistryStore;
+import com.anon.anonrpc.registry.ServiceRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 注册中心持久化：注册等到所在批次写入日志才返回，写入失败时报告给调用方；
+ * 重启后按 快照 + 日志尾部 恢复，损坏的日志尾部被截断，超长字段在写入前被拒绝
+ * 每个测试使用独立的数据目录和服务类型，恢复前只移除本测试的实例，不影响注册表中的其他数据
+ */
+class RegistryRecoveryTest {
+
+    private static final AtomicInteger SEQ = new AtomicInteger();
+
+    @TempDir
+    Path dir;
+
+    private final String serviceType = "recovery-test-" + SEQ.incrementAndGet();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        ServiceRegistry.disablePersistence();
+        forget();
+    }
+
+    @Test
+    void registerWaitsForGroupCommit() throws Exception {
+        ServiceRegistry.enablePersistence(dir.toString());
+        RegistryStore store = currentStore();
+
+        CompletableFuture<Void> registered;
+        synchronized (store) {
+            // 写线程写入一批事件时持有存储的锁，此时注册不能返回
+            registered = CompletableFuture.runAsync(() -> ServiceRegistry.register(serviceType, instance(1)));
+            Thread.sleep(200);
+            assertFalse(registered.isDone());
+        }
+        registered.get(5, TimeUnit.SECONDS);
+
+        // 不关闭存储，直接从当前文件的副本恢复：注册返回时日志中已有该记录
+        Path copy = Files.createDirectory(dir.resolve("copy"));
+        for (Path file : files("registry-*")) {
+            Files.copy(file, copy.resolve(file.getFileName()));
+        }
+        Map<String, LinkedHashMap<String, ServiceInstance>> recovered = new RegistryStore(copy, HashMap::new).recover();
+
+        assertEquals(instance(1), recovered.get(serviceType).get(url(1)));
+    }
+
+    @Test
+    void failedWriteIsReportedToCaller() throws Exception {
+        ServiceRegistry.enablePersistence(dir.toString());
+        ServiceRegistry.register(serviceType, instance(1));
+        // 关闭日志通道，模拟磁盘写入失败
+        Field channel = RegistryStore.class.getDeclaredField("logChannel");
+        channel.setAccessible(true);
+        ((FileChannel) channel.get(currentStore())).close();
+
+        assertThrows(UncheckedIOException.class, () -> ServiceRegistry.register(serviceType, instance(2)));
+        // 存储失败后不再接受写入，之后的变更同样报错而不是被静默丢弃
+        assertThrows(UncheckedIOException.class, () -> ServiceRegistry.unregister(serviceType, url(1)));
+        assertThrows(IOException.class, ServiceRegistry::disablePersistence);
+
+        forget();
+        ServiceRegistry.enablePersistence(dir.toString());
+        assertEquals(Collections.singletonList(instance(1)), ServiceRegistry.getInstances(serviceType));
+    }
+
+    @Test
+    void recoversSnapshotPlusLogTail() throws IOException {
+        ServiceRegistry.enablePersistence(dir.toString());
+        for (int i = 0; i < 500; i++) {
+            ServiceRegistry.register(serviceType, instance(i));
+        }
+        ServiceRegistry.disablePersistence();
+        writeSnapshot();
+
+        // 快照之后的变更只在日志尾部：新增、注销、以新元数据覆盖
+        ServiceRegistry.enablePersistence(dir.toString());
+        for (int i = 500; i < 600; i++) {
+            ServiceRegistry.register(serviceType, instance(i));
+        }
+        for (int i = 0; i < 100; i++) {
+            ServiceRegistry.unregister(serviceType, url(i));
+        }
+        ServiceInstance updated = instance(100).toBuilder().weight(5).clearTags().tag("canary").build();
+        ServiceRegistry.register(serviceType, updated);
+        ServiceRegistry.disablePersistence();
+        assertTrue(Files.exists(dir.resolve("registry.snapshot")));
+
+        forget();
+        ServiceRegistry.enablePersistence(dir.toString());
+
+        Map<String, ServiceInstance> instances = byUrl();
+        assertEquals(500, instances.size());
+        assertEquals(updated, instances.get(url(100)));
+        for (int i = 101; i < 600; i++) {
+            assertEquals(instance(i), instances.get(url(i)));
+        }
+    }
+
+    @Test
+    void tornTailIsTruncatedAndEarlierRecordsKept() throws IOException {
+        ServiceRegistry.enablePersistence(dir.toString());
+        for (int i = 0; i < 100; i++) {
+            ServiceRegistry.register(serviceType, instance(i));
+        }
+        ServiceRegistry.disablePersistence();
+
+        Path log = lastLog();
+        long validSize = Files.size(log);
+        // 一条只写了一半的记录：声明的长度超过文件剩余字节
+        ByteBuffer torn = ByteBuffer.allocate(7).putInt(50).put(new byte[]{1, 2, 3});
+        Files.write(log, torn.array(), StandardOpenOption.APPEND);
+
+        forget();
+        ServiceRegistry.enablePersistence(dir.toString());
+
+        assertEquals(100, byUrl().size());
+        assertEquals(validSize, Files.size(log));
+
+        // 恢复后继续写入新的日志代，再次重启时新旧记录都在
+        ServiceRegistry.register(serviceType, instance(100));
+        ServiceRegistry.disablePersistence();
+        forget();
+        ServiceRegistry.enablePersistence(dir.toString());
+        assertEquals(101, byUrl().size());
+    }
+
+    @Test
+    void corruptedRecordStopsReplay() throws IOException {
+        ServiceRegistry.enablePersistence(dir.toString());
+        for (int i = 0; i < 10; i++) {
+            ServiceRegistry.register(serviceType, instance(i));
+        }
+        ServiceRegistry.disablePersistence();
+
+        // 翻转最后一条记录的校验和
+        Path log = lastLog();
+        byte[] bytes = Files.readAllBytes(log);
+        bytes[bytes.length - 1] ^= 0x5A;
+        Files.write(log, bytes);
+
+        forget();
+        ServiceRegistry.enablePersistence(dir.toString());
+
+        Map<String, ServiceInstance> instances = byUrl();
+        assertEquals(9, instances.size());
+        assertFalse(instances.containsKey(url(9)));
+    }
+
+    @Test
+    void recovers100kEntriesQuickly() throws IOException {
+        ServiceRegistry.enablePersistence(dir.toString());
+        List<String> urls = new ArrayList<>(100_000);
+        for (int i = 0; i < 100_000; i++) {
+            urls.add(url(i));
+        }
+        assertEquals(100_000, ServiceRegistry.registerBatch(serviceType, urls));
+        ServiceRegistry.disablePersistence();
+        forget();
+
+        long start = System.nanoTime();
+        ServiceRegistry.enablePersistence(dir.toString());
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(100_000, ServiceRegistry.getInstances(serviceType).size());
+        System.out.println("恢复 100000 个实例耗时 " + elapsedMs + " ms");
+        // 开发机上约 150 ms，留出足够余量避免在慢机器上误报
+        assertTrue(elapsedMs < 3000, "恢复耗时 " + elapsedMs + " ms");
+    }
+
+    @Test
+    void oversizedFieldsAreRejectedBeforeWriting() throws IOException {
+        ServiceRegistry.enablePersistence(dir.toString());
+        StringBuilder path = new StringBuilder("http://localhost:8080/");
+        for (int i = 0; i < 22_000; i++) {
+            // 每个字符编码为3字节，总长超过 65535
+            path.append('注');
+        }
+        ServiceInstance.ServiceInstanceBuilder manyTags = instance(2).toBuilder();
+        for (int i = 0; i < 70_000; i++) {
+            manyTags.tag("t" + i);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> ServiceRegistry.register(serviceType, path.toString()));
+        assertThrows(IllegalArgumentException.class, () -> ServiceRegistry.register(serviceType, manyTags.build()));
+        ServiceRegistry.register(serviceType, instance(1));
+        ServiceRegistry.disablePersistence();
+
+        forget();
+        ServiceRegistry.enablePersistence(dir.toString());
+        assertEquals(Collections.singletonList(instance(1)), ServiceRegistry.getInstances(serviceType));
+    }
+
+    private static RegistryStore currentStore() throws ReflectiveOperationException {
+        Field field = ServiceRegistry.class.getDeclaredField("STORE");
+        field.setAccessible(true);
+        return (RegistryStore) field.get(null);
+    }
+
+    private String url(int i) {
+        return "http://10.0." + (i / 250) + "." + (i % 250) + ":8080/" + serviceType;
+    }
+
+    private ServiceInstance instance(int i) {
+        return ServiceInstance.builder()
+                .url(url(i))
+                .weight(10 + i % 7)
+                .zone("zone-" + i % 3)
+                .version("1." + i % 2)
+                .tag("shard-" + i % 5)
+                .build();
+    }
+
+    private Map<String, ServiceInstance> byUrl() {
+        Map<String, ServiceInstance> instances = new HashMap<>();
+        for (ServiceInstance instance : ServiceRegistry.getInstances(serviceType)) {
+            instances.put(instance.getUrl(), instance);
+        }
+        return instances;
+    }
+
+    /**
+     * 用注册表当前内容写一份快照，之后的写入进入新的日志代
+     */
+    private void writeSnapshot() throws IOException {
+        RegistryStore store = new RegistryStore(dir,
+                () -> Collections.singletonMap(serviceType, ServiceRegistry.getInstances(serviceType)));
+        store.recover();
+        store.start();
+        try {
+            store.snapshot();
+        } finally {
+            store.close();
+        }
+    }
+
+    /**
+     * 在关闭持久化的状态下移除本测试的实例，模拟进程重启后内存为空（不写入日志）
+     */
+    private void forget() {
+        for (ServiceInstance instance : ServiceRegistry.getInstances(serviceType)) {
+            ServiceRegistry.unregister(serviceType, instance.getUrl());
+        }
+    }
+
+    private Path lastLog() throws IOException {
+        Path last = null;
+        for (Path log : files("registry-*.log")) {
+            if (Files.size(log) > 0 && (last == null || log.compareTo(last) > 0)) {
+                last = log;
+            }
+        }
+        assertNotNull(last);
+        return last;
+    }
+
+    private List<Path> files(String glob) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, glob)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+}
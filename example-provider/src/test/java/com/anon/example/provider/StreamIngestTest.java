@@ -0,0 +1,151 @@
+package com.anon.example.provider;
+
+import com.anon.anonrpc.model.ServiceInstance;
+import com.anon.anonrpc.registry.RegistryStore;
+import com.anon.anonrpc.registry.ServiceRegistry;
+import com.anon.example.provider.controller.HighPerfRegistryEndpoint;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 流式导入：某一块写入注册中心失败时停止导入并报告错误，不跳过该块继续返回成功；
+ * 请求内容有误返回 400，存储故障返回 500，错误信息经 JSON 编码
+ */
+class StreamIngestTest {
+
+    // 与 HighPerfRegistryEndpoint 中每块的条目数一致
+    private static final int CHUNK = 4096;
+
+    private static final AtomicInteger SEQ = new AtomicInteger();
+
+    @TempDir
+    Path dir;
+
+    private final String serviceType = "stream-test-" + SEQ.incrementAndGet();
+
+    private Vertx vertx;
+    private int port;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        vertx = Vertx.vertx();
+        port = freePort();
+        vertx.deployVerticle(new HighPerfRegistryEndpoint(port))
+                .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try {
+            ServiceRegistry.disablePersistence();
+        } catch (IOException e) {
+            // 模拟存储故障的测试关闭持久化时报告写入失败
+        }
+        for (ServiceInstance instance : ServiceRegistry.getInstances(serviceType)) {
+            ServiceRegistry.unregister(serviceType, instance.getUrl());
+        }
+        vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void completeStreamIsAdded() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < CHUNK + 10; i++) {
+            body.append(line(i, url(i)));
+        }
+
+        HttpResponse<String> response = post(body.toString());
+
+        assertEquals(200, response.statusCode());
+        JsonObject result = new JsonObject(response.body());
+        assertEquals("success", result.getString("status"));
+        assertEquals(CHUNK + 10, result.getInteger("added"));
+        assertEquals(CHUNK + 10, ServiceRegistry.getInstances(serviceType).size());
+    }
+
+    @Test
+    void rejectedMiddleChunkStopsIngest() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < CHUNK * 3; i++) {
+            // 第二块中的一个URL超过日志记录的字段长度上限，该块在写入前被拒绝
+            body.append(line(i, i == CHUNK + 1 ? url(i) + "x".repeat(70000) : url(i)));
+        }
+
+        HttpResponse<String> response = post(body.toString());
+
+        assertEquals(400, response.statusCode());
+        JsonObject result = new JsonObject(response.body());
+        assertEquals("error", result.getString("status"));
+        assertEquals(CHUNK, result.getInteger("added"));
+        // 失败之后的块没有被解析和写入
+        for (ServiceInstance instance : ServiceRegistry.getInstances(serviceType)) {
+            String url = instance.getUrl();
+            assertTrue(Integer.parseInt(url.substring(url.lastIndexOf('/') + 1)) < CHUNK * 2, url);
+        }
+    }
+
+    @Test
+    void storageFailureIsServerError() throws Exception {
+        ServiceRegistry.enablePersistence(dir.toString());
+        // 关闭日志通道，模拟磁盘写入失败
+        Field channel = RegistryStore.class.getDeclaredField("logChannel");
+        channel.setAccessible(true);
+        Field store = ServiceRegistry.class.getDeclaredField("STORE");
+        store.setAccessible(true);
+        ((FileChannel) channel.get(store.get(null))).close();
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < CHUNK * 2; i++) {
+            body.append(line(i, url(i)));
+        }
+
+        HttpResponse<String> response = post(body.toString());
+
+        assertEquals(500, response.statusCode());
+        // 错误信息中的字符经过转义，响应体是合法的 JSON
+        JsonObject result = new JsonObject(response.body());
+        assertEquals("error", result.getString("status"));
+        assertEquals(0, result.getInteger("added"));
+    }
+
+    private String url(int i) {
+        return String.format("http://10.2.%d.%d:8080/%s/%06d", i / 250, i % 250, serviceType, i);
+    }
+
+    private String line(int i, String url) {
+        return new JsonObject().put("type", serviceType).put("url", url).encode() + "\n";
+    }
+
+    private HttpResponse<String> post(String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/registry/stream"))
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}